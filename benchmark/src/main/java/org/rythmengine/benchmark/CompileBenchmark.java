@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.benchmark;
+
+/*-
+ * #%L
+ * Rythm Template Engine
+ * %%
+ * Copyright (C) 2017 - 2021 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.openjdk.jmh.annotations.*;
+import org.rythmengine.internal.compiler.TemplateClass;
+import org.rythmengine.template.ITemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the back end of the template compile pipeline:
+ * <ul>
+ * <li>{@link #compile(CorpusState, SourceReady)}: the generated java source is compiled
+ * by ECJ through the <code>TemplateCompiler</code></li>
+ * <li>{@link #load(CorpusState, ByteCodeReady)}: the byte code is defined by a new
+ * template class loader and the template is instantiated</li>
+ * </ul>
+ * <p>The stages before the one being measured run in the per invocation setup</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompileBenchmark {
+
+    @State(Scope.Thread)
+    public static class SourceReady {
+        @Setup(Level.Invocation)
+        public void prepare(CorpusState state) {
+            TemplateClass tc = state.templateClass;
+            tc.reset();
+            tc.buildSourceCode();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ByteCodeReady {
+        @Setup(Level.Invocation)
+        public void prepare(CorpusState state) {
+            TemplateClass tc = state.templateClass;
+            tc.reset();
+            tc.buildSourceCode();
+            tc.compile();
+        }
+    }
+
+    @Benchmark
+    public byte[] compile(CorpusState state, SourceReady sourceReady) {
+        return state.templateClass.compile();
+    }
+
+    @Benchmark
+    public ITemplate load(CorpusState state, ByteCodeReady byteCodeReady) {
+        return state.templateClass.asTemplate(state.engine);
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.benchmark;
+
+/*-
+ * #%L
+ * Rythm Template Engine
+ * %%
+ * Copyright (C) 2017 - 2021 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.rythmengine.Rythm;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.utils.IO;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.*;
+
+import static org.rythmengine.conf.RythmConfigurationKey.*;
+
+/**
+ * The template corpus the benchmarks run over.
+ * <p/>
+ * <p>The templates are shipped under <code>/corpus</code> on the classpath and
+ * installed into a temporary template home, so that <code>@extends</code>,
+ * <code>@include</code> and tag invocations are resolved by the file resource
+ * loader the same way as in an application:</p>
+ * <ul>
+ * <li>{@link #SMALL} a simple template with a couple of expressions</li>
+ * <li>{@link #MEDIUM} a page exercising every build-in parser of the Rythm dialect</li>
+ * <li>{@link #HUGE} the medium page with its body repeated {@link #HUGE_REPEAT} times</li>
+ * </ul>
+ * <p>The templates under <code>render/</code> are used by the {@link RenderScenario render scenarios}</p>
+ */
+public enum Corpus {
+    SMALL("small.html"),
+    MEDIUM("medium.html"),
+    HUGE("huge.html");
+
+    /**
+     * How many times the medium page body is repeated in the huge page
+     */
+    public static final int HUGE_REPEAT = 40;
+
+    /**
+     * The line separating the declarations of the medium page from its body
+     */
+    static final String BODY_MARKER = "@// ---- body ----\n";
+
+    private static final String[] RESOURCES = {
+            "layout.html", "common.html", "small.html", "medium.html", "tags/row.html", "tags/card.html",
+            "render/layout.html", "render/page.html", "render/table.html", "render/nested.html",
+            "render/tags/l1.html", "render/tags/l2.html", "render/tags/l3.html", "render/tags/l4.html",
+            "render/tags/l5.html", "render/tags/l6.html", "render/tags/l7.html", "render/tags/l8.html",
+            "render/cache.html", "render/escape.html", "render/escape.json", "render/sandbox.html"
+    };
+
+    private final String file;
+
+    Corpus(String file) {
+        this.file = file;
+    }
+
+    /**
+     * Return the template name to render or look up the template class by
+     */
+    public String file() {
+        return file;
+    }
+
+    /**
+     * Return the render arguments of the template
+     */
+    public Object[] renderArgs() {
+        if (this == SMALL) {
+            return new Object[]{"rythm", 3};
+        }
+        List<String> items = new ArrayList<String>();
+        for (int i = 0; i < 30; ++i) {
+            items.add("item" + i);
+        }
+        Map<String, Object> user = new HashMap<String, Object>();
+        user.put("name", "Rythm & <Co>");
+        return new Object[]{items, user, "<a href=\"/x?a=1&b='2'\">link</a>"};
+    }
+
+    /**
+     * Install the corpus into a new temporary directory
+     *
+     * @return the template home
+     */
+    public static File install() {
+        File home = new File(System.getProperty("java.io.tmpdir"), "rythm-corpus-" + UUID.randomUUID());
+        new File(home, "tags").mkdirs();
+        new File(home, "render/tags").mkdirs();
+        for (String name : RESOURCES) {
+            IO.writeContent(resource(name), new File(home, name));
+        }
+        IO.writeContent(huge(resource("medium.html")), new File(home, HUGE.file));
+        return home;
+    }
+
+    /**
+     * Create an engine loading templates from the given home. Nothing is written to
+     * disk so that each benchmark iteration goes through the same code path.
+     *
+     * @param home the template home returned by {@link #install()}
+     * @param conf additional configuration, could be empty
+     * @return the engine
+     */
+    public static RythmEngine engine(File home, Map<String, Object> conf) {
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put(ENGINE_MODE.getKey(), Rythm.Mode.prod);
+        map.put(HOME_TEMPLATE.getKey(), home);
+        map.put(ENGINE_FILE_WRITE_ENABLED.getKey(), false);
+        map.putAll(conf);
+        return new RythmEngine(map);
+    }
+
+    /**
+     * Remove the corpus installed by {@link #install()}
+     */
+    public static void uninstall(File home) {
+        delete(home);
+    }
+
+    private static void delete(File file) {
+        File[] fa = file.listFiles();
+        if (null != fa) {
+            for (File f : fa) {
+                delete(f);
+            }
+        }
+        file.delete();
+    }
+
+    static String huge(String medium) {
+        int pos = medium.indexOf(BODY_MARKER);
+        if (pos < 0) {
+            throw new IllegalStateException("body marker not found in the medium template");
+        }
+        pos += BODY_MARKER.length();
+        String body = medium.substring(pos);
+        StringBuilder sb = new StringBuilder(pos + body.length() * HUGE_REPEAT);
+        sb.append(medium, 0, pos);
+        for (int i = 0; i < HUGE_REPEAT; ++i) {
+            // each body is wrapped in its own @if block, thus local variables do not clash
+            sb.append(body);
+        }
+        return sb.toString();
+    }
+
+    private static String resource(String name) {
+        InputStream is = Corpus.class.getResourceAsStream("/corpus/" + name);
+        if (null == is) {
+            throw new IllegalStateException("corpus template not found: " + name);
+        }
+        return IO.readContentAsString(is);
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.benchmark;
+
+/*-
+ * #%L
+ * Rythm Template Engine
+ * %%
+ * Copyright (C) 2017 - 2021 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.openjdk.jmh.annotations.*;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.internal.compiler.TemplateClass;
+
+import java.io.File;
+import java.util.Collections;
+
+/**
+ * An engine with one corpus template rendered once. The templates it extends,
+ * includes and invokes are compiled in the trial setup, so the pipeline benchmarks
+ * only measure the corpus template itself
+ */
+@State(Scope.Benchmark)
+public class CorpusState {
+
+    @Param({"SMALL", "MEDIUM", "HUGE"})
+    public Corpus corpus;
+
+    public RythmEngine engine;
+
+    public TemplateClass templateClass;
+
+    /**
+     * The template source of {@link #templateClass}
+     */
+    public String source;
+
+    private File home;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        home = Corpus.install();
+        engine = Corpus.engine(home, Collections.<String, Object>emptyMap());
+        engine.render(corpus.file(), corpus.renderArgs());
+        templateClass = engine.classes().getByTemplate(corpus.file());
+        if (null == templateClass) {
+            throw new IllegalStateException("template class not found: " + corpus.file());
+        }
+        source = templateClass.getTemplateSource();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.shutdown();
+        Corpus.uninstall(home);
+    }
+}
@@ -0,0 +1,309 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.benchmark;
+
+/*-
+ * #%L
+ * Rythm Template Engine
+ * %%
+ * Copyright (C) 2017 - 2021 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.apache.commons.lang3.text.translate.EntityArrays;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.rythmengine.utils.Escape;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the {@link Escape} schemes on realistic strings, compared to the character
+ * by character implementation they replaced and to the commons-lang translators
+ * <p/>
+ * <ul>
+ * <li><code>escape</code>: {@link Escape#escape(String)}, allocates only if there is something to escape</li>
+ * <li><code>escapeTo</code>: {@link Escape#escapeTo(String, StringBuilder)} into a reused buffer, the render path</li>
+ * <li><code>perChar</code>: the former implementation appending one character at a time</li>
+ * <li><code>commonsLang</code>: <code>StringEscapeUtils</code>, used before the escapes were written directly into the output</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class EscapeBenchmark {
+
+    /**
+     * The strings to escape
+     */
+    public enum Text {
+        /**
+         * A short value with nothing to escape, e.g. a name or a title
+         */
+        TITLE("Wireless Noise Cancelling Headphones - Black"),
+        /**
+         * User written prose with a few quotes, apostrophes and ampersands
+         */
+        PROSE("I've been using these for three weeks now. The sound is great & the battery easily lasts " +
+                "a long-haul flight; the \"ambient\" mode is handy at the airport. Build quality feels solid, " +
+                "although the case is bulkier than I'd like and the hinge creaks a little when folding. " +
+                "Pairing with my laptop and phone at the same time works without any fuss. Would buy again, " +
+                "but wait for a sale: the full price is hard to justify compared to last year's model."),
+        /**
+         * A markup snippet where most of the characters are escaped in runs
+         */
+        MARKUP("<p class=\"note\">See <a href=\"/search?q=headphones&sort=price&dir=asc\" title='Search'>" +
+                "the results</a> &amp; <b>compare</b> <i>prices</i>.</p>\n<ul><li>one</li><li>two</li></ul>"),
+        /**
+         * Text with accented and CJK characters
+         */
+        UNICODE("Café crème brûlée à la carte – déjà vu. 東京の天気は晴れです。Grüße aus München, " +
+                "señor Núñez. Ελληνικά κείμενα και 中文字符混合在一起。");
+
+        private final String value;
+
+        Text(String value) {
+            this.value = value;
+        }
+
+        public String value() {
+            return value;
+        }
+    }
+
+    @Param({"HTML", "XML", "JSON", "JS", "CSV"})
+    public Escape scheme;
+
+    @Param({"TITLE", "PROSE", "MARKUP", "UNICODE"})
+    public Text text;
+
+    private String s;
+
+    private final StringBuilder sb = new StringBuilder(1024);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        s = text.value();
+    }
+
+    @Benchmark
+    public String escape() {
+        return scheme.escape(s);
+    }
+
+    @Benchmark
+    public StringBuilder escapeTo() {
+        sb.setLength(0);
+        scheme.escapeTo(s, sb);
+        return sb;
+    }
+
+    @Benchmark
+    public StringBuilder perChar() throws IOException {
+        sb.setLength(0);
+        PerChar.escape(scheme, s, sb);
+        return sb;
+    }
+
+    @Benchmark
+    public String commonsLang() {
+        switch (scheme) {
+            case HTML:
+                return StringEscapeUtils.escapeHtml4(s);
+            case XML:
+                return StringEscapeUtils.escapeXml10(s);
+            case JSON:
+                return StringEscapeUtils.escapeJson(s);
+            case JS:
+                return StringEscapeUtils.escapeEcmaScript(s);
+            case CSV:
+                return StringEscapeUtils.escapeCsv(s);
+            default:
+                return s;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(EscapeBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(opt).run();
+    }
+
+    /**
+     * The character by character escape implementation replaced by the shared
+     * table driven escape engine, kept as the baseline
+     */
+    static class PerChar {
+        private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+        private static final String[] ENTITIES;
+
+        static {
+            String[][][] tables = {EntityArrays.BASIC_ESCAPE(), EntityArrays.ISO8859_1_ESCAPE(), EntityArrays.HTML40_EXTENDED_ESCAPE()};
+            int max = 0;
+            for (String[][] table : tables) {
+                for (String[] entry : table) {
+                    max = Math.max(max, entry[0].charAt(0));
+                }
+            }
+            ENTITIES = new String[max + 1];
+            for (String[][] table : tables) {
+                for (String[] entry : table) {
+                    ENTITIES[entry[0].charAt(0)] = entry[1];
+                }
+            }
+        }
+
+        static void escape(Escape scheme, String s, Appendable out) throws IOException {
+            switch (scheme) {
+                case HTML:
+                    html(s, out);
+                    break;
+                case XML:
+                    xml(s, out);
+                    break;
+                case JSON:
+                    js(s, out, false);
+                    break;
+                case JS:
+                    js(s, out, true);
+                    break;
+                case CSV:
+                    csv(s, out);
+                    break;
+                default:
+                    out.append(s);
+            }
+        }
+
+        private static void csv(String s, Appendable out) throws IOException {
+            boolean quote = false;
+            for (int i = 0, len = s.length(); i < len && !quote; ++i) {
+                char c = s.charAt(i);
+                quote = ',' == c || '"' == c || '\r' == c || '\n' == c;
+            }
+            if (!quote) {
+                out.append(s);
+                return;
+            }
+            out.append('"');
+            for (int i = 0, len = s.length(); i < len; ++i) {
+                char c = s.charAt(i);
+                if ('"' == c) {
+                    out.append('"');
+                }
+                out.append(c);
+            }
+            out.append('"');
+        }
+
+        private static void html(String s, Appendable out) throws IOException {
+            String[] entities = ENTITIES;
+            for (int i = 0, len = s.length(); i < len; ++i) {
+                char c = s.charAt(i);
+                String entity = c < entities.length ? entities[c] : null;
+                if (null == entity) {
+                    out.append(c);
+                } else {
+                    out.append(entity);
+                }
+            }
+        }
+
+        private static void js(String s, Appendable out, boolean singleQuote) throws IOException {
+            for (int i = 0, len = s.length(); i < len; ++i) {
+                char c = s.charAt(i);
+                switch (c) {
+                    case '\'':
+                        if (singleQuote) {
+                            out.append("\\'");
+                        } else {
+                            out.append(c);
+                        }
+                        break;
+                    case '"':
+                        out.append("\\\"");
+                        break;
+                    case '\\':
+                        out.append("\\\\");
+                        break;
+                    case '/':
+                        out.append("\\/");
+                        break;
+                    case '\b':
+                        out.append("\\b");
+                        break;
+                    case '\n':
+                        out.append("\\n");
+                        break;
+                    case '\t':
+                        out.append("\\t");
+                        break;
+                    case '\f':
+                        out.append("\\f");
+                        break;
+                    case '\r':
+                        out.append("\\r");
+                        break;
+                    default:
+                        if (c < 32 || c > 0x7f) {
+                            out.append("\\u").append(HEX[(c >> 12) & 0xF]).append(HEX[(c >> 8) & 0xF])
+                                    .append(HEX[(c >> 4) & 0xF]).append(HEX[c & 0xF]);
+                        } else {
+                            out.append(c);
+                        }
+                }
+            }
+        }
+
+        private static void xml(String s, Appendable out) throws IOException {
+            for (int i = 0, len = s.length(); i < len; ++i) {
+                char c = s.charAt(i);
+                switch (c) {
+                    case '<':
+                        out.append("&lt;");
+                        break;
+                    case '>':
+                        out.append("&gt;");
+                        break;
+                    case '"':
+                        out.append("&quot;");
+                        break;
+                    case '\'':
+                        out.append("&apos;");
+                        break;
+                    case '&':
+                        out.append("&amp;");
+                        break;
+                    default:
+                        out.append(c);
+                }
+            }
+        }
+    }
+}
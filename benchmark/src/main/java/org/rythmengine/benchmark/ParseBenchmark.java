@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.benchmark;
+
+/*-
+ * #%L
+ * Rythm Template Engine
+ * %%
+ * Copyright (C) 2017 - 2021 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.openjdk.jmh.annotations.*;
+import org.rythmengine.internal.CodeBuilder;
+import org.rythmengine.internal.TemplateParser;
+import org.rythmengine.internal.TemplateTokenizer;
+import org.rythmengine.internal.Token;
+import org.rythmengine.internal.compiler.TemplateClass;
+import org.rythmengine.internal.dialect.DialectManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the front end of the template compile pipeline:
+ * <ul>
+ * <li>{@link #tokenize(CorpusState)}: the build-in parsers split the template into tokens</li>
+ * <li>{@link #codegen(CorpusState)}: {@link CodeBuilder#build()} tokenizes the template and
+ * generates the java source. Subtract the tokenize score to get the cost of code generation</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Benchmark
+    public int tokenize(CorpusState state) {
+        CodeBuilder cb = codeBuilder(state);
+        TemplateParser parser = new TemplateParser(cb);
+        parser.pushCodeType(cb.templateDefLang);
+        DialectManager dm = state.engine.dialectManager();
+        dm.beginParse(parser);
+        try {
+            int n = 0;
+            for (Token token : new TemplateTokenizer(parser)) {
+                n++;
+            }
+            return n;
+        } finally {
+            dm.endParse(parser);
+        }
+    }
+
+    @Benchmark
+    public String codegen(CorpusState state) {
+        CodeBuilder cb = codeBuilder(state);
+        cb.build();
+        return cb.toString();
+    }
+
+    private static CodeBuilder codeBuilder(CorpusState state) {
+        TemplateClass tc = state.templateClass;
+        return new CodeBuilder(state.source, tc.name(), tc.getTagName(), tc, state.engine, null);
+    }
+}
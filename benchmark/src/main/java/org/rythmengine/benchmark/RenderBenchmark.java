@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.benchmark;
+
+/*-
+ * #%L
+ * Rythm Template Engine
+ * %%
+ * Copyright (C) 2017 - 2021 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.rythmengine.RythmEngine;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.rythmengine.conf.RythmConfigurationKey.CACHE_ENABLED;
+
+/**
+ * Measure the render throughput of the {@link RenderScenario scenarios} through the
+ * <code>String</code>, <code>Writer</code> and <code>OutputStream</code> render methods
+ * of {@link RythmEngine}. See {@link SandboxBenchmark} for the sandbox path.
+ * <p/>
+ * <p>Run {@link #main(String[])} to get the allocation rate reported by the GC profiler
+ * next to the ops/s scores of both benchmarks</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class RenderBenchmark {
+
+    @Param({"TABLE", "NESTED", "LAYOUT", "CACHE", "HTML", "JSON"})
+    public RenderScenario scenario;
+
+    private File home;
+    private RythmEngine engine;
+    private Object[] args;
+
+    private final Writer writer = new NullWriter();
+    private final OutputStream os = new NullOutputStream();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        home = Corpus.install();
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(CACHE_ENABLED.getKey(), RenderScenario.CACHE == scenario);
+        engine = Corpus.engine(home, conf);
+        args = scenario.renderArgs();
+        // compile the templates before measuring
+        engine.render(scenario.file(), args);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.shutdown();
+        Corpus.uninstall(home);
+    }
+
+    @Benchmark
+    public String renderString() {
+        return engine.render(scenario.file(), args);
+    }
+
+    @Benchmark
+    public Writer renderWriter() {
+        engine.render(writer, scenario.file(), args);
+        return writer;
+    }
+
+    @Benchmark
+    public OutputStream renderOutputStream() {
+        engine.render(os, scenario.file(), args);
+        return os;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(RenderBenchmark.class.getSimpleName())
+                .include(SandboxBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(opt).run();
+    }
+
+    static class NullWriter extends Writer {
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    static class NullOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
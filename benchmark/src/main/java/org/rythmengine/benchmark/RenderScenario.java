@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.benchmark;
+
+/*-
+ * #%L
+ * Rythm Template Engine
+ * %%
+ * Copyright (C) 2017 - 2021 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The templates rendered by {@link RenderBenchmark}. The render arguments are fixed, so
+ * the scores of different runs are comparable
+ */
+public enum RenderScenario {
+    /**
+     * A 100 x 8 table rendered by nested loops
+     */
+    TABLE("render/table.html") {
+        @Override
+        Object[] renderArgs() {
+            List<String> header = new ArrayList<String>();
+            for (int i = 0; i < 8; ++i) {
+                header.add("col" + i);
+            }
+            List<List<Object>> rows = new ArrayList<List<Object>>();
+            for (int i = 0; i < 100; ++i) {
+                List<Object> row = new ArrayList<Object>();
+                row.add(i);
+                row.add("name" + i);
+                row.add(i * 1.5d);
+                row.add(0 == i % 2);
+                row.add(i * 1000L);
+                row.add("description of row " + i);
+                row.add('c');
+                row.add(null);
+                rows.add(row);
+            }
+            return new Object[]{header, rows};
+        }
+    },
+    /**
+     * A chain of tags nested 8 levels deep, invoked 10 times
+     */
+    NESTED("render/nested.html") {
+        @Override
+        Object[] renderArgs() {
+            return new Object[]{"leaf"};
+        }
+    },
+    /**
+     * A page extending a layout with sections
+     */
+    LAYOUT("render/page.html") {
+        @Override
+        Object[] renderArgs() {
+            return new Object[]{items(50)};
+        }
+    },
+    /**
+     * A page with two <code>@cache</code> blocks, the engine runs with cache enabled
+     */
+    CACHE("render/cache.html") {
+        @Override
+        Object[] renderArgs() {
+            return new Object[]{items(50), "rythm"};
+        }
+    },
+    /**
+     * Strings full of HTML special characters escaped in text and attributes
+     */
+    HTML("render/escape.html") {
+        @Override
+        Object[] renderArgs() {
+            return new Object[]{items(100)};
+        }
+    },
+    /**
+     * Strings full of JSON special characters escaped by the JSON code type
+     */
+    JSON("render/escape.json") {
+        @Override
+        Object[] renderArgs() {
+            return new Object[]{items(100)};
+        }
+    };
+
+    private final String file;
+
+    RenderScenario(String file) {
+        this.file = file;
+    }
+
+    public String file() {
+        return file;
+    }
+
+    abstract Object[] renderArgs();
+
+    static List<String> items(int n) {
+        List<String> items = new ArrayList<String>(n);
+        for (int i = 0; i < n; ++i) {
+            items.add("<item id=\"" + i + "\"> & 'quoted' \\ \"json\"\n\t" + Arrays.toString(new int[]{i, i * i}));
+        }
+        return items;
+    }
+}
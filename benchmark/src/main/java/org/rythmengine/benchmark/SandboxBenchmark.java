@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.benchmark;
+
+/*-
+ * #%L
+ * Rythm Template Engine
+ * %%
+ * Copyright (C) 2017 - 2021 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.openjdk.jmh.annotations.*;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.Sandbox;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the render throughput of a template through the {@link Sandbox}, which
+ * renders in a pooled thread with the security manager installed. The same template
+ * rendered by the engine directly gives the baseline of the sandbox overhead
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class SandboxBenchmark {
+
+    private static final String TEMPLATE = "render/sandbox.html";
+
+    private File home;
+    private RythmEngine engine;
+    private Sandbox sandbox;
+    private List<String> items;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        home = Corpus.install();
+        engine = Corpus.engine(home, Collections.<String, Object>emptyMap());
+        sandbox = engine.sandbox();
+        items = RenderScenario.items(50);
+        // compile the template before measuring
+        sandbox.render(TEMPLATE, items);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.shutdown();
+        Corpus.uninstall(home);
+    }
+
+    @Benchmark
+    public String render() {
+        return engine.render(TEMPLATE, items);
+    }
+
+    @Benchmark
+    public String renderSandbox() {
+        return sandbox.render(TEMPLATE, items);
+    }
+}
@@ -0,0 +1,272 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine;
+
+/*-
+ * #%L
+ * Rythm Template Engine
+ * %%
+ * Copyright (C) 2017 - 2021 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.rythmengine.internal.compiler.TemplateClass;
+import org.rythmengine.template.EmptyTemplate;
+import org.rythmengine.template.ITemplate;
+
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A handle to a template compiled by {@link RythmEngine#prepare(String)}.
+ * <p/>
+ * <p>The handle keeps the template class, so rendering through it does not
+ * look up the template by its source content or path again. A handle is
+ * immutable and can be shared by threads. Each render call creates a new
+ * template instance.</p>
+ * <p/>
+ * <p>Render args are passed the same way as {@link RythmEngine#render(String, Object...)}.
+ * Use {@link #bind(Class)} to pass render args from the properties of
+ * an object instead</p>
+ */
+public final class CompiledTemplate {
+
+    private final RythmEngine engine;
+
+    // null if the template is empty
+    private final TemplateClass templateClass;
+
+    CompiledTemplate(RythmEngine engine, TemplateClass templateClass) {
+        this.engine = engine;
+        this.templateClass = templateClass;
+    }
+
+    /**
+     * Return the engine that compiled the template
+     *
+     * @return the engine
+     */
+    public RythmEngine engine() {
+        return engine;
+    }
+
+    /**
+     * Return a new template instance with render args set
+     *
+     * @param args the render args. See {@link RythmEngine#getTemplate(String, Object...)}
+     * @return the template instance
+     */
+    public ITemplate template(Object... args) {
+        ITemplate t = newTemplate();
+        engine.setRenderArgs(t, args);
+        return t;
+    }
+
+    /**
+     * Render the template with render args and return the result as a String
+     *
+     * @param args the render args
+     * @return the render result
+     */
+    public String render(Object... args) {
+        try {
+            return template(args).render();
+        } finally {
+            RythmEngine.renderCleanUp();
+        }
+    }
+
+    /**
+     * Render the template with render args to a writer
+     *
+     * @param w    the writer
+     * @param args the render args
+     */
+    public void render(Writer w, Object... args) {
+        try {
+            template(args).render(w);
+        } finally {
+            RythmEngine.renderCleanUp();
+        }
+    }
+
+    /**
+     * Render the template with render args to an output stream
+     *
+     * @param os   the output stream
+     * @param args the render args
+     */
+    public void render(OutputStream os, Object... args) {
+        try {
+            template(args).render(os);
+        } finally {
+            RythmEngine.renderCleanUp();
+        }
+    }
+
+    /**
+     * Return a renderer passing the properties of an object as render args by name.
+     * The properties are read through the public getters of the type: <code>getXxx()</code>
+     * and <code>isXxx()</code> are passed as <code>xxx</code>. If the type is a record its
+     * component accessors are used instead and passed by the component name.
+     *
+     * @param type the type of the object holding render args
+     * @param <T>  the type
+     * @return a renderer accepting objects of the type
+     */
+    public <T> Renderer<T> bind(Class<T> type) {
+        return new Renderer<T>(this, type);
+    }
+
+    private ITemplate newTemplate() {
+        if (null == templateClass) return EmptyTemplate.INSTANCE;
+        return templateClass.asTemplate(engine);
+    }
+
+    /**
+     * Render a {@link CompiledTemplate} with render args read from the properties of an object
+     *
+     * @param <T> the type of the object
+     */
+    public static final class Renderer<T> {
+        private final CompiledTemplate template;
+        private final String[] names;
+        private final Method[] getters;
+
+        private Renderer(CompiledTemplate template, Class<T> type) {
+            this.template = template;
+            List<String> nl = new ArrayList<String>();
+            List<Method> ml = new ArrayList<Method>();
+            boolean isRecord = null != type.getSuperclass() && "java.lang.Record".equals(type.getSuperclass().getName());
+            for (Method m : isRecord ? recordAccessors(type) : Arrays.asList(type.getMethods())) {
+                if (Modifier.isStatic(m.getModifiers()) || m.getParameterTypes().length > 0) continue;
+                if (void.class == m.getReturnType() || Object.class == m.getDeclaringClass()) continue;
+                String name = isRecord ? m.getName() : propertyName(m);
+                if (null == name) continue;
+                if (!Modifier.isPublic(type.getModifiers())) {
+                    try {
+                        m.setAccessible(true);
+                    } catch (RuntimeException e) {
+                        continue;
+                    }
+                }
+                nl.add(name);
+                ml.add(m);
+            }
+            this.names = nl.toArray(new String[nl.size()]);
+            this.getters = ml.toArray(new Method[ml.size()]);
+        }
+
+        // the accessors of a record are named after its components, which are
+        // backed by the instance fields of the record class
+        private static List<Method> recordAccessors(Class<?> type) {
+            List<Method> l = new ArrayList<Method>();
+            for (Field f : type.getDeclaredFields()) {
+                if (Modifier.isStatic(f.getModifiers())) continue;
+                try {
+                    l.add(type.getMethod(f.getName()));
+                } catch (NoSuchMethodException e) {
+                    // not a component accessor
+                }
+            }
+            return l;
+        }
+
+        private static String propertyName(Method m) {
+            String mn = m.getName();
+            if (mn.length() > 3 && mn.startsWith("get") && Character.isUpperCase(mn.charAt(3))) {
+                return Character.toLowerCase(mn.charAt(3)) + mn.substring(4);
+            }
+            if (mn.length() > 2 && mn.startsWith("is") && Character.isUpperCase(mn.charAt(2))
+                    && (boolean.class == m.getReturnType() || Boolean.class == m.getReturnType())) {
+                return Character.toLowerCase(mn.charAt(2)) + mn.substring(3);
+            }
+            return null;
+        }
+
+        /**
+         * Return a new template instance with render args read from the object
+         *
+         * @param args the object holding render args
+         * @return the template instance
+         */
+        public ITemplate template(T args) {
+            ITemplate t = template.newTemplate();
+            if (null == args) return t;
+            for (int i = 0; i < getters.length; ++i) {
+                Object val;
+                try {
+                    val = getters[i].invoke(args);
+                } catch (Exception e) {
+                    throw new IllegalArgumentException("Error reading render arg " + names[i] + " from " + args.getClass(), e);
+                }
+                t.__setRenderArg(names[i], val);
+            }
+            return t;
+        }
+
+        /**
+         * Render the template with render args read from the object
+         *
+         * @param args the object holding render args
+         * @return the render result
+         */
+        public String render(T args) {
+            try {
+                return template(args).render();
+            } finally {
+                RythmEngine.renderCleanUp();
+            }
+        }
+
+        /**
+         * Render the template with render args read from the object to a writer
+         *
+         * @param w    the writer
+         * @param args the object holding render args
+         */
+        public void render(Writer w, T args) {
+            try {
+                template(args).render(w);
+            } finally {
+                RythmEngine.renderCleanUp();
+            }
+        }
+
+        /**
+         * Render the template with render args read from the object to an output stream
+         *
+         * @param os   the output stream
+         * @param args the object holding render args
+         */
+        public void render(OutputStream os, T args) {
+            try {
+                template(args).render(os);
+            } finally {
+                RythmEngine.renderCleanUp();
+            }
+        }
+    }
+}
@@ -63,12 +63,21 @@ import osgl.version.Versioned;
 import java.io.*;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * <p>Not Thread Safe</p>
@@ -861,7 +870,7 @@ public class RythmEngine implements IEventDispatcher {
       Rendering methods and APIs
     -------------------------------------------------------------------------------*/
 
-    private void setRenderArgs(ITemplate t, Object... args) {
+    void setRenderArgs(ITemplate t, Object... args) {
         if (null == args) {
             t.__setRenderArg(0, null);
         } else if (1 == args.length) {
@@ -898,27 +907,39 @@ public class RythmEngine implements IEventDispatcher {
 
     //static ThreadLocal<Integer> cceCounter = new ThreadLocal<Integer>();
 
+    /*
+     * Return the key of the template class compiled for the template and the
+     * render arg types. When type inference is enabled the arg types are
+     * registered to the current thread to be picked up by the template class
+     */
+    private String templateKey(String template, Object... args) {
+        if (!conf().typeInferenceEnabled()) {
+            return template;
+        }
+        ParamTypeInferencer.registerParams(this, args);
+        return template + ParamTypeInferencer.uuid();
+    }
+
     private ITemplate getTemplate(IDialect dialect, String template, Object... args) {
+        return getTemplate(null, dialect, template, args);
+    }
+
+    /*
+     * Get a template instance running in the render context specified, or in the
+     * context captured from the render settings of the current thread if it is null
+     */
+    private ITemplate getTemplate(RenderContext ctx, IDialect dialect, String template, Object... args) {
 
         if (S.empty(template)) {
             return EmptyTemplate.INSTANCE;
         }
 
-        boolean typeInferenceEnabled = conf().typeInferenceEnabled();
-        if (typeInferenceEnabled) {
-            ParamTypeInferencer.registerParams(this, args);
-        }
-
-        String key = template;
-        if (typeInferenceEnabled) {
-            key += ParamTypeInferencer.uuid();
-        }
-
+        String key = templateKey(template, args);
         TemplateClass tc = classes().getByTemplate(key);
         if (null == tc) {
             tc = new TemplateClass(template, this, dialect);
         }
-        ITemplate t = tc.asTemplate(this);
+        ITemplate t = null == ctx ? tc.asTemplate(this) : tc.asTemplate(ctx);
         setRenderArgs(t, args);
         return t;
     }
@@ -942,6 +963,71 @@ public class RythmEngine implements IEventDispatcher {
         return getTemplate(null, template, args);
     }
 
+    /**
+     * Parse and compile all templates found by the resource loaders of this engine.
+     * <p/>
+     * <p>Templates are parsed in parallel and compiled in batches, thus an application
+     * could call this method at startup to avoid compiling templates on the first
+     * requests. This is also done automatically when
+     * {@link RythmConfigurationKey#RESOURCE_AUTO_SCAN auto scan} is enabled</p>
+     * <p/>
+     * <p>In {@link RythmConfigurationKey#ENGINE_PRECOMPILE_MODE precompile mode} the compiled
+     * template classes are also written into a single archive file in the
+     * {@link RythmConfigurationKey#HOME_PRECOMPILED precompiled root}, which is loaded by engines
+     * with {@link RythmConfigurationKey#ENGINE_LOAD_PRECOMPILED_ENABLED load precompiled} enabled</p>
+     */
+    public void precompileAll() {
+        resourceManager().scan();
+        if (conf().precompileMode()) {
+            classCache().writeArchive();
+        }
+    }
+
+    /**
+     * Compile a template and return a {@link CompiledTemplate handle} to it. The string
+     * parameter could be either a template file path or the inline template source content.
+     * <p/>
+     * <p>Rendering through the handle skips looking up the template by its
+     * source content or path, thus applications rendering the same template
+     * repeatedly could keep the handle and reuse it. Note
+     * {@link RythmConfigurationKey#FEATURE_TYPE_INFERENCE_ENABLED type inference} is
+     * not applied to templates compiled this way, the template shall declare its
+     * render args</p>
+     *
+     * @param template either the path of template source file or inline template content
+     * @return the compiled template handle
+     */
+    public CompiledTemplate prepare(String template) {
+        if (S.empty(template)) {
+            return new CompiledTemplate(this, null);
+        }
+        TemplateClass tc = classes().getByTemplate(templateKey(template));
+        if (null == tc) {
+            tc = new TemplateClass(template, this);
+        }
+        return new CompiledTemplate(this, tc);
+    }
+
+    /**
+     * Compile a template source file and return a {@link CompiledTemplate handle} to it.
+     *
+     * @param file the template source file
+     * @return the compiled template handle
+     * @see #prepare(String)
+     */
+    public CompiledTemplate prepare(File file) {
+        String key = templateKey(S.str(resourceManager().get(file).getKey()));
+        TemplateClass tc = classes().getByTemplate(key);
+        if (null == tc) {
+            tc = new TemplateClass(file, this);
+            ITemplate t = tc.asTemplate(this);
+            if (null != t) {
+                registerTemplate(tc.getKey(), t);
+            }
+        }
+        return new CompiledTemplate(this, tc);
+    }
+
     /**
      * (3rd party API, not for user application)
      * Get an new template class by {@link org.rythmengine.resource.ITemplateResource template resource}
@@ -953,7 +1039,7 @@ public class RythmEngine implements IEventDispatcher {
         String key = S.str(resource.getKey());
         TemplateClass tc = classes().getByTemplate(key);
         if (null == tc) {
-            tc = new TemplateClass(resource, this);
+            tc = classes().getOrCreate(resource);
         }
         return tc;
     }
@@ -973,22 +1059,14 @@ public class RythmEngine implements IEventDispatcher {
      */
     @SuppressWarnings("unchecked")
     public ITemplate getTemplate(File file, Object... args) {
-        boolean typeInferenceEnabled = conf().typeInferenceEnabled();
-        if (typeInferenceEnabled) {
-            ParamTypeInferencer.registerParams(this, args);
-        }
-
-        String key = S.str(resourceManager().get(file).getKey());
-        if (typeInferenceEnabled) {
-            key += ParamTypeInferencer.uuid();
-        }
+        String key = templateKey(S.str(resourceManager().get(file).getKey()), args);
         TemplateClass tc = classes().getByTemplate(key);
         ITemplate t;
         if (null == tc) {
             tc = new TemplateClass(file, this);
             t = tc.asTemplate(this);
             if (null == t) return null;
-            _templates.put(tc.getKey(), t);
+            registerTemplate(tc.getKey(), t);
             //classes().add(key, tc);
         } else {
             t = tc.asTemplate(this);
@@ -1035,7 +1113,6 @@ public class RythmEngine implements IEventDispatcher {
      * @param args     render args array
      */
     public void render(OutputStream os, String template, Object... args) {
-        outputMode.set(OutputMode.os);
         try {
             ITemplate t = getTemplate(template, args);
             t.render(os);
@@ -1059,7 +1136,6 @@ public class RythmEngine implements IEventDispatcher {
      * @param args     render args array
      */
     public void render(Writer w, String template, Object... args) {
-        outputMode.set(OutputMode.writer);
         try {
             ITemplate t = getTemplate(template, args);
             t.render(w);
@@ -1107,7 +1183,6 @@ public class RythmEngine implements IEventDispatcher {
      * @param args render args array
      */
     public void render(OutputStream os, File file, Object... args) {
-        outputMode.set(OutputMode.os);
         try {
             ITemplate t = getTemplate(file, args);
             t.render(os);
@@ -1129,7 +1204,6 @@ public class RythmEngine implements IEventDispatcher {
      * @param args render args array
      */
     public void render(Writer w, File file, Object... args) {
-        outputMode.set(OutputMode.writer);
         try {
             ITemplate t = getTemplate(file, args);
             t.render(w);
@@ -1138,6 +1212,231 @@ public class RythmEngine implements IEventDispatcher {
         }
     }
 
+    /**
+     * Render template by string parameter and an array of
+     * template args. The string parameter could be either
+     * a path point to the template source file, or the inline
+     * template source content. The render result is output
+     * to the specified binary channel
+     * <p/>
+     * <p>See {@link #getTemplate(java.io.File, Object...)} for note on
+     * render args</p>
+     *
+     * @param channel  the channel, which must be in blocking mode
+     * @param template either the path of template source file or inline template content
+     * @param args     render args array
+     * @throws IllegalArgumentException if the channel is in non-blocking mode
+     */
+    public void render(WritableByteChannel channel, String template, Object... args) {
+        try {
+            ITemplate t = getTemplate(template, args);
+            t.render(channel);
+        } finally {
+            renderCleanUp();
+        }
+    }
+
+    /**
+     * Render template with source specified by {@link java.io.File file instance}
+     * and an array of render args. Render result output into the specified binary
+     * channel
+     * <p/>
+     * <p>See {@link #getTemplate(java.io.File, Object...)} for note on
+     * render args</p>
+     *
+     * @param channel the channel, which must be in blocking mode
+     * @param file    the template source file
+     * @param args    render args array
+     * @throws IllegalArgumentException if the channel is in non-blocking mode
+     */
+    public void render(WritableByteChannel channel, File file, Object... args) {
+        try {
+            ITemplate t = getTemplate(file, args);
+            t.render(channel);
+        } finally {
+            renderCleanUp();
+        }
+    }
+
+    /**
+     * Render template by string parameter and an array of
+     * template args. The string parameter could be either
+     * a path point to the template source file, or the inline
+     * template source content. The render result is put
+     * into the specified byte buffer starting from its current
+     * position
+     * <p/>
+     * <p>See {@link #getTemplate(java.io.File, Object...)} for note on
+     * render args</p>
+     *
+     * @param buffer   the byte buffer
+     * @param template either the path of template source file or inline template content
+     * @param args     render args array
+     * @throws java.nio.BufferOverflowException if the result does not fit in the buffer, in
+     *                                          which case the buffer position is left unchanged
+     */
+    public void render(ByteBuffer buffer, String template, Object... args) {
+        render(new ByteBuffer[]{buffer}, template, args);
+    }
+
+    /**
+     * Render template by string parameter and an array of
+     * template args. The string parameter could be either
+     * a path point to the template source file, or the inline
+     * template source content. The render result is put
+     * into the specified byte buffers one after another
+     * <p/>
+     * <p>See {@link #getTemplate(java.io.File, Object...)} for note on
+     * render args</p>
+     *
+     * @param buffers  the byte buffers
+     * @param template either the path of template source file or inline template content
+     * @param args     render args array
+     * @throws java.nio.BufferOverflowException if the result does not fit in the buffers, in
+     *                                          which case the buffer positions are left unchanged
+     */
+    public void render(ByteBuffer[] buffers, String template, Object... args) {
+        try {
+            ITemplate t = getTemplate(template, args);
+            t.render(buffers);
+        } finally {
+            renderCleanUp();
+        }
+    }
+
+    // -- Asynchronous render
+
+    private Executor _renderExecutor = null;
+    private ExecutorService _defRenderExecutor = null;
+
+    private static class RenderThreadFactory extends RythmThreadFactory {
+        private RenderThreadFactory() {
+            super("rythm-render");
+        }
+    }
+
+    /**
+     * Return the executor used to run asynchronous render. If no executor is
+     * configured with {@link RythmConfigurationKey#RENDER_EXECUTOR_IMPL} then
+     * a cached thread pool is created on first call
+     *
+     * @return the render executor
+     */
+    public synchronized Executor renderExecutor() {
+        if (null == _renderExecutor) {
+            Executor executor = conf().get(RythmConfigurationKey.RENDER_EXECUTOR_IMPL);
+            if (null == executor) {
+                _defRenderExecutor = Executors.newCachedThreadPool(new RenderThreadFactory());
+                executor = _defRenderExecutor;
+            }
+            _renderExecutor = executor;
+        }
+        return _renderExecutor;
+    }
+
+    /*
+     * Run the render job on the executor. The job renders templates created in
+     * a render context detached from the calling thread, thus the render settings
+     * of the executor thread are neither used nor cleared
+     */
+    private <T> CompletableFuture<T> async(Executor executor, final Callable<T> job) {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        future.complete(job.call());
+                    } catch (Throwable e) {
+                        future.completeExceptionally(e);
+                    } finally {
+                        renderCleanUp();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Render template asynchronously on the {@link #renderExecutor() render executor}.
+     * The {@link RenderSettings render settings} of the calling thread, i.e. code type,
+     * locale and user context, are applied to the render
+     * <p/>
+     * <p>See {@link #render(String, Object...)}</p>
+     *
+     * @param template either the path of template source file or inline template content
+     * @param args     render args array
+     * @return a future completed with the render result
+     */
+    public CompletableFuture<String> renderAsync(String template, Object... args) {
+        return renderAsync(renderExecutor(), template, args);
+    }
+
+    /**
+     * Render template asynchronously on the executor specified
+     * <p/>
+     * <p>See {@link #renderAsync(String, Object...)}</p>
+     *
+     * @param executor the executor to run the render
+     * @param template either the path of template source file or inline template content
+     * @param args     render args array
+     * @return a future completed with the render result
+     */
+    public CompletableFuture<String> renderAsync(Executor executor, final String template, final Object... args) {
+        final RenderContext ctx = RenderContext.detach(this);
+        return async(executor, new Callable<String>() {
+            @Override
+            public String call() {
+                return getTemplate(ctx, null, template, args).render();
+            }
+        });
+    }
+
+    /**
+     * Render template asynchronously into the output stream specified
+     * <p/>
+     * <p>See {@link #renderAsync(String, Object...)}</p>
+     *
+     * @param os       the output stream
+     * @param template either the path of template source file or inline template content
+     * @param args     render args array
+     * @return a future completed when the render result has been written
+     */
+    public CompletableFuture<Void> renderAsync(final OutputStream os, final String template, final Object... args) {
+        final RenderContext ctx = RenderContext.detach(this);
+        return async(renderExecutor(), new Callable<Void>() {
+            @Override
+            public Void call() {
+                getTemplate(ctx, null, template, args).render(os);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Render template asynchronously into the writer specified
+     * <p/>
+     * <p>See {@link #renderAsync(String, Object...)}</p>
+     *
+     * @param w        the writer
+     * @param template either the path of template source file or inline template content
+     * @param args     render args array
+     * @return a future completed when the render result has been written
+     */
+    public CompletableFuture<Void> renderAsync(final Writer w, final String template, final Object... args) {
+        final RenderContext ctx = RenderContext.detach(this);
+        return async(renderExecutor(), new Callable<Void>() {
+            @Override
+            public Void call() {
+                getTemplate(ctx, null, template, args).render(w);
+                return null;
+            }
+        });
+    }
+
     /**
      * Render template by string typed inline template content and an array of
      * template args. The render result is returned as a String
@@ -1194,14 +1493,7 @@ public class RythmEngine implements IEventDispatcher {
      */
     @SuppressWarnings("unchecked")
     public String renderString(String key, String template, Object... args) {
-        boolean typeInferenceEnabled = conf().typeInferenceEnabled();
-        if (typeInferenceEnabled) {
-            ParamTypeInferencer.registerParams(this, args);
-        }
-
-        if (typeInferenceEnabled) {
-            key += ParamTypeInferencer.uuid();
-        }
+        key = templateKey(key, args);
         try {
             TemplateClass tc = classes().getByTemplate(key, false);
             if (null == tc) {
@@ -1391,18 +1683,10 @@ public class RythmEngine implements IEventDispatcher {
      * @return render result
      */
     public String renderIfTemplateExists(String template, Object... args) {
-        boolean typeInferenceEnabled = conf().typeInferenceEnabled();
-        if (typeInferenceEnabled) {
-            ParamTypeInferencer.registerParams(this, args);
-        }
+        String key = templateKey(template, args);
 
         if (nonExistsTemplates.contains(template)) return "";
 
-        String key = template;
-        if (typeInferenceEnabled) {
-            key += ParamTypeInferencer.uuid();
-        }
-
         try {
             TemplateClass tc = classes().getByTemplate(template);
             if (null == tc) {
@@ -1525,6 +1809,28 @@ public class RythmEngine implements IEventDispatcher {
         classes().add(tc);
         return this;
     }
+
+    /**
+     * Remove the template of a template class from the registry and drop the
+     * template class from the extend relationships
+     * <p/>
+     * <p>Not an API for user application</p>
+     *
+     * @param tc
+     */
+    public void unregisterTemplateClass(TemplateClass tc) {
+        String name = tc.getTagName();
+        if (S.isEmpty(name)) {
+            name = tc.getKey();
+        }
+        ITemplate t = _templates.get(name);
+        if (null != t && ((TemplateBase) t).__getTemplateClass(false) == tc) {
+            _templates.remove(name, t);
+        }
+        for (Set<TemplateClass> children : extendMap.values()) {
+            children.remove(tc);
+        }
+    }
     
     /**
      * Transport Template Test Result
@@ -1646,7 +1952,9 @@ public class RythmEngine implements IEventDispatcher {
     }
 
     public void registerFastTag(JavaTagBase tag) {
-        _tags.put(tag.__getName(), tag);
+        if (tag != _tags.put(tag.__getName(), tag)) {
+            _tagVersion.incrementAndGet();
+        }
     }
 
     /**
@@ -1680,7 +1988,9 @@ public class RythmEngine implements IEventDispatcher {
 //        if (_templates.containsKey(name)) {
 //            return false;
 //        }
-        _templates.put(name, template);
+        if (template != _templates.put(name, template)) {
+            _tagVersion.incrementAndGet();
+        }
         return;
     }
 
@@ -1702,6 +2012,13 @@ public class RythmEngine implements IEventDispatcher {
 
     private Set<String> _nonExistsTags = new CopyOnWriteArraySet<String>();
 
+    /**
+     * Bumped whenever tag resolution might change, i.e. a tag is registered or
+     * a template class is reloaded, so that {@link TagCallSite resolved call sites}
+     * are resolved again on their next invocation
+     */
+    private final AtomicInteger _tagVersion = new AtomicInteger();
+
     /**
      * Invoke a tag
      * <p/>
@@ -1716,81 +2033,27 @@ public class RythmEngine implements IEventDispatcher {
      * @param ignoreNonExistsTag
      */
     public void invokeTemplate(int line, String name, ITemplate caller, ITag.__ParameterList params, ITag.__Body body, ITag.__Body context, boolean ignoreNonExistsTag) {
-        if (_nonExistsTags.contains(name)) return;
+        TemplateClass callerClass = caller.__getTemplateClass(true);
+        TagCallSite site = null == callerClass ? null : callerClass.tagCallSites.get(name);
+        if (null == site && _nonExistsTags.contains(name)) return;
 
         Sandbox.enterSafeZone(secureCode);
         RythmEvents.ENTER_INVOKE_TEMPLATE.trigger(this, (TemplateBase) caller);
         try {
-            // try tag registry first
-            ITemplate t = _tags.get(name);
-            if (null == t) {
-                t = _templates.get(name);
-            }
-            if (null == t && S.isEqual(name, caller.__getName())) {
-                // is calling self
-                t = caller;
-            }
-
-            if (null == t) {
-                // try imported path
-                TemplateClass tc = caller.__getTemplateClass(true);
-                if (null != tc.importPaths) {
-                    for (String s : tc.importPaths) {
-                        if (s.startsWith("java")) {
-                            continue;
-                        }
-                        String name0 = s + "." + name;
-                        t = _tags.get(name0);
-                        if (null == t) t = _templates.get(name0);
-                        if (null != t) break;
-                    }
-                }
-
-                // try relative path
-                if (null == t) {
-                    String callerName = tc.getTagName();
-                    int pos = -1;
-                    if (null != callerName) pos = callerName.lastIndexOf(".");
-                    if (-1 != pos) {
-                        String name0 = callerName.substring(0, pos) + "." + name;
-                        t = _tags.get(name0);
-                        if (null == t) t = _templates.get(name0);
-                    }
+            ITemplate t = null;
+            if (null != site) {
+                TemplateClass tc0 = site.templateClass();
+                if (null != tc0 && !isProdMode()) {
+                    // detect template change, might reload the tag and invalidate the site
+                    classes().getByClassName(tc0.name());
                 }
-
-                // try load the tag from resource
-                if (null == t) {
-                    tc = resourceManager().tryLoadTemplate(name, tc, caller.__curCodeType());
-                    if (null != tc) t = _templates.get(tc.getTagName());
-                    if (null == t) {
-                        if (ignoreNonExistsTag) {
-                            if (logger.isDebugEnabled()) {
-                                logger.debug("cannot find tag: " + name);
-                            }
-                            _nonExistsTags.add(name);
-                            if (isDevMode() && nonExistsTemplatesChecker == null) {
-                                nonExistsTemplatesChecker = new NonExistsTemplatesChecker();
-                            }
-                            return;
-                        } else {
-                            throw new NullPointerException("cannot find tag: " + name);
-                        }
-                    }
-                    t = t.__cloneMe(this, caller);
+                if (site.isValid(_tagVersion.get())) {
+                    t = site.newInstance(caller, this);
                 }
             }
-
-            if (!(t instanceof JavaTagBase)) {
-                // try refresh the tag loaded from template file under tag root
-                // note Java source tags are not reloaded here
-                String cn = t.getClass().getName();
-                TemplateClass tc0 = classes().getByClassName(cn);
-                if (null == tc0) {
-                    throw new NullPointerException(String.format("null tc0 found. t.class: %s, name: %s, caller.class: %s", cn, name, caller.getClass()));
-                }
-                t = tc0.asTemplate(caller, this);
-            } else {
-                t = t.__cloneMe(this, caller);
+            if (null == t) {
+                t = resolveTag(name, caller, callerClass, ignoreNonExistsTag);
+                if (null == t) return;
             }
 
             if (null != params) {
@@ -1832,6 +2095,97 @@ public class RythmEngine implements IEventDispatcher {
         }
     }
 
+    /**
+     * Resolve the tag invoked by name from the caller and record the resolution
+     * in the caller class' tag call sites
+     *
+     * @return a new tag instance to be invoked, or {@code null} if the tag
+     * does not exist and {@code ignoreNonExistsTag} is {@code true}
+     */
+    private ITemplate resolveTag(String name, ITemplate caller, TemplateClass callerClass, boolean ignoreNonExistsTag) {
+        int version = _tagVersion.get();
+        boolean loaded = false;
+
+        // try tag registry first
+        ITemplate t = _tags.get(name);
+        if (null == t) {
+            t = _templates.get(name);
+        }
+        if (null == t && S.isEqual(name, caller.__getName())) {
+            // is calling self
+            t = caller;
+        }
+
+        if (null == t) {
+            // try imported path
+            TemplateClass tc = callerClass;
+            if (null != tc.importPaths) {
+                for (String s : tc.importPaths) {
+                    if (s.startsWith("java")) {
+                        continue;
+                    }
+                    String name0 = s + "." + name;
+                    t = _tags.get(name0);
+                    if (null == t) t = _templates.get(name0);
+                    if (null != t) break;
+                }
+            }
+
+            // try relative path
+            if (null == t) {
+                String callerName = tc.getTagName();
+                int pos = -1;
+                if (null != callerName) pos = callerName.lastIndexOf(".");
+                if (-1 != pos) {
+                    String name0 = callerName.substring(0, pos) + "." + name;
+                    t = _tags.get(name0);
+                    if (null == t) t = _templates.get(name0);
+                }
+            }
+
+            // try load the tag from resource
+            if (null == t) {
+                tc = resourceManager().tryLoadTemplate(name, tc, caller.__curCodeType());
+                if (null != tc) t = _templates.get(tc.getTagName());
+                if (null == t) {
+                    if (ignoreNonExistsTag) {
+                        if (logger.isDebugEnabled()) {
+                            logger.debug("cannot find tag: " + name);
+                        }
+                        _nonExistsTags.add(name);
+                        if (isDevMode() && nonExistsTemplatesChecker == null) {
+                            nonExistsTemplatesChecker = new NonExistsTemplatesChecker();
+                        }
+                        return null;
+                    } else {
+                        throw new NullPointerException("cannot find tag: " + name);
+                    }
+                }
+                t = t.__cloneMe(this, caller);
+                // the tag is registered now, next call will resolve it from the registry
+                loaded = true;
+            }
+        }
+
+        TagCallSite site;
+        if (!(t instanceof JavaTagBase)) {
+            // try refresh the tag loaded from template file under tag root
+            // note Java source tags are not reloaded here
+            String cn = t.getClass().getName();
+            TemplateClass tc0 = classes().getByClassName(cn);
+            if (null == tc0) {
+                throw new NullPointerException(String.format("null tc0 found. t.class: %s, name: %s, caller.class: %s", cn, name, caller.getClass()));
+            }
+            site = new TagCallSite(version, tc0);
+        } else {
+            site = new TagCallSite(version, (JavaTagBase) t);
+        }
+        if (!loaded && null != callerClass) {
+            callerClass.tagCallSites.put(name, site);
+        }
+        return site.newInstance(caller, this);
+    }
+
     // -- cache api
 
     /**
@@ -1940,6 +2294,7 @@ public class RythmEngine implements IEventDispatcher {
      */
     // called to invalidate all template class which extends the parent
     public void invalidate(TemplateClass parent) {
+        _tagVersion.incrementAndGet();
         if (mode().isProd()) return;
         Set<TemplateClass> children = extendMap.get(parent);
         if (null == children) return;
@@ -2049,13 +2404,6 @@ public class RythmEngine implements IEventDispatcher {
         }
     }
 
-    private final static InheritableThreadLocal<OutputMode> outputMode = new InheritableThreadLocal<OutputMode>() {
-        @Override
-        protected OutputMode initialValue() {
-            return OutputMode.str;
-        }
-    };
-
     /**
      * Valid Suffixes
      */
@@ -2075,13 +2423,15 @@ public class RythmEngine implements IEventDispatcher {
      * Not an API.
      *
      * @return output mode
+     * @deprecated the generated template class is the same for all output modes,
+     * this always returns {@link OutputMode#os}
      */
+    @Deprecated
     public static OutputMode outputMode() {
-        return outputMode.get();
+        return OutputMode.os;
     }
 
     public static void renderCleanUp() {
-        outputMode.remove();
         TemplateResourceManager.cleanUpTmplBlackList();
     }
 
@@ -2111,6 +2461,7 @@ public class RythmEngine implements IEventDispatcher {
     private void restart() {
         if (isProdMode()) return;
         _classLoader = new TemplateClassLoader(this);
+        _tagVersion.incrementAndGet();
         //_classes.clear();
 
         // clear all template tags which is managed by TemplateClassManager
@@ -2160,6 +2511,13 @@ public class RythmEngine implements IEventDispatcher {
                 logger.error(e, "Error shutdown secure executor");
             }
         }
+        if (null != _defRenderExecutor) {
+            try {
+                _defRenderExecutor.shutdown();
+            } catch (Exception e) {
+                logger.error(e, "Error shutdown render executor");
+            }
+        }
         if (null != _resourceManager) {
             try {
                 _resourceManager.shutdown();
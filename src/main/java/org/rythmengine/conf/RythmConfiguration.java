@@ -39,6 +39,7 @@ import java.io.InputStreamReader;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.charset.Charset;
 import java.util.*;
 
 import static org.rythmengine.conf.RythmConfigurationKey.*;
@@ -346,6 +347,41 @@ public class RythmConfiguration {
         return _debugJavaSourceEnabled;
     }
 
+    private Boolean _outputBufferPoolEnabled = null;
+
+    /**
+     * Get {@link RythmConfigurationKey#ENGINE_OUTPUT_BUFFER_POOL_ENABLED} without lookup
+     *
+     * @return true if output buffer pool is enabled
+     */
+    public boolean outputBufferPoolEnabled() {
+        if (null == _outputBufferPoolEnabled) {
+            _outputBufferPoolEnabled = (Boolean) get(ENGINE_OUTPUT_BUFFER_POOL_ENABLED);
+        }
+        return _outputBufferPoolEnabled;
+    }
+
+    private Charset _outputCharset = null;
+
+    /**
+     * Get {@link RythmConfigurationKey#ENGINE_OUTPUT_CHARSET} without lookup
+     *
+     * @return the charset to encode binary output
+     */
+    public Charset outputCharset() {
+        if (null == _outputCharset) {
+            Object o = get(ENGINE_OUTPUT_CHARSET);
+            if (null == o) {
+                _outputCharset = Charset.defaultCharset();
+            } else if (o instanceof Charset) {
+                _outputCharset = (Charset) o;
+            } else {
+                _outputCharset = Charset.forName(o.toString());
+            }
+        }
+        return _outputCharset;
+    }
+
     private Boolean _cacheEnabled = null;
 
     /**
@@ -415,6 +451,34 @@ public class RythmConfiguration {
         return _compactEnabled;
     }
 
+    private Integer _inlineTagSize = null;
+
+    /**
+     * Return {@link RythmConfigurationKey#CODEGEN_INLINE_TAG_SIZE} without look up
+     *
+     * @return the maximum source size of a tag to be inlined into the caller
+     */
+    public int inlineTagSize() {
+        if (null == _inlineTagSize) {
+            _inlineTagSize = get(CODEGEN_INLINE_TAG_SIZE);
+        }
+        return _inlineTagSize;
+    }
+
+    private Integer _inlineTemplateCacheSize = null;
+
+    /**
+     * Return {@link RythmConfigurationKey#ENGINE_INLINE_TEMPLATE_CACHE_SIZE} without look up
+     *
+     * @return the maximum number of inline template classes kept by the engine
+     */
+    public int inlineTemplateCacheSize() {
+        if (null == _inlineTemplateCacheSize) {
+            _inlineTemplateCacheSize = get(ENGINE_INLINE_TEMPLATE_CACHE_SIZE);
+        }
+        return _inlineTemplateCacheSize;
+    }
+
     private IDurationParser _durationParser = null;
 
     /**
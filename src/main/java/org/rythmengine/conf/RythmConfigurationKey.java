@@ -134,6 +134,16 @@ public enum RythmConfigurationKey {
      */
     CODEGEN_COMPACT_ENABLED("codegen.compact.enabled", true),
 
+    /**
+     * "codegen.inline_tag.size": Set the maximum size in characters of a tag template source
+     * that can be inlined into the caller template. Only tags consist of plain text and
+     * expressions of the tag arguments are inlined. Set to <code>0</code> to disable tag
+     * inlining. A tag can opt out with <code>@__noInline__()</code>
+     * <p/>
+     * <p>Default value: <code>256</code></p>
+     */
+    CODEGEN_INLINE_TAG_SIZE("codegen.inline_tag.size", 256),
+
     /**
      * "codegen.source_code_enhancer.impl": Set template
      * {@link org.rythmengine.extension.ISourceCodeEnhancer source code enhancer}
@@ -261,6 +271,16 @@ public enum RythmConfigurationKey {
      */
     ENGINE_GAE_ENABLED("engine.gae.enabled", false),
 
+    /**
+     * "engine.inline_template_cache.size": Set the maximum number of inline template classes, i.e.
+     * templates rendered from source content instead of a template file, kept by the engine. When
+     * the limit is reached the least recently used inline template classes are dropped and their
+     * class loader could be garbage collected. Set to <code>0</code> to keep all of them
+     * <p/>
+     * <p>Default value: <code>1024</code></p>
+     */
+    ENGINE_INLINE_TEMPLATE_CACHE_SIZE("engine.inline_template_cache.size", 1024),
+
     /**
      * "engine.precompile_mode.enabled": Set/unset precompile mode. This option is used by play-rythm plugin (could also
      * be other plugin) to notify rythm that is is doing a precompile. User application
@@ -287,6 +307,26 @@ public enum RythmConfigurationKey {
     
     ENGINE_OUTPUT_JAVA_SOURCE_ENABLED("engine.debug_java_source.enabled", false),
 
+    /**
+     * "engine.output_buffer_pool.enabled": Enable/disable recycling of template output buffers. When enabled,
+     * the <code>StringBuilder</code> used by a template instance is returned to a per-thread pool once
+     * {@link org.rythmengine.template.ITemplate#render()} has produced its result, and is reused by the
+     * next template instance created on the same thread. The template instance must not be used to
+     * fetch the output again after rendering when this option is turned on.
+     * <p/>
+     * <p>Default value: <code>false</code></p>
+     */
+    ENGINE_OUTPUT_BUFFER_POOL_ENABLED("engine.output_buffer_pool.enabled", false),
+
+    /**
+     * "engine.output.charset": Set the charset used to encode template output when rendering
+     * to a binary {@link java.io.OutputStream}. The value could be either a charset name or
+     * a {@link java.nio.charset.Charset} instance
+     * <p/>
+     * <p>Default value: <code>null</code>, meaning use the platform default charset</p>
+     */
+    ENGINE_OUTPUT_CHARSET("engine.output.charset"),
+
     /**
      * "engine.playframework.enabled": A special flag used when Rythm is working with rythm-plugin for Play!Framework. Usually
      * you should not touch this setting.
@@ -540,6 +580,16 @@ public enum RythmConfigurationKey {
      */
     RENDER_EXCEPTION_HANDLER("render.exception_handler.impl"),
 
+    /**
+     * "render.executor.impl": Set the {@link java.util.concurrent.Executor} used to run
+     * {@link org.rythmengine.RythmEngine#renderAsync(String, Object...) asynchronous render}.
+     * The value could be an executor instance, e.g. a virtual-thread-per-task executor, or the
+     * name of an executor class with public default constructor
+     * <p>Default value: <code>null</code>. When no executor is configured, the engine creates
+     * a cached thread pool of daemon threads on the first asynchronous render</p>
+     */
+    RENDER_EXECUTOR_IMPL("render.executor.impl"),
+
     /**
      * `resource_bundle.encoding` specifies the encoding to load
      * resource bundle.
@@ -86,6 +86,7 @@ public class AutoToStringCodeBuilder extends CodeBuilder {
         parse();
         pImports();
         pClassOpen();
+        pNewInstance();
         pRenderArgs();
         pSetup();
         pBuild();
@@ -0,0 +1,352 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.internal;
+
+/*-
+ * #%L
+ * Rythm Template Engine
+ * %%
+ * Copyright (C) 2017 - 2021 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayDeque;
+
+/**
+ * Encode template output into a binary target, which could be an {@link OutputStream},
+ * a {@link WritableByteChannel} or an array of caller supplied {@link ByteBuffer}.
+ * <p/>
+ * <p>Characters are staged in a fixed char buffer and encoded with a reused
+ * {@link CharsetEncoder} into a fixed byte buffer, which is written to the
+ * target whenever it fills up. Appending a string, a primitive value or
+ * a pre-encoded byte array does not allocate.</p>
+ * <p/>
+ * <p>Instances are kept in a small per-thread pool, see {@link #acquire(OutputStream, Charset)}
+ * and {@link #release(ByteOutputEncoder)}</p>
+ * <p/>
+ * <p>Not an API for user application</p>
+ */
+public class ByteOutputEncoder implements Appendable {
+
+    public static final int CHAR_BUFFER_SIZE = 1024;
+
+    public static final int BYTE_BUFFER_SIZE = 8192;
+
+    private static final int MAX_POOLED = 4;
+
+    private static final ThreadLocal<ArrayDeque<ByteOutputEncoder>> pool = new ThreadLocal<ArrayDeque<ByteOutputEncoder>>() {
+        @Override
+        protected ArrayDeque<ByteOutputEncoder> initialValue() {
+            return new ArrayDeque<ByteOutputEncoder>(MAX_POOLED);
+        }
+    };
+
+    private final Charset charset;
+    private final CharsetEncoder encoder;
+    private final CharBuffer cb = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+    private final ByteBuffer bb = ByteBuffer.allocate(BYTE_BUFFER_SIZE);
+    private final StringBuilder scratch = new StringBuilder(32);
+    private OutputStream os;
+    private WritableByteChannel ch;
+    private ByteBuffer[] targets;
+    private int curTarget;
+
+    private ByteOutputEncoder(Charset charset) {
+        this.charset = charset;
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /**
+     * Get an encoder writing to the output stream in the specified charset. An
+     * encoder released earlier on the current thread is reused if possible
+     *
+     * @param os      the output stream
+     * @param charset the charset, <code>null</code> for the platform default charset
+     * @return an encoder
+     */
+    public static ByteOutputEncoder acquire(OutputStream os, Charset charset) {
+        ByteOutputEncoder enc = acquire(charset);
+        enc.os = os;
+        return enc;
+    }
+
+    /**
+     * Get an encoder writing to the channel in the specified charset. The channel
+     * must be in blocking mode
+     *
+     * @param ch      the channel
+     * @param charset the charset, <code>null</code> for the platform default charset
+     * @return an encoder
+     * @see #acquire(java.io.OutputStream, java.nio.charset.Charset)
+     */
+    public static ByteOutputEncoder acquire(WritableByteChannel ch, Charset charset) {
+        ByteOutputEncoder enc = acquire(charset);
+        enc.ch = ch;
+        return enc;
+    }
+
+    /**
+     * Get an encoder writing into the byte buffers in the specified charset. The buffers
+     * are filled one after another starting from their current positions. A
+     * {@link BufferOverflowException} is raised if the output does not fit in the buffers
+     *
+     * @param targets the byte buffers
+     * @param charset the charset, <code>null</code> for the platform default charset
+     * @return an encoder
+     * @see #acquire(java.io.OutputStream, java.nio.charset.Charset)
+     */
+    public static ByteOutputEncoder acquire(ByteBuffer[] targets, Charset charset) {
+        ByteOutputEncoder enc = acquire(charset);
+        enc.targets = targets;
+        enc.curTarget = 0;
+        return enc;
+    }
+
+    private static ByteOutputEncoder acquire(Charset charset) {
+        if (null == charset) charset = Charset.defaultCharset();
+        ByteOutputEncoder enc = pool.get().pollLast();
+        if (null == enc || !enc.charset.equals(charset)) {
+            enc = new ByteOutputEncoder(charset);
+        }
+        return enc;
+    }
+
+    /**
+     * Return an encoder to the pool of the current thread. Pending output that
+     * has not been {@link #finish() finished} is discarded
+     *
+     * @param enc the encoder
+     */
+    public static void release(ByteOutputEncoder enc) {
+        enc.os = null;
+        enc.ch = null;
+        enc.targets = null;
+        enc.cb.clear();
+        enc.bb.clear();
+        enc.encoder.reset();
+        ArrayDeque<ByteOutputEncoder> q = pool.get();
+        if (q.size() < MAX_POOLED) {
+            q.addLast(enc);
+        }
+    }
+
+    public Charset charset() {
+        return charset;
+    }
+
+    public void write(String s) throws IOException {
+        write(s, 0, s.length());
+    }
+
+    /**
+     * Write a portion of a string
+     *
+     * @param s   the string
+     * @param off the offset of the first character to write
+     * @param len the number of characters to write
+     * @throws IOException
+     */
+    public void write(String s, int off, int len) throws IOException {
+        int end = off + len;
+        while (off < end) {
+            if (!cb.hasRemaining()) encodeChars(false);
+            int n = Math.min(cb.remaining(), end - off);
+            int pos = cb.position();
+            s.getChars(off, off + n, cb.array(), cb.arrayOffset() + pos);
+            cb.position(pos + n);
+            off += n;
+        }
+    }
+
+    public void write(CharSequence s) throws IOException {
+        if (s instanceof String) {
+            write((String) s);
+            return;
+        }
+        for (int i = 0, len = s.length(); i < len; ++i) {
+            write(s.charAt(i));
+        }
+    }
+
+    public void write(char c) throws IOException {
+        if (!cb.hasRemaining()) encodeChars(false);
+        cb.put(c);
+    }
+
+    @Override
+    public ByteOutputEncoder append(CharSequence csq) throws IOException {
+        write(null == csq ? "null" : csq);
+        return this;
+    }
+
+    @Override
+    public ByteOutputEncoder append(CharSequence csq, int start, int end) throws IOException {
+        if (null == csq) csq = "null";
+        if (csq instanceof String) {
+            write((String) csq, start, end - start);
+        } else {
+            for (int i = start; i < end; ++i) {
+                write(csq.charAt(i));
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public ByteOutputEncoder append(char c) throws IOException {
+        write(c);
+        return this;
+    }
+
+    public void write(int i) throws IOException {
+        scratch.setLength(0);
+        writeScratch(scratch.append(i));
+    }
+
+    public void write(long l) throws IOException {
+        scratch.setLength(0);
+        writeScratch(scratch.append(l));
+    }
+
+    public void write(float f) throws IOException {
+        scratch.setLength(0);
+        writeScratch(scratch.append(f));
+    }
+
+    public void write(double d) throws IOException {
+        scratch.setLength(0);
+        writeScratch(scratch.append(d));
+    }
+
+    public void write(boolean b) throws IOException {
+        write(b ? "true" : "false");
+    }
+
+    /**
+     * Write bytes that have already been encoded in the charset of this encoder
+     *
+     * @param ba the bytes
+     * @throws IOException
+     */
+    public void write(byte[] ba) throws IOException {
+        write(ba, 0, ba.length);
+    }
+
+    /**
+     * Write bytes that have already been encoded in the charset of this encoder
+     *
+     * @param ba  the byte array
+     * @param off the start offset in the array
+     * @param len the number of bytes to write
+     * @throws IOException
+     */
+    public void write(byte[] ba, int off, int len) throws IOException {
+        if (cb.position() > 0) encodeChars(true);
+        if (len > bb.remaining()) {
+            flushBytes();
+            if (len >= bb.capacity()) {
+                writeBytes(ba, off, len);
+                return;
+            }
+        }
+        bb.put(ba, off, len);
+    }
+
+    /**
+     * Encode all pending characters and write all pending bytes to the target.
+     * Note the output stream or channel itself is not flushed
+     *
+     * @throws IOException
+     */
+    public void finish() throws IOException {
+        encodeChars(true);
+        flushBytes();
+    }
+
+    private void writeScratch(StringBuilder sb) throws IOException {
+        int len = sb.length();
+        if (cb.remaining() < len) encodeChars(false);
+        int pos = cb.position();
+        sb.getChars(0, len, cb.array(), cb.arrayOffset() + pos);
+        cb.position(pos + len);
+    }
+
+    private void encodeChars(boolean endOfInput) throws IOException {
+        cb.flip();
+        while (encoder.encode(cb, bb, endOfInput).isOverflow()) {
+            flushBytes();
+        }
+        if (endOfInput) {
+            while (encoder.flush(bb).isOverflow()) {
+                flushBytes();
+            }
+            encoder.reset();
+        }
+        cb.compact();
+    }
+
+    private void flushBytes() throws IOException {
+        int len = bb.position();
+        if (len > 0) {
+            writeBytes(bb.array(), bb.arrayOffset(), len);
+            bb.clear();
+        }
+    }
+
+    private void writeBytes(byte[] ba, int off, int len) throws IOException {
+        if (null != os) {
+            os.write(ba, off, len);
+        } else if (null != ch) {
+            ByteBuffer src = ba == bb.array() ? (ByteBuffer) bb.flip() : ByteBuffer.wrap(ba, off, len);
+            while (src.hasRemaining()) {
+                if (0 == ch.write(src) && ch instanceof SelectableChannel && !((SelectableChannel) ch).isBlocking()) {
+                    // do not spin on a channel switched to non-blocking mode
+                    throw new IOException("Cannot write to a non-blocking channel");
+                }
+            }
+        } else {
+            ByteBuffer[] targets = this.targets;
+            while (len > 0) {
+                if (curTarget >= targets.length) {
+                    throw new BufferOverflowException();
+                }
+                ByteBuffer target = targets[curTarget];
+                int n = Math.min(len, target.remaining());
+                if (0 == n) {
+                    curTarget++;
+                    continue;
+                }
+                target.put(ba, off, n);
+                off += n;
+                len -= n;
+            }
+        }
+    }
+}
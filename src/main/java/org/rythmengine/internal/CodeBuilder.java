@@ -44,11 +44,13 @@ import org.rythmengine.internal.parser.CodeToken;
 import org.rythmengine.internal.parser.NotRythmTemplateException;
 import org.rythmengine.internal.parser.build_in.BlockToken;
 import org.rythmengine.internal.parser.build_in.CompactStateToken;
+import org.rythmengine.internal.parser.build_in.ExpressionParser;
 import org.rythmengine.internal.parser.build_in.InvokeTemplateParser;
 import org.rythmengine.logger.ILogger;
 import org.rythmengine.logger.Logger;
 import org.rythmengine.resource.ITemplateResource;
 import org.rythmengine.resource.StringTemplateResource;
+import org.rythmengine.template.ITemplate;
 import org.rythmengine.template.JavaTagBase;
 import org.rythmengine.template.TagBase;
 import org.rythmengine.template.TemplateBase;
@@ -60,6 +62,7 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.regex.Pattern;
 
 /**
  * code Builder
@@ -351,9 +354,12 @@ public class CodeBuilder extends TextBuilder {
         this.inlineTagBodies.clear();
         this.importLineMap.clear();
         this.logTime = false;
+        this.noInline = false;
         this.macros.clear();
         this.macroStack.clear();
         this.buildBody = null;
+        this.inlineBody = null;
+        this.inlinedTags.clear();
         this.templateDefLang = null;
         this.staticCodes.clear();
     }
@@ -377,9 +383,12 @@ public class CodeBuilder extends TextBuilder {
         this.inlineTagBodies.clear();
         this.importLineMap.clear();
         this.logTime = false;
+        this.noInline = false;
         this.macros.clear();
         this.macroStack.clear();
         this.buildBody = null;
+        this.inlineBody = null;
+        this.inlinedTags.clear();
         this.staticCodes.clear();
     }
 
@@ -555,6 +564,115 @@ public class CodeBuilder extends TextBuilder {
         return tag;
     }
 
+    /**
+     * A tag inlined into this template. The tag body is generated as a private
+     * method of this template class with the tag arguments as parameters
+     */
+    private static class InlinedTag {
+        String methodName;
+        List<RenderArgDeclaration> args;
+        List<Token> builders = new ArrayList<Token>();
+
+        InlinedTag(String methodName, List<RenderArgDeclaration> args) {
+            this.methodName = methodName;
+            this.args = args;
+        }
+    }
+
+    private Map<String, InlinedTag> inlinedTags = new LinkedHashMap<String, InlinedTag>();
+
+    /**
+     * Try to inline the tag into this template.
+     *
+     * <p>A tag can be inlined if its template consists of plain text and expressions
+     * only, see {@link RythmConfigurationKey#CODEGEN_INLINE_TAG_SIZE}, and the invocation
+     * passes a value for every tag argument</p>
+     *
+     * @param tagName the full name of the tag
+     * @param params the parameters of the tag invocation
+     * @return the code calling the inlined tag, or {@code null} if the tag cannot be inlined
+     */
+    public String inlineTag(String tagName, InvokeTemplateParser.ParameterDeclarationList params) {
+        if (conf.inlineTagSize() <= 0) return null;
+        ITemplate t = engine.getRegisteredTemplate(tagName);
+        if (!(t instanceof TemplateBase) || t instanceof JavaTagBase) return null;
+        TemplateClass tc = ((TemplateBase) t).__getTemplateClass(false);
+        if (null == tc || tc == templateClass) return null;
+        CodeBuilder cb = tc.codeBuilder;
+        if (null == cb || null == cb.inlineBody) return null;
+
+        // bind invocation parameters to tag arguments
+        List<RenderArgDeclaration> args = new ArrayList<RenderArgDeclaration>(cb.renderArgs.values());
+        List<InvokeTemplateParser.ParameterDeclaration> pl = params.pl;
+        if (pl.size() != args.size()) return null;
+        String[] vals = new String[args.size()];
+        for (int i = 0; i < pl.size(); ++i) {
+            InvokeTemplateParser.ParameterDeclaration pd = pl.get(i);
+            if (S.empty(pd.valDef)) return null;
+            int pos = -1;
+            if (S.empty(pd.nameDef)) {
+                pos = i;
+            } else {
+                for (int j = 0; j < args.size(); ++j) {
+                    if (args.get(j).name.equals(pd.nameDef)) {
+                        pos = j;
+                        break;
+                    }
+                }
+            }
+            if (-1 == pos || null != vals[pos]) return null;
+            vals[pos] = pd.valDef;
+        }
+
+        InlinedTag tag = inlinedTags.get(tagName);
+        if (null == tag) {
+            String methodName = "__inlined" + inlinedTags.size() + "_" + tagName.replaceAll("[^a-zA-Z0-9_]", "_");
+            tag = new InlinedTag(methodName, args);
+            for (Token tk : cb.inlineBody) {
+                if (tk instanceof Token.StringToken) {
+                    tag.builders.add(new Token.StringToken(tk.s, parser, !tk.compactMode()));
+                } else {
+                    tag.builders.add(new CodeToken(tk.s, parser));
+                }
+            }
+            inlinedTags.put(tagName, tag);
+            imports.addAll(cb.imports);
+            // make sure this template get recompiled when the inlined tag changed
+            templateClass.addIncludeTemplateClass(tc);
+        }
+
+        StringBuilder sb = new StringBuilder(tag.methodName).append("(");
+        for (int i = 0; i < vals.length; ++i) {
+            if (i > 0) sb.append(", ");
+            sb.append("__safeCast(").append(vals[i]).append(", ").append(args.get(i).objectType()).append(".class)");
+        }
+        return sb.append(");").toString();
+    }
+
+    private static final Pattern P_INLINE_UNSAFE = Pattern.compile(".*(__|_body|\\bthis\\b|\\bsuper\\b).*", Pattern.DOTALL);
+
+    /*
+     * Check if this template could be inlined into the caller as a tag, i.e.
+     * it contains only plain text and expressions
+     */
+    private boolean inlinable() {
+        if (noInline || logTime || null == tagName) return false;
+        if (tmpl.length() > conf.inlineTagSize()) return false;
+        if (null != extended || !S.empty(initCode) || !S.empty(finalCode)) return false;
+        if (!inlineTags.isEmpty() || !inlineClasses.isEmpty() || !macros.isEmpty() || !staticCodes.isEmpty()) return false;
+        for (RenderArgDeclaration arg : renderArgs.values()) {
+            // the tag field would be initialized with the default value
+            if (!S.isEqual(arg.defVal, RenderArgDeclaration.defVal(arg.type))) return false;
+        }
+        for (Token tk : builders) {
+            if (tk == Token.EMPTY_TOKEN || tk == Token.EMPTY_TOKEN2 || tk instanceof IDirective) continue;
+            if (tk instanceof Token.StringToken || tk instanceof BlockToken.LiteralBlock) continue;
+            if (tk instanceof ExpressionParser.ExpressionToken && !P_INLINE_UNSAFE.matcher(tk.s).matches()) continue;
+            return false;
+        }
+        return true;
+    }
+
     public void endTag(InlineTag tag) {
         if (inlineTagBodies.isEmpty())
             throw new ParseException(engine, templateClass, parser.currentLine(), "Unexpected tag definition close");
@@ -657,7 +775,7 @@ public class CodeBuilder extends TextBuilder {
             if (null == tc) {
                 ITemplateResource resource = engine.resourceManager().getResource(extended);
                 if (resource.isValid()) {
-                    tc = new TemplateClass(resource, engine);
+                    tc = engine.classes().getOrCreate(resource);
                 }
             }
         }
@@ -670,7 +788,7 @@ public class CodeBuilder extends TextBuilder {
             tc = engine.classes().getByTemplate(origin);
             if (null == tc) {
                 ITemplateResource resource = engine.resourceManager().getResource(origin);
-                if (resource.isValid()) tc = new TemplateClass(resource, engine);
+                if (resource.isValid()) tc = engine.classes().getOrCreate(resource);
             }
         }
         if (null == tc) {
@@ -690,6 +808,12 @@ public class CodeBuilder extends TextBuilder {
         logTime = true;
     }
 
+    protected boolean noInline = false;
+
+    public void setNoInline() {
+        noInline = true;
+    }
+
     public String getRenderArgType(String name) {
         addInferencedRenderArgs();
         RenderArgDeclaration rad = renderArgs.get(name);
@@ -737,6 +861,30 @@ public class CodeBuilder extends TextBuilder {
         return macros.containsKey(macro);
     }
 
+    public boolean hasMacros() {
+        return !macros.isEmpty();
+    }
+
+    private int dynaExpCount = 0;
+
+    /**
+     * Record an expression evaluated dynamically via <code>__eval</code>, which looks
+     * up loop variables by name. Called by parsers at parse time
+     */
+    public void addDynaExp() {
+        dynaExpCount++;
+    }
+
+    /**
+     * Return the number of dynamic expressions parsed so far. A loop compares the
+     * count at its opening and closing to find out if its body has any
+     *
+     * @see #addDynaExp()
+     */
+    public int dynaExpCount() {
+        return dynaExpCount;
+    }
+
     public List<Token> getMacro(String macro) {
         List<Token> list = this.macros.get(macro);
         if (null == list) throw new NullPointerException();
@@ -893,6 +1041,7 @@ public class CodeBuilder extends TextBuilder {
             pImports();
             pClassOpen();
             pTagImpl();
+            pNewInstance();
             pInitCode();
             pSetup();
             if (!simpleTemplate()) pExtendInitArgCode();
@@ -900,6 +1049,7 @@ public class CodeBuilder extends TextBuilder {
             pStaticCodes();
             pInlineClasses();
             pInlineTags();
+            pInlinedTags();
             pBuild();
             pFinalCode();
             RythmEvents.ON_CLOSING_JAVA_CLASS.trigger(engine, this);
@@ -1093,21 +1243,87 @@ public class CodeBuilder extends TextBuilder {
         p2tn("return __m;");
         ptn("}");
 
-        // -- output __setRenderArgs method
-        pn();
-        ptn("@SuppressWarnings(\"unchecked\")\n\tpublic TemplateBase __setRenderArgs(java.util.Map<java.lang.String, java.lang.Object> __args) {");
-        p2tn("if (null == __args) throw new NullPointerException();\n\t\tif (__args.isEmpty()) return this;");
-        p2tn("super.__setRenderArgs(__args);");
-        first = true;
-        for (Map.Entry<String, RenderArgDeclaration> entry : renderArgs.entrySet()) {
-            RenderArgDeclaration arg = entry.getValue();
-            p2t("if (__args.containsKey(\"").p(entry.getKey()).p("\")) this.").p(entry.getKey()).p(" = __get(__args,\"").p(entry.getKey()).p("\",").p(arg.objectType()).pn(".class);");
+        // -- output render arg slots. Declared args are bound by name through
+        //    the static slot name array instead of being kept in the render arg map.
+        //    The bound flags tell explicitly passed args from field defaults
+        if (!renderArgList.isEmpty()) {
+            int argSz = renderArgList.size();
+            pn();
+            pt("private static final java.lang.String[] __ARG_NAMES = {");
+            first = true;
+            for (RenderArgDeclaration arg : renderArgList) {
+                if (first) {
+                    first = false;
+                } else {
+                    p(", ");
+                }
+                p("\"").p(arg.name).p("\"");
+            }
+            pn("};");
+            pt("private static final java.lang.Class[] __ARG_TYPES = {");
+            first = true;
+            for (RenderArgDeclaration arg : renderArgList) {
+                if (first) {
+                    first = false;
+                } else {
+                    p(", ");
+                }
+                String type = toNonGeneric(arg.type);
+                p("?".equals(type) ? "Object" : type).p(".class");
+            }
+            pn("};");
+            for (int i = 0; i < argSz; i += 64) {
+                pt("private long __argBound").p(i / 64).pn(";");
+            }
+
+            pn();
+            ptn("@SuppressWarnings(\"unchecked\") protected boolean __bindRenderArg(java.lang.String __name, java.lang.Object __arg) {");
+            p2tn("int __slot = __argSlot(__ARG_NAMES, __name);");
+            p2tn("if (__slot < 0) return super.__bindRenderArg(__name, __arg);");
+            p2tn("switch (__slot) {");
+            for (int i = 0; i < argSz; ++i) {
+                RenderArgDeclaration arg = renderArgList.get(i);
+                p2t("case ").p(i).p(": this.").p(arg.name).p(" = __safeCast(__arg, ").p(arg.objectType()).p(".class); __argBound").p(i / 64).p(" |= 1L << ").p(i % 64).pn("; break;");
+            }
+            p2tn("}");
+            p2tn("return true;");
+            ptn("}");
+
+            pn();
+            ptn("protected java.lang.Object __renderArg(java.lang.String __name) {");
+            p2tn("switch (__argSlot(__ARG_NAMES, __name)) {");
+            for (int i = 0; i < argSz; ++i) {
+                RenderArgDeclaration arg = renderArgList.get(i);
+                p2t("case ").p(i).p(": if (").p(argBoundTest(i)).p(") return this.").p(arg.name).pn("; break;");
+            }
+            p2tn("}");
+            p2tn("return super.__renderArg(__name);");
+            ptn("}");
+
+            pn();
+            ptn("protected java.lang.Class __renderArgType(java.lang.String __name) {");
+            p2tn("int __slot = __argSlot(__ARG_NAMES, __name);");
+            p2tn("return __slot < 0 ? super.__renderArgType(__name) : __ARG_TYPES[__slot];");
+            ptn("}");
+
+            pn();
+            ptn("protected void __passRenderArgs(org.rythmengine.template.TemplateBase __callee) {");
+            p2tn("super.__passRenderArgs(__callee);");
+            for (int i = 0; i < argSz; ++i) {
+                RenderArgDeclaration arg = renderArgList.get(i);
+                p2t("if (").p(argBoundTest(i)).p(") __passRenderArg(__callee, \"").p(arg.name).p("\", this.").p(arg.name).pn(");");
+            }
+            ptn("}");
+
+            pn();
+            ptn("protected void __collectRenderArgs(java.util.Map<java.lang.String, java.lang.Object> __m) {");
+            p2tn("super.__collectRenderArgs(__m);");
+            for (int i = 0; i < argSz; ++i) {
+                RenderArgDeclaration arg = renderArgList.get(i);
+                p2t("if (").p(argBoundTest(i)).p(") __m.put(\"").p(arg.name).p("\", this.").p(arg.name).pn(");");
+            }
+            ptn("}");
         }
-        p2tn("return this;");
-//        for (String argName : renderArgs.keySet()) {
-//            p2t("System.err.println(\"").p(argName).p("=\" + this.").p(argName).pn(");");
-//        }
-        ptn("}");
 
         ISourceCodeEnhancer ce = engine.conf().get(RythmConfigurationKey.CODEGEN_SOURCE_CODE_ENHANCER);
         Map<String, ?> map = null == ce ? null : ce.getRenderArgDescriptions();
@@ -1124,7 +1340,8 @@ public class CodeBuilder extends TextBuilder {
                     if (implicitVarNames.contains(arg.name)) {
                         continue;
                     }
-                    p2t("if (__p < __l) { \n\t\t\tObject v = __args[__p++]; if (null != v) {\n\t\t\t").p(arg.name).p(" = __safeCast(v, ").p(arg.objectType()).p(".class); \n\t\t\t__renderArgs.put(\"").p(arg.name).p("\",").p(arg.name).p(");\n\t\t}}\n");
+                    int slot = renderArgList.indexOf(arg);
+                    p2t("if (__p < __l) { \n\t\t\tjava.lang.Object __v = __args[__p++]; if (null != __v) {\n\t\t\tthis.").p(arg.name).p(" = __safeCast(__v, ").p(arg.objectType()).p(".class); __argBound").p(slot / 64).p(" |= 1L << ").p(slot % 64).p(";\n\t\t}}\n");
                     if (--i == 0) break;
                 }
             }
@@ -1149,24 +1366,6 @@ public class CodeBuilder extends TextBuilder {
             ptn("}");
         }
 
-        // -- output __setRenderArg by name
-        pn();
-        ptn("@SuppressWarnings(\"unchecked\") @Override public TemplateBase __setRenderArg(java.lang.String __name, java.lang.Object __arg) {");
-        if (true) {
-            first = true;
-            for (RenderArgDeclaration arg : renderArgList) {
-                if (first) {
-                    first = false;
-                    p2t("");
-                } else {
-                    p2t("else ");
-                }
-                String argName = arg.name;
-                p("if (\"").p(argName).p("\".equals(__name)) this.").p(argName).p(" = __safeCast(__arg, ").p(arg.objectType()).pn(".class);");
-            }
-        }
-        p2t("super.__setRenderArg(__name, __arg);\n\t\treturn this;\n\t}\n");
-
         // -- output __setRenderArg by position
         pn();
         ptn("@SuppressWarnings(\"unchecked\") public TemplateBase __setRenderArg(int __pos, java.lang.Object __arg) {");
@@ -1177,13 +1376,14 @@ public class CodeBuilder extends TextBuilder {
                 if (implicitVarNames.contains(arg.name)) {
                     continue;
                 }
+                int slot = renderArgList.indexOf(arg);
                 if (first) {
                     first = false;
                     p2t("");
                 } else {
                     p2t("else ");
                 }
-                p2t("if (__p++ == __pos) { \n\t\t\tObject v = __arg; \n\t\t\t").p(arg.name).p(" = __safeCast(v, ").p(arg.objectType()).p(".class); \n\t\t\t__renderArgs.put(\"").p(arg.name).p("\", ").p(arg.name).p(");\n\t\t}\n"); 
+                p2t("if (__p++ == __pos) { \n\t\t\tthis.").p(arg.name).p(" = __safeCast(__arg, ").p(arg.objectType()).p(".class); __argBound").p(slot / 64).p(" |= 1L << ").p(slot % 64).p(";\n\t\t}\n");
             }
         }
         // the first argument has a default name "arg"
@@ -1192,6 +1392,11 @@ public class CodeBuilder extends TextBuilder {
         ptn("}");
     }
 
+    // the expression testing if the render arg at slot has been bound
+    private static String argBoundTest(int slot) {
+        return "0L != (__argBound" + (slot / 64) + " & (1L << " + (slot % 64) + "))";
+    }
+
     protected void pExtendInitArgCode() {
         if (null == extendArgs || extendArgs.pl.size() < 1) return;
         pn();
@@ -1244,22 +1449,49 @@ public class CodeBuilder extends TextBuilder {
         pt("public java.lang.String __getName() {\n\t\treturn \"").p(tagName).p("\";\n\t}\n");
     }
 
+    /*
+     * Let the runtime create template instances through the constructor
+     * instead of cloning the registered template instance
+     */
+    protected void pNewInstance() {
+        pn();
+        pt("protected org.rythmengine.template.TemplateBase __newInstance() {\n\t\treturn new ").p(cName).p("();\n\t}\n");
+    }
+
     public String buildBody = null;
 
+    /*
+     * The build body kept for inlining this tag into the caller templates. Contains
+     * string tokens for plain text and code tokens for the generated code
+     */
+    private List<Token> inlineBody = null;
+
+    private static final Pattern P_LINE_NO = Pattern.compile("//\\s*line:\\s*[0-9]+");
+
     transient Map<Token.StringToken, String> consts = new ConcurrentHashMap<Token.StringToken, String>();
 
-    private RythmEngine.OutputMode outputMode = RythmEngine.outputMode();
+    /*
+     * Each const takes about 20 bytes of the static initializer, which must
+     * stay within the 64KB method size limit
+     */
+    private static final int MAX_CONSTS = 2000;
 
     private Token.StringToken addConst(Token.StringToken st) {
-        if (!outputMode.writeOutput()) return st;
+        // the body of an included template is pasted into the including class,
+        // which does not declare the consts of this builder
+        if (null != includingCName) return st;
         if (consts.containsKey(st)) {
+            st.freezeCompactMode();
             st.constId = consts.get(st);
             return st;
-        } else {
+        } else if (consts.size() < MAX_CONSTS) {
+            st.freezeCompactMode();
             String id = this.newVarName();
             st.constId = id;
             consts.put(st, id);
             return st;
+        } else {
+            return st;
         }
     }
 
@@ -1324,6 +1556,36 @@ public class CodeBuilder extends TextBuilder {
         }
     }
 
+    protected void pInlinedTags() {
+        for (InlinedTag tag : inlinedTags.values()) {
+            pn();
+            pt("private void ").p(tag.methodName).p("(");
+            for (int i = 0; i < tag.args.size(); ++i) {
+                RenderArgDeclaration arg = tag.args.get(i);
+                if (i > 0) p(", ");
+                p(arg.type).p(" ").p(arg.name);
+            }
+            pn(") {");
+            for (RenderArgDeclaration arg : tag.args) {
+                p2t("if (__isDefVal(").p(arg.name).p(")) {");
+                p(arg.name).p(" = __get(\"").p(arg.name).p("\",").p(arg.objectType()).p(".class) ;}\n");
+            }
+            // the tag starts with the default escape of the current code type
+            p2tn("__ctx.pushEscape(__ctx.currentCodeType().escape());");
+            p2tn("try {");
+            for (Token tk : tag.builders) {
+                if (tk instanceof Token.StringToken) {
+                    addConst((Token.StringToken) tk);
+                }
+                tk.build();
+            }
+            p2tn("} finally {");
+            p3tn("__ctx.popEscape();");
+            p2tn("}");
+            ptn("}");
+        }
+    }
+
     protected void pStaticCodes() {
         pn();
         for (String codeSnippet : staticCodes) {
@@ -1348,20 +1610,42 @@ public class CodeBuilder extends TextBuilder {
         __setBuffer(sb);
         // try merge strings
         List<Token> merged = mergeStringTokens(this.builders);
+        List<Token> inlineBody = inlinable() ? new ArrayList<Token>() : null;
         for (Token b : merged) {
+            int pos = sb.length();
             b.build();
+            if (null == inlineBody) continue;
+            if (b instanceof Token.StringToken) {
+                inlineBody.add(b);
+            } else {
+                // line numbers are given by the caller
+                String code = P_LINE_NO.matcher(sb.substring(pos)).replaceAll("").trim();
+                if (code.length() > 0) inlineBody.add(new CodeToken(code, parser));
+            }
         }
+        this.inlineBody = inlineBody;
         buildBody = sb.toString();
         __setBuffer(old);
         p(buildBody);
         p("\n\t\treturn this;\n\t}\n");
 
         // print out consts
+        if (!consts.isEmpty()) {
+            pConstSlab();
+        }
         for (Token.StringToken st : consts.keySet()) {
             pConst(st);
         }
     }
 
+    /*
+     * The consts are encoded in the output charset into one byte array on the first binary render
+     */
+    private void pConstSlab() {
+        String charset = engine().conf().outputCharset().name();
+        np("private static final org.rythmengine.utils.TextBuilder.StrBuf.Slab __constSlab = new org.rythmengine.utils.TextBuilder.StrBuf.Slab(\"").p(charset).pn("\");");
+    }
+
     private void pConst(Token.StringToken st) {
         String constId = st.constId;
         String s = st.s(), s0;
@@ -1370,21 +1654,8 @@ public class CodeBuilder extends TextBuilder {
         } else {
             s0 = s.replaceAll("(\\r?\\n)", "\\\\n").replaceAll("\"", "\\\\\"");
         }
-        np("private static final org.rythmengine.utils.TextBuilder.StrBuf ").p(constId).p(" = new org.rythmengine.utils.TextBuilder.StrBuf(\"").p(s0);
-        StrBuf sw = new StrBuf(s);
-        if (outputMode == RythmEngine.OutputMode.os) {
-            p("\", new byte[]{");
-            byte[] ba = sw.toBinary();
-            for (int i = 0; i < ba.length; ++i) {
-                p(String.valueOf(ba[i]));
-                if (i < ba.length - 1) p(",");
-            }
-            p("});");
-        } else if (outputMode == RythmEngine.OutputMode.writer) {
-            p("\", null);");
-        } else {
-            throw new AssertionError("should not go here");
-        }
+        // the binary form is encoded with the slab, see pConstSlab()
+        np("private static final org.rythmengine.utils.TextBuilder.StrBuf ").p(constId).p(" = new org.rythmengine.utils.TextBuilder.StrBuf(\"").p(s0).p("\", __constSlab);");
         p("// line:").pn(st.getLineNo());
     }
 
@@ -255,7 +255,9 @@ public class EventBus implements IEventDispatcher {
         m.put(RythmEvents.RENDERED, new IEventHandler<Void, ITemplate>() {
             @Override
             public Void handleEvent(RythmEngine engine, ITemplate template) {
-                engine.renderSettings.clear();
+                if (!(template instanceof TemplateBase) || ((TemplateBase) template).__renderContext().ownsSettings()) {
+                    engine.renderSettings.clear();
+                }
                 Rythm.RenderTime.clear();
                 renderListener.rendered(template);
                 return null;
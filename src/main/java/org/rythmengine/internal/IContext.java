@@ -48,6 +48,13 @@ public interface IContext {
      */
     String getRemain();
 
+    /**
+     * Return the remaining template source as a view without copying it
+     *
+     * @return a view of the remaining text to be parsed
+     */
+    TemplateSourceView getRemainView();
+
     /**
      * Do have have remain template content to be parsed
      *
@@ -135,6 +135,10 @@ public enum Keyword implements IKeyword {
      * For no compact in regard to engine.conf().compactEnabled()
      */
     NOCOMPACT,
+    /**
+     * Instruct that this tag shall not be inlined into the caller template
+     */
+    NO_INLINE("__noInline__"),
     /**
      * Indicate this is not a SIM template
      */
@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.internal;
+
+/*-
+ * #%L
+ * Rythm Template Engine
+ * %%
+ * Copyright (C) 2017 - 2021 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayDeque;
+
+/**
+ * A per-thread pool of <code>StringBuilder</code> used as template output buffers.
+ * <p/>
+ * <p>Each thread keeps a small stack of builders so that nested tag calls on the
+ * same thread can all be served from the pool. Builders grown beyond
+ * {@link #MAX_RETAINED_CAPACITY} are dropped instead of being recycled so that
+ * one huge render does not pin its memory forever.</p>
+ * <p/>
+ * <p>Not an API for user application</p>
+ */
+public class OutputBufferPool {
+
+    /**
+     * Maximum number of builders kept per thread
+     */
+    public static final int MAX_POOLED = 8;
+
+    /**
+     * Builders with capacity larger than this (in chars) are not recycled
+     */
+    public static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+    private static final ThreadLocal<ArrayDeque<StringBuilder>> pool = new ThreadLocal<ArrayDeque<StringBuilder>>() {
+        @Override
+        protected ArrayDeque<StringBuilder> initialValue() {
+            return new ArrayDeque<StringBuilder>(MAX_POOLED);
+        }
+    };
+
+    private OutputBufferPool() {}
+
+    /**
+     * Return an empty builder with at least the specified capacity. A recycled builder
+     * is used when one is available on the current thread
+     *
+     * @param capacity the expected capacity
+     * @return an empty <code>StringBuilder</code>
+     */
+    public static StringBuilder acquire(int capacity) {
+        StringBuilder sb = pool.get().pollLast();
+        if (null == sb) {
+            return new StringBuilder(Math.max(16, capacity));
+        }
+        sb.ensureCapacity(capacity);
+        return sb;
+    }
+
+    /**
+     * Return a builder to the pool of the current thread. The caller must not use
+     * the builder after it is released
+     *
+     * @param sb the builder
+     */
+    public static void release(StringBuilder sb) {
+        if (null == sb || sb.capacity() > MAX_RETAINED_CAPACITY) {
+            return;
+        }
+        ArrayDeque<StringBuilder> q = pool.get();
+        if (q.size() < MAX_POOLED) {
+            sb.setLength(0);
+            q.addLast(sb);
+        }
+    }
+}
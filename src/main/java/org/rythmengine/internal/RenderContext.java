@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.internal;
+
+/*-
+ * #%L
+ * Rythm Template Engine
+ * %%
+ * Copyright (C) 2017 - 2021 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.rythmengine.RythmEngine;
+import org.rythmengine.extension.ICodeType;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The environment of one render operation: the engine, code type, locale and user context.
+ * <p/>
+ * <p>A render context is created once for the root template of a render, and then handed
+ * over from caller to callee template instances, so tags and included templates do not
+ * need to look up the {@link org.rythmengine.RythmEngine.RenderSettings thread local
+ * render settings}. Those settings remain the source of the context when the root
+ * template is created without an explicit context</p>
+ * <p/>
+ * <p>Not an API for user application</p>
+ */
+public final class RenderContext {
+
+    private final RythmEngine engine;
+    private final ICodeType codeType;
+    private final Locale locale;
+    private final Map<String, Object> userContext;
+    // true if the render settings of the rendering thread are consumed by this context
+    private final boolean ownsSettings;
+
+    public RenderContext(RythmEngine engine, ICodeType codeType, Locale locale, Map<String, Object> userContext) {
+        this(engine, codeType, locale, userContext, false);
+    }
+
+    private RenderContext(RythmEngine engine, ICodeType codeType, Locale locale, Map<String, Object> userContext, boolean ownsSettings) {
+        if (null == engine) throw new NullPointerException();
+        this.engine = engine;
+        this.codeType = codeType;
+        this.locale = locale;
+        this.userContext = userContext;
+        this.ownsSettings = ownsSettings;
+    }
+
+    /**
+     * Create a render context from the render settings of the current thread. The
+     * settings are cleared once the render is done
+     *
+     * @param engine the engine
+     * @return the render context
+     */
+    public static RenderContext capture(RythmEngine engine) {
+        RythmEngine.RenderSettings settings = engine.renderSettings;
+        return new RenderContext(engine, settings.codeType(), settings.locale(), settings.userContext(), true);
+    }
+
+    /**
+     * Create a render context from the render settings of the current thread for a
+     * render running on another thread. The render neither reads nor clears the
+     * settings of the thread it runs on
+     *
+     * @param engine the engine
+     * @return the render context
+     */
+    public static RenderContext detach(RythmEngine engine) {
+        RythmEngine.RenderSettings settings = engine.renderSettings;
+        return new RenderContext(engine, settings.codeType(), settings.locale(), settings.userContext(), false);
+    }
+
+    public RythmEngine engine() {
+        return engine;
+    }
+
+    /**
+     * @return the code type, or <code>null</code> if the template's own code type shall be used
+     */
+    public ICodeType codeType() {
+        return codeType;
+    }
+
+    public Locale locale() {
+        return locale;
+    }
+
+    public Map<String, Object> userContext() {
+        return userContext;
+    }
+
+    /**
+     * @return <code>true</code> if the render settings of the rendering thread shall be
+     * cleared once the render is done
+     */
+    public boolean ownsSettings() {
+        return ownsSettings;
+    }
+}
@@ -145,20 +145,11 @@ public class TemplateBuilder extends TextBuilder {
             if (null == escape) {
                 escape = __defaultEscape();
             }
-            switch (escape) {
-                case RAW:
-                    return (TemplateBuilder) p(S.raw(o));
-                case HTML:
-                    return (TemplateBuilder) p(S.escapeHtml(o));
-                case JSON:
-                    return (TemplateBuilder) p(S.escapeJson(o));
-                case JS:
-                    return (TemplateBuilder) p(S.escapeJavaScript(o));
-                case CSV:
-                    return (TemplateBuilder) p(S.escapeCsv(o));
-                case XML:
-                    return (TemplateBuilder) p(S.escapeXml(o));
+            if (Escape.RAW == escape) {
+                return (TemplateBuilder) p(S.raw(o));
             }
+            // escape into the output directly
+            return (TemplateBuilder) __pe(o.toString(), escape);
         }
         return this;
     }
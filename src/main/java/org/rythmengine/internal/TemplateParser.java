@@ -38,6 +38,7 @@ import org.rythmengine.logger.ILogger;
 import org.rythmengine.logger.Logger;
 import org.rythmengine.resource.TemplateResourceManager;
 
+import java.util.Arrays;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.Locale;
@@ -51,11 +52,17 @@ public class TemplateParser implements IContext {
     private final boolean compactMode;
     private String template;
     private int totalLines;
+    // positions of line breaks in the template source
+    private int[] lineBreaks;
     int cursor = 0;
+    // remaining template source cached for the cursor position
+    private String remain;
+    private int remainCursor = -1;
 
     public TemplateParser(CodeBuilder cb) {
         this.template = cb.template();
         totalLines = StringUtils.countMatches(template, "\n") + 1;
+        lineBreaks = lineBreaks(template);
         this.cb = cb;
         this.engine = cb.engine();
         this.conf = this.engine.conf();
@@ -157,7 +164,16 @@ public class TemplateParser implements IContext {
 
     @Override
     public String getRemain() {
-        return cursor < template.length() ? template.substring(cursor) : "";
+        if (remainCursor != cursor) {
+            remain = cursor < template.length() ? template.substring(cursor) : "";
+            remainCursor = cursor;
+        }
+        return remain;
+    }
+
+    @Override
+    public TemplateSourceView getRemainView() {
+        return new TemplateSourceView(template, cursor);
     }
 
     @Override
@@ -231,7 +247,22 @@ public class TemplateParser implements IContext {
         if (null == template) return -1; // for testing purpose only
         if (cursor >= template.length()) return totalLines;
         //return template.substring(0, cursor).split("(\\r\\n|\\n|\\r)").length;
-        return StringUtils.countMatches(template.substring(0, cursor), "\n") + 1;
+        // number of line breaks before cursor plus one
+        int pos = Arrays.binarySearch(lineBreaks, cursor);
+        return (pos < 0 ? -pos - 1 : pos) + 1;
+    }
+
+    private static int[] lineBreaks(String s) {
+        int n = 0;
+        for (int i = s.indexOf('\n'); i > -1; i = s.indexOf('\n', i + 1)) {
+            n++;
+        }
+        int[] a = new int[n];
+        n = 0;
+        for (int i = s.indexOf('\n'); i > -1; i = s.indexOf('\n', i + 1)) {
+            a[n++] = i;
+        }
+        return a;
     }
 
     @Override
@@ -422,6 +453,7 @@ public class TemplateParser implements IContext {
     private TemplateParser(String s) {
         template = s;
         totalLines = template.split("(\\r\\n|\\n|\\r)").length + 1;
+        lineBreaks = lineBreaks(template);
         cb = null;
         engine = null;
         conf = null;
@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.internal;
+
+/*-
+ * #%L
+ * Rythm Template Engine
+ * %%
+ * Copyright (C) 2017 - 2021 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.stevesoft.pat.BasicStringBufferLike;
+import com.stevesoft.pat.StringLike;
+import com.stevesoft.pat.wrap.StringBufferWrap;
+
+/**
+ * A view of the template source from an offset to the end. It could be matched by
+ * both <code>java.util.regex</code> and <code>com.stevesoft.pat</code> regular
+ * expressions without copying the remaining template source
+ */
+public final class TemplateSourceView implements CharSequence, StringLike {
+
+    private final String source;
+    private final int offset;
+
+    public TemplateSourceView(String source, int offset) {
+        this.source = source;
+        this.offset = Math.min(offset, source.length());
+    }
+
+    @Override
+    public int length() {
+        return source.length() - offset;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return source.charAt(offset + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return source.substring(offset + start, offset + end);
+    }
+
+    @Override
+    public String substring(int start, int end) {
+        return source.substring(offset + start, offset + end);
+    }
+
+    @Override
+    public int indexOf(char c) {
+        int pos = source.indexOf(c, offset);
+        return -1 == pos ? -1 : pos - offset;
+    }
+
+    public boolean startsWith(String prefix) {
+        return source.startsWith(prefix, offset);
+    }
+
+    @Override
+    public Object unwrap() {
+        return this;
+    }
+
+    @Override
+    public BasicStringBufferLike newStringBufferLike() {
+        return new StringBufferWrap();
+    }
+
+    @Override
+    public String toString() {
+        return source.substring(offset);
+    }
+}
@@ -49,6 +49,9 @@ public class Token extends TextBuilder {
 
     public static class StringToken extends Token {
         public String constId = null;
+        // compact mode at the time the token is turned into a const, which is
+        // printed after the compact state of the build has been restored
+        private Boolean constCompactMode = null;
 
         public StringToken(String s, IContext ctx) {
             super(s, ctx);
@@ -85,6 +88,15 @@ public class Token extends TextBuilder {
             return line;
         }
 
+        void freezeCompactMode() {
+            constCompactMode = compactMode();
+        }
+
+        @Override
+        protected boolean compactMode() {
+            return null == constCompactMode ? super.compactMode() : constCompactMode;
+        }
+
         public String s() {
             return s;
         }
@@ -96,13 +108,11 @@ public class Token extends TextBuilder {
 
         @Override
         protected void output() {
-            RythmEngine.OutputMode mode = RythmEngine.outputMode();
-            if (mode.writeOutput()) {
-                if (null == constId) return;
+            if (null == constId) {
+                super.output();
+            } else {
                 p("p(").p(constId).p(");");
                 pline();
-            } else {
-                super.output();
             }
         }
 
@@ -231,11 +241,13 @@ public class Token extends TextBuilder {
         try {
             if (S.isEmpty(s))
                 return s;
-            if (R_.search(s)) {
-                // strip out the outer brackets
-                s = R_.stringMatched();
-                s = s.substring(1);
-                s = s.substring(0, s.length() - 1);
+            synchronized (R_) {
+                if (R_.search(s)) {
+                    // strip out the outer brackets
+                    s = R_.stringMatched();
+                    s = s.substring(1);
+                    s = s.substring(0, s.length() - 1);
+                }
             }
         } catch (RuntimeException re) {
             // this unfortunately happens - so at least make it debuggable
@@ -301,6 +313,18 @@ public class Token extends TextBuilder {
         return "__eval(\"" + S.escapeJava(s) + "\")"; 
     }
     
+    /**
+     * Tell the code builder if this token is an expression evaluated dynamically
+     * via <code>__eval</code>. Must be called at parse time, so that enclosing
+     * loops know they shall expose their loop variables to the evaluator
+     */
+    protected final void checkDynaExpAtParseTime() {
+        if (null == ctx || S.empty(s)) return;
+        if (stripOuterBrackets(s).endsWith("@")) {
+            ctx.getCodeBuilder().addDynaExp();
+        }
+    }
+
     private String checkDynaExp(String s) {
         if (S.empty(s)) return s;
         boolean b = (s.endsWith("@"));
@@ -0,0 +1,266 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.internal.compiler;
+
+/*-
+ * #%L
+ * Rythm Template Engine
+ * %%
+ * Copyright (C) 2017 - 2021 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Index inline template classes, i.e. template classes created from template source
+ * content instead of a template file, by a 128 bit hash of the content.
+ * <p/>
+ * <p>The hash only locates the entry, a hit is confirmed by comparing the content
+ * with the source of the entry, thus two contents with the same hash never share
+ * a template class</p>
+ * <p/>
+ * <p>The cache is bounded. Once the capacity is exceeded the least recently used
+ * entries are evicted in a batch and returned to the caller, which is responsible
+ * to drop all other references to the evicted template classes. Instead of sorting
+ * all entries, the access time bound of the batch is estimated from a random sample
+ * of the entries</p>
+ */
+class InlineTemplateCache {
+
+    /**
+     * 128 bit hash of a template source, computed with the MurmurHash3 x64 128 mixing
+     * functions over the UTF-16 chars of the source
+     */
+    static final class Key {
+        private static final long C1 = 0x87c37b91114253d5L;
+        private static final long C2 = 0x4cf5ad432745937fL;
+
+        private final long h1;
+        private final long h2;
+
+        private Key(long h1, long h2) {
+            this.h1 = h1;
+            this.h2 = h2;
+        }
+
+        static Key of(String s) {
+            final int len = s.length();
+            long h1 = 0, h2 = 0;
+            int i = 0;
+            for (; i + 8 <= len; i += 8) {
+                long k1 = lane(s, i);
+                long k2 = lane(s, i + 4);
+
+                h1 ^= mixK1(k1);
+                h1 = Long.rotateLeft(h1, 27);
+                h1 += h2;
+                h1 = h1 * 5 + 0x52dce729;
+
+                h2 ^= mixK2(k2);
+                h2 = Long.rotateLeft(h2, 31);
+                h2 += h1;
+                h2 = h2 * 5 + 0x38495ab5;
+            }
+            int rem = len - i;
+            if (rem > 0) {
+                long k1 = 0, k2 = 0;
+                for (int j = 0; j < rem; ++j) {
+                    long c = s.charAt(i + j);
+                    if (j < 4) {
+                        k1 |= c << (j << 4);
+                    } else {
+                        k2 |= c << ((j - 4) << 4);
+                    }
+                }
+                if (rem > 4) {
+                    h2 ^= mixK2(k2);
+                }
+                h1 ^= mixK1(k1);
+            }
+            h1 ^= len;
+            h2 ^= len;
+            h1 += h2;
+            h2 += h1;
+            h1 = fmix(h1);
+            h2 = fmix(h2);
+            h1 += h2;
+            h2 += h1;
+            return new Key(h1, h2);
+        }
+
+        private static long lane(String s, int i) {
+            return (long) s.charAt(i) | ((long) s.charAt(i + 1) << 16) | ((long) s.charAt(i + 2) << 32) | ((long) s.charAt(i + 3) << 48);
+        }
+
+        private static long mixK1(long k1) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            return k1 * C2;
+        }
+
+        private static long mixK2(long k2) {
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            return k2 * C1;
+        }
+
+        private static long fmix(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb9fe1a85ec53L;
+            k ^= k >>> 33;
+            return k;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if (!(o instanceof Key)) return false;
+            Key that = (Key) o;
+            return h1 == that.h1 && h2 == that.h2;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) h1;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%016x%016x", h1, h2);
+        }
+    }
+
+    private static final class Entry {
+        final Key key;
+        // the same string instance as the key of the template resource
+        final String content;
+        final TemplateClass templateClass;
+        volatile long lastAccess = System.nanoTime();
+
+        Entry(Key key, String content, TemplateClass templateClass) {
+            this.key = key;
+            this.content = content;
+            this.templateClass = templateClass;
+        }
+    }
+
+    /**
+     * The number of entries sampled to find the entries to be evicted
+     */
+    private static final int SAMPLE_SIZE = 64;
+
+    private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<Key, Entry>();
+
+    private final int capacity;
+
+    /**
+     * @param capacity the maximum number of entries, <code>0</code> or negative number
+     *                 means unbounded
+     */
+    InlineTemplateCache(int capacity) {
+        this.capacity = capacity;
+    }
+
+    TemplateClass get(String content) {
+        Entry e = entries.get(Key.of(content));
+        if (null == e || !content.equals(e.content)) return null;
+        e.lastAccess = System.nanoTime();
+        return e.templateClass;
+    }
+
+    /**
+     * Add a template class indexed by the template content.
+     *
+     * @return the template classes evicted to keep the cache in bound
+     */
+    List<TemplateClass> put(String content, TemplateClass templateClass) {
+        Key key = Key.of(content);
+        entries.put(key, new Entry(key, content, templateClass));
+        if (capacity <= 0 || entries.size() <= capacity) {
+            return Collections.emptyList();
+        }
+        return evict();
+    }
+
+    void remove(String content, TemplateClass templateClass) {
+        Key key = Key.of(content);
+        Entry e = entries.get(key);
+        if (null != e && e.templateClass == templateClass) {
+            entries.remove(key, e);
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private synchronized List<TemplateClass> evict() {
+        int size = entries.size();
+        if (size <= capacity) {
+            return Collections.emptyList();
+        }
+        // evict more than needed so that we don't evict on every put
+        int toEvict = Math.min(size, size - capacity + (capacity >> 4));
+        List<TemplateClass> evicted = new ArrayList<TemplateClass>(toEvict);
+        // the sample might miss the oldest entries, try again until the cache is in bound
+        for (int round = 0; round < 4 && evicted.size() < toEvict && entries.size() > capacity; ++round) {
+            long bound = sampleAccessBound(toEvict - evicted.size());
+            for (Entry e : entries.values()) {
+                if (evicted.size() >= toEvict) break;
+                if (e.lastAccess <= bound && entries.remove(e.key, e)) {
+                    evicted.add(e.templateClass);
+                }
+            }
+        }
+        return evicted;
+    }
+
+    /*
+     * Estimate the access time of the n-th least recently used entry from a
+     * reservoir sample of the entries
+     */
+    private long sampleAccessBound(int n) {
+        long[] sample = new long[SAMPLE_SIZE];
+        Random r = ThreadLocalRandom.current();
+        int seen = 0;
+        for (Entry e : entries.values()) {
+            int i = seen < SAMPLE_SIZE ? seen : r.nextInt(seen + 1);
+            if (i < SAMPLE_SIZE) {
+                sample[i] = e.lastAccess;
+            }
+            ++seen;
+        }
+        int m = Math.min(seen, SAMPLE_SIZE);
+        if (0 == m) {
+            return Long.MIN_VALUE;
+        }
+        Arrays.sort(sample, 0, m);
+        return sample[(int) Math.min(m - 1, (long) n * m / seen)];
+    }
+}
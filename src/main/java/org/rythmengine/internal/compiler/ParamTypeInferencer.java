@@ -128,10 +128,13 @@ public class ParamTypeInferencer {
     public static void registerParams(RythmEngine engine, Object... args) {
         if (!engine.conf().typeInferenceEnabled()) return;
 
-        if (null == args || args.length == 0) return;
-
         Map<String, String> tMap = typeMap.get();
         tMap.clear();
+        if (null == args || args.length == 0) {
+            uuid.remove();
+            return;
+        }
+
         long id = 0;
         if (args.length == 1 && args[0] instanceof Map) {
             Map<String, Object> params = (Map) args[0];
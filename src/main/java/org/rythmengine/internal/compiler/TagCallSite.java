@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.internal.compiler;
+
+/*-
+ * #%L
+ * Rythm Template Engine
+ * %%
+ * Copyright (C) 2017 - 2021 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.rythmengine.RythmEngine;
+import org.rythmengine.template.ITemplate;
+import org.rythmengine.template.JavaTagBase;
+
+/**
+ * The tag a caller template class resolved a tag name to. Once a call
+ * site is resolved, invoking the tag again skips the tag registry, import
+ * path and class name lookups and goes straight to cloning the target.
+ * <p/>
+ * <p>Not an API for user application</p>
+ */
+public final class TagCallSite {
+
+    private final int version;
+    private final JavaTagBase tag;
+    private final TemplateClass templateClass;
+
+    public TagCallSite(int version, JavaTagBase tag) {
+        this.version = version;
+        this.tag = tag;
+        this.templateClass = null;
+    }
+
+    public TagCallSite(int version, TemplateClass templateClass) {
+        this.version = version;
+        this.tag = null;
+        this.templateClass = templateClass;
+    }
+
+    /**
+     * @param version the current tag registry version of the engine
+     * @return true if this call site was resolved against the given version
+     */
+    public boolean isValid(int version) {
+        return this.version == version;
+    }
+
+    /**
+     * @return the template class this call site resolved to, or {@code null}
+     * if it resolved to a Java tag
+     */
+    public TemplateClass templateClass() {
+        return templateClass;
+    }
+
+    /**
+     * Create a new tag instance to be invoked by the caller
+     */
+    public ITemplate newInstance(ITemplate caller, RythmEngine engine) {
+        if (null != tag) {
+            return tag.__cloneMe(engine, caller);
+        }
+        return templateClass.asTemplate(caller, engine);
+    }
+}
@@ -27,13 +27,13 @@ package org.rythmengine.internal.compiler;
 
 import java.io.File;
 import java.lang.reflect.Modifier;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -48,6 +48,7 @@ import org.rythmengine.extension.ICodeType;
 import org.rythmengine.extension.ITemplateResourceLoader;
 import org.rythmengine.internal.CodeBuilder;
 import org.rythmengine.internal.IDialect;
+import org.rythmengine.internal.RenderContext;
 import org.rythmengine.internal.RythmEvents;
 import org.rythmengine.logger.ILogger;
 import org.rythmengine.logger.Logger;
@@ -69,7 +70,7 @@ public class TemplateClass {
     private static final String NO_INCLUDE_CLASS = "NO_INCLUDE_CLASS";
     private static final ITemplate NULL_TEMPLATE = new TagBase() {
         @Override
-        public ITemplate __cloneMe(RythmEngine engine, ITemplate caller) {
+        public ITemplate __cloneMe(RythmEngine engine, ITemplate caller, RenderContext ctx) {
             return null;
         }
     };
@@ -81,7 +82,7 @@ public class TemplateClass {
     private boolean inner = false;
     private RythmEngine engine = null;
     private boolean enhancing = false;
-    private transient List<TemplateClass> embeddedClasses = new ArrayList<TemplateClass>();
+    private transient List<TemplateClass> embeddedClasses = new CopyOnWriteArrayList<TemplateClass>();
 
     /**
      * The fully qualified class name
@@ -89,6 +90,14 @@ public class TemplateClass {
     private String name;
     public TemplateClass extendedTemplateClass;
     private Set<TemplateClass> includedTemplateClasses = new CopyOnWriteArraySet<TemplateClass>();
+    /**
+     * The version of included template classes when their source was included into this class
+     */
+    private Map<TemplateClass, Integer> includedVersions = new ConcurrentHashMap<TemplateClass, Integer>();
+    /**
+     * Increased each time the java source of this class is regenerated
+     */
+    private volatile int version;
     private String includeTemplateClassNames = null;
     private Map<String, String> includeTagTypes = new ConcurrentHashMap<String, String>();
     private String tagName;
@@ -109,14 +118,22 @@ public class TemplateClass {
      * Store a list of import path, i.e. those imports ends with ".*"
      */
     public Set<String> importPaths;
+    /**
+     * Tags invoked from this template, indexed by tag name
+     */
+    public final Map<String, TagCallSite> tagCallSites = new ConcurrentHashMap<String, TagCallSite>();
     /**
      * The in JVM loaded class
      */
-    public Class<ITemplate> javaClass;
+    public volatile Class<ITemplate> javaClass;
     /**
      * The in JVM loaded package
      */
     public Package javaPackage;
+    /**
+     * The class loader defines this root template class and its embedded classes
+     */
+    transient volatile TemplateSegmentClassLoader classLoader;
     /**
      * The code type could be HTML, JS, JSON etc
      */
@@ -164,10 +181,41 @@ public class TemplateClass {
 
     private String magic = S.random(4);
 
+    /**
+     * Moving average of the output length (in chars) of template instances of this class
+     */
+    private volatile int avgOutputSize = 0;
+
     public TemplateClass root() {
         return root;
     }
 
+    /**
+     * Record the output length of a finished render. The value is folded into a
+     * moving average which is used to presize the buffer of new template instances
+     *
+     * <p>Not an API for user application</p>
+     *
+     * @param size the length of the output
+     */
+    public void recordOutputSize(int size) {
+        int avg = avgOutputSize;
+        avgOutputSize = 0 == avg ? size : avg + ((size - avg) >> 3);
+    }
+
+    /**
+     * Return the estimated output size of a template instance of this class, or
+     * <code>0</code> if no render has been recorded yet
+     *
+     * <p>Not an API for user application</p>
+     *
+     * @return the estimated output size
+     */
+    public int estimatedOutputSize() {
+        int avg = avgOutputSize;
+        return avg + (avg >> 3);
+    }
+
     private TemplateClass() {
     }
 
@@ -192,6 +240,7 @@ public class TemplateClass {
      */
     public void addIncludeTemplateClass(TemplateClass tc) {
         includedTemplateClasses.add(tc);
+        includedVersions.put(tc, tc.version);
         includeTagTypes.putAll(tc.includeTagTypes);
     }
 
@@ -456,6 +505,24 @@ public class TemplateClass {
         return asTemplate(null, null, engine);
     }
 
+    /**
+     * Return a root template instance running in the render context specified
+     *
+     * @param ctx the render context
+     * @return the template instance
+     */
+    public ITemplate asTemplate(RenderContext ctx) {
+        RythmEngine engine = ctx.engine();
+        if (null == name || engine.isDevMode()) {
+            refresh(false);
+        }
+        TemplateBase tmpl = (TemplateBase) ((TemplateBase) templateInstance_(engine)).__cloneMe(engine(), null, ctx);
+        if (tmpl!=null) {
+            tmpl.__prepareRender(null, null, engine);
+        }
+        return tmpl;
+    }
+
     public ITemplate asTemplate(ITemplate caller, RythmEngine engine) {
         TemplateBase tb = (TemplateBase) caller;
         TemplateBase tmpl = (TemplateBase) templateInstance_(engine).__cloneMe(engine, caller);
@@ -557,25 +624,15 @@ public class TemplateClass {
             engine.registerTemplateClass(this);
         }
 
-        if (null == javaSource) {
+        // byte code without java source is loaded from a precompiled archive
+        if (null == javaSource && null == enhancedByteCode) {
             engine.classCache().loadTemplateClass(this);
             if (null != javaSource) {
                 // try refresh extended template class if there is
                 Pattern p = Pattern.compile(".*extends\\s+([a-zA-Z0-9_]+)\\s*\\{\\s*\\/\\/<extended_resource_key\\>(.*)\\<\\/extended_resource_key\\>.*", Pattern.DOTALL);
                 Matcher m = p.matcher(javaSource);
                 if (m.matches()) {
-                    String extended = m.group(1);
-                    TemplateClassManager tcm = engine().classes();
-                    extendedTemplateClass = tcm.getByClassName(extended);
-                    if (null == extendedTemplateClass) {
-                        String extendedResourceKey = m.group(2);
-                        extendedTemplateClass = tcm.getByTemplate(extendedResourceKey);
-                        if (null == extendedTemplateClass) {
-                            extendedTemplateClass = new TemplateClass(extendedResourceKey, engine());
-                            extendedTemplateClass.refresh();
-                        }
-                    }
-                    engine.addExtendRelationship(extendedTemplateClass, this);
+                    linkExtended(m.group(1), m.group(2));
                 }
             }
         }
@@ -608,23 +665,27 @@ public class TemplateClass {
             }
         }
         for (TemplateClass tc : includedTemplateClasses) {
-            if (tc.refresh(forceRefresh)) {
+            // refresh() reports a change to the first caller only, the version
+            // tells whether the other callers included an outdated source
+            boolean changed = tc.refresh(forceRefresh);
+            Integer includedVersion = includedVersions.get(tc);
+            if (changed || (null != includedVersion && includedVersion != tc.version)) {
                 includedTemplateChanged = true;
                 break;
             }
         }
 
         if (extendedTemplateChanged && !forceRefresh) {
+            // the new version is defined by a new class loader, no need to restart the engine
             reset();
             compiled = false;
-            engine().restart(new ClassReloadException("extended class changed"));
             refresh(forceRefresh);
             return true; // pass refresh state to sub template
         }
         // templateResource.refresh() must be put at first so we make sure resource get refreshed
 
         boolean resourceChanged = templateResource.refresh();
-        boolean refresh = resourceChanged || forceRefresh || (null == javaSource) || includedTemplateChanged || extendedTemplateChanged;
+        boolean refresh = resourceChanged || forceRefresh || (null == javaSource && null == enhancedByteCode) || includedTemplateChanged || extendedTemplateChanged;
         if (!refresh) {
             return false;
         }
@@ -641,9 +702,29 @@ public class TemplateClass {
         isValid = true;
         //if (!engine().isProd  Mode()) System.err.println(javaSource);
         compiled = false;
+        version++;
         return true;
     }
 
+    /**
+     * Find or load the template class this template extends
+     *
+     * @param extended            the class name of the extended template
+     * @param extendedResourceKey the resource key of the extended template
+     */
+    void linkExtended(String extended, String extendedResourceKey) {
+        RythmEngine engine = engine();
+        TemplateClassManager tcm = engine.classes();
+        extendedTemplateClass = tcm.getByClassName(extended);
+        if (null == extendedTemplateClass) {
+            extendedTemplateClass = tcm.getByTemplate(extendedResourceKey);
+            if (null == extendedTemplateClass) {
+                extendedTemplateClass = tcm.getOrCreate(engine.resourceManager().get(extendedResourceKey));
+            }
+        }
+        engine.addExtendRelationship(extendedTemplateClass, this);
+    }
+
     /**
      * Is this class already compiled but not defined ?
      *
@@ -661,6 +742,7 @@ public class TemplateClass {
         enhancedByteCode = null;
         javaSource = null;
         templateInstance = null;
+        tagCallSites.clear();
         for (TemplateClass tc : embeddedClasses) {
             tc.reset();
             engine().classes().remove(tc);
@@ -669,6 +751,7 @@ public class TemplateClass {
         engine().classCache().deleteCache(this);
         engine().invalidate(this);
         javaClass = null;
+        classLoader = null;
     }
 
     @SuppressWarnings("unused")
@@ -690,6 +773,12 @@ public class TemplateClass {
             if (null == javaSource) {
                 throw new IllegalStateException("Cannot find java source when compiling " + getKey());
             }
+            TemplateClass extended = extendedTemplateClass;
+            if (null != extended && null == extended.javaByteCode && null != extended.javaSource) {
+                // compile the extended class under its own lock instead of cascading
+                // to its source, which might be rebuilt by another thread meanwhile
+                extended.compile();
+            }
             engine().classes().compiler.compile(new String[]{name});
             if (logger.isTraceEnabled()) {
                 logger.trace("%sms to compile template: %s", System.currentTimeMillis() - start, getKey());
@@ -735,7 +824,20 @@ public class TemplateClass {
         root.embeddedClasses.add(this);
     }
 
-    public byte[] enhance() {
+    List<TemplateClass> embeddedClasses() {
+        return embeddedClasses;
+    }
+
+    TemplateClass embeddedClass(String name) {
+        for (TemplateClass tc : embeddedClasses) {
+            if (name.equals(tc.name)) {
+                return tc;
+            }
+        }
+        return null;
+    }
+
+    public synchronized byte[] enhance() {
         if (enhancing) {
             throw new IllegalStateException("reenter enhance() call");
         }
@@ -797,7 +899,7 @@ public class TemplateClass {
      *
      * @param code The bytecode.
      */
-    public void compiled(byte[] code) {
+    public synchronized void compiled(byte[] code) {
         javaByteCode = code;
         //enhancedByteCode = code;
         compiled = true;
@@ -0,0 +1,239 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.internal.compiler;
+
+/*-
+ * #%L
+ * Rythm Template Engine
+ * %%
+ * Copyright (C) 2017 - 2021 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A single file archive of precompiled template classes.
+ * <p/>
+ * <p>The archive starts with a header index mapping the template class name to the
+ * offset of its entry, followed by the entries. All strings and byte arrays are
+ * length prefixed:</p>
+ * <pre>
+ * archive := MAGIC VERSION count:int (name:str offset:int){count} entry{count}
+ * entry   := hash:str flags:byte [meta] [javaSource:str] byteCode:bytes
+ * meta    := includeTagTypes:str includeTemplateClassNames:str importPaths:str
+ *            extendedClassName:str extendedResourceKey:str
+ * str     := bytes (UTF-8)
+ * bytes   := length:int byte{length}
+ * </pre>
+ * <p>Inner classes come without meta. The java source is optional, it is not written
+ * when the archive is built by an engine running in prod mode</p>
+ * <p/>
+ * <p>The archive file is memory mapped, looking up an entry does not open any file</p>
+ */
+class TemplateClassArchive {
+
+    static final String FILE_NAME = "templates.rythm-archive";
+
+    private static final int MAGIC = 0x52594152; // RYAR
+    private static final int VERSION = 1;
+
+    static final byte FLAG_META = 1;
+    static final byte FLAG_SOURCE = 2;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * An archived template class
+     */
+    static class Entry {
+        String hash;
+        // the following are null for inner classes
+        String includeTagTypes;
+        String includeTemplateClassNames;
+        String importPaths;
+        String extendedClassName;
+        String extendedResourceKey;
+        // null if the archive is built without source
+        String javaSource;
+        byte[] byteCode;
+
+        boolean isInner() {
+            return null == includeTagTypes;
+        }
+    }
+
+    private final ByteBuffer buffer;
+    private final Map<String, Integer> index;
+
+    private TemplateClassArchive(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        ByteBuffer bb = buffer.duplicate();
+        if (bb.getInt() != MAGIC || bb.getInt() != VERSION) {
+            throw new IOException("Unknown template class archive format");
+        }
+        int count = bb.getInt();
+        index = new HashMap<String, Integer>(count * 4 / 3 + 1);
+        for (int i = 0; i < count; ++i) {
+            String name = readString(bb);
+            index.put(name, bb.getInt());
+        }
+    }
+
+    /**
+     * Map the archive file into memory
+     *
+     * @param file the archive file
+     * @return the archive
+     * @throws IOException if the file cannot be read or is not an archive
+     */
+    static TemplateClassArchive open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel ch = raf.getChannel();
+            MappedByteBuffer mbb = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            return new TemplateClassArchive(mbb);
+        } finally {
+            // the mapping stays valid after the channel is closed
+            raf.close();
+        }
+    }
+
+    int size() {
+        return index.size();
+    }
+
+    /**
+     * Return the archived template class by name or <code>null</code> if not found
+     */
+    Entry get(String name) {
+        Integer offset = index.get(name);
+        if (null == offset) {
+            return null;
+        }
+        ByteBuffer bb = buffer.duplicate();
+        bb.position(offset);
+        Entry e = new Entry();
+        e.hash = readString(bb);
+        byte flags = bb.get();
+        if (0 != (flags & FLAG_META)) {
+            e.includeTagTypes = readString(bb);
+            e.includeTemplateClassNames = readString(bb);
+            e.importPaths = readString(bb);
+            e.extendedClassName = readString(bb);
+            e.extendedResourceKey = readString(bb);
+        }
+        if (0 != (flags & FLAG_SOURCE)) {
+            e.javaSource = readString(bb);
+        }
+        e.byteCode = readBytes(bb);
+        return e;
+    }
+
+    /**
+     * Write the template classes into an archive file
+     *
+     * @param file    the archive file
+     * @param names   the template class names
+     * @param entries the entries in the same order as the names
+     * @throws IOException if failed to write the archive file
+     */
+    static void write(File file, List<String> names, List<Entry> entries) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream bos = new DataOutputStream(body);
+        int[] offsets = new int[entries.size()];
+        for (int i = 0; i < offsets.length; ++i) {
+            offsets[i] = bos.size();
+            Entry e = entries.get(i);
+            writeString(bos, e.hash);
+            byte flags = 0;
+            if (!e.isInner()) flags |= FLAG_META;
+            if (null != e.javaSource) flags |= FLAG_SOURCE;
+            bos.writeByte(flags);
+            if (!e.isInner()) {
+                writeString(bos, e.includeTagTypes);
+                writeString(bos, e.includeTemplateClassNames);
+                writeString(bos, e.importPaths);
+                writeString(bos, e.extendedClassName);
+                writeString(bos, e.extendedResourceKey);
+            }
+            if (null != e.javaSource) {
+                writeString(bos, e.javaSource);
+            }
+            writeBytes(bos, e.byteCode);
+        }
+        bos.flush();
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream hos = new DataOutputStream(header);
+        hos.writeInt(MAGIC);
+        hos.writeInt(VERSION);
+        hos.writeInt(names.size());
+        int headerSize = 12;
+        for (String name : names) {
+            headerSize += 4 + name.getBytes(UTF8).length + 4;
+        }
+        for (int i = 0; i < offsets.length; ++i) {
+            writeString(hos, names.get(i));
+            hos.writeInt(headerSize + offsets[i]);
+        }
+        hos.flush();
+
+        // write to a temporary file first so a running engine never maps a partial archive
+        File tmp = new File(file.getPath() + ".tmp");
+        OutputStream os = new BufferedOutputStream(new FileOutputStream(tmp));
+        try {
+            header.writeTo(os);
+            body.writeTo(os);
+        } finally {
+            os.close();
+        }
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Cannot replace template class archive: " + file);
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Cannot write template class archive: " + file);
+        }
+    }
+
+    private static String readString(ByteBuffer bb) {
+        return new String(readBytes(bb), UTF8);
+    }
+
+    private static byte[] readBytes(ByteBuffer bb) {
+        byte[] ba = new byte[bb.getInt()];
+        bb.get(ba);
+        return ba;
+    }
+
+    private static void writeString(DataOutputStream os, String s) throws IOException {
+        writeBytes(os, (null == s ? "" : s).getBytes(UTF8));
+    }
+
+    private static void writeBytes(DataOutputStream os, byte[] ba) throws IOException {
+        os.writeInt(ba.length);
+        os.write(ba);
+    }
+}
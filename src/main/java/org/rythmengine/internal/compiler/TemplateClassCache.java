@@ -31,11 +31,14 @@ import org.rythmengine.conf.RythmConfiguration;
 import org.rythmengine.conf.RythmConfigurationKey;
 import org.rythmengine.logger.ILogger;
 import org.rythmengine.logger.Logger;
+import org.rythmengine.utils.S;
 import org.rythmengine.utils.TextBuilder;
 
 import java.io.*;
 import java.net.URI;
 import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
 
@@ -49,6 +52,9 @@ public class TemplateClassCache {
     private final RythmConfiguration conf;
     private final Rythm.Mode mode;
 
+    private volatile TemplateClassArchive archive;
+    private volatile boolean archiveChecked;
+
     public TemplateClassCache(RythmEngine engine) {
         if (null == engine) throw new NullPointerException();
         this.engine = engine;
@@ -90,6 +96,9 @@ public class TemplateClassCache {
         if (!readEnabled()) {
             return;
         }
+        if (loadFromArchive(tc)) {
+            return;
+        }
         InputStream is = null;
         try {
             File f = getCacheFile(tc);
@@ -138,14 +147,7 @@ public class TemplateClassCache {
                 sa = s.split("__IMPORT_PATH_LIST__");
                 tc.setIncludeTemplateClassNames(sa[0]);
                 if (sa.length > 1) {
-                    s = sa[1];
-                    sa = s.split(";");
-                    Set<String> importPaths = new CopyOnWriteArraySet<String>();
-                    for (String path : sa) {
-                        if ("java.lang".equals(path)) continue;
-                        importPaths.add(path);
-                    }
-                    tc.replaceImportPath(importPaths);
+                    deserializeImportPaths(tc, sa[1]);
                 }
             } // else it must be an inner class
 
@@ -198,22 +200,7 @@ public class TemplateClassCache {
                 tb.p(tc.javaSource);
                 tb.p("__INCLUDED_TAG_TYPES__").p(tc.serializeIncludeTagTypes());
                 tb.p("__INCULDED_TEMPLATE_CLASS_NAME_LIST__").p(tc.refreshIncludeTemplateClassNames())
-                        .p("__IMPORT_PATH_LIST__");
-                if (tc.importPaths == null) {
-                    tc.importPaths = new CopyOnWriteArraySet<String>();
-                }
-                if (tc.importPaths.isEmpty()) {
-                    tc.importPaths.add("java.lang");
-                }
-                boolean first = true;
-                for (String s : tc.importPaths) {
-                    if (!first) {
-                        tb.p(";");
-                    } else {
-                        first = false;
-                    }
-                    tb.p(s);
-                }
+                        .p("__IMPORT_PATH_LIST__").p(serializeImportPaths(tc));
                 os.write(tb.toString().getBytes("utf-8"));
             } // else the tc is an inner class thus we don't have javaSource at all
 
@@ -228,6 +215,131 @@ public class TemplateClassCache {
         }
     }
 
+    private static String serializeImportPaths(TemplateClass tc) {
+        if (tc.importPaths == null) {
+            tc.importPaths = new CopyOnWriteArraySet<String>();
+        }
+        if (tc.importPaths.isEmpty()) {
+            tc.importPaths.add("java.lang");
+        }
+        TextBuilder tb = new TextBuilder();
+        boolean first = true;
+        for (String s : tc.importPaths) {
+            if (!first) {
+                tb.p(";");
+            } else {
+                first = false;
+            }
+            tb.p(s);
+        }
+        return tb.toString();
+    }
+
+    private static void deserializeImportPaths(TemplateClass tc, String s) {
+        Set<String> importPaths = new CopyOnWriteArraySet<String>();
+        for (String path : s.split(";")) {
+            if ("java.lang".equals(path)) continue;
+            importPaths.add(path);
+        }
+        tc.replaceImportPath(importPaths);
+    }
+
+    /**
+     * Return the precompiled template class archive if there is one in the
+     * {@link RythmConfigurationKey#HOME_PRECOMPILED precompiled root}
+     */
+    private TemplateClassArchive archive() {
+        if (!archiveChecked) {
+            synchronized (this) {
+                if (!archiveChecked) {
+                    File f = getCacheFile(TemplateClassArchive.FILE_NAME);
+                    if (f.isFile() && f.canRead()) {
+                        try {
+                            archive = TemplateClassArchive.open(f);
+                        } catch (IOException e) {
+                            logger.warn(e, "Error loading template class archive: %s", f);
+                        }
+                    }
+                    archiveChecked = true;
+                }
+            }
+        }
+        return archive;
+    }
+
+    private boolean loadFromArchive(TemplateClass tc) {
+        if (!conf.loadPrecompiled()) {
+            return false;
+        }
+        TemplateClassArchive archive = archive();
+        if (null == archive) {
+            return false;
+        }
+        TemplateClassArchive.Entry e = archive.get(tc.name0());
+        if (null == e) {
+            return false;
+        }
+        if (!e.isInner()) {
+            tc.javaSource = e.javaSource;
+            tc.deserializeIncludeTagTypes(e.includeTagTypes);
+            tc.setIncludeTemplateClassNames(e.includeTemplateClassNames);
+            deserializeImportPaths(tc, e.importPaths);
+            if (null == e.javaSource && !S.isEmpty(e.extendedClassName)) {
+                // the extended template is found in the java source if there is one
+                tc.linkExtended(e.extendedClassName, e.extendedResourceKey);
+            }
+        }
+        tc.loadCachedByteCode(e.byteCode);
+        return true;
+    }
+
+    /**
+     * Write all template classes compiled by the engine into a single archive file
+     * in the {@link RythmConfigurationKey#HOME_PRECOMPILED precompiled root}. Engines
+     * with {@link RythmConfigurationKey#ENGINE_LOAD_PRECOMPILED_ENABLED load precompiled}
+     * enabled load template classes from the archive instead of the per class cache files.
+     * <p/>
+     * <p>The java source is not written into the archive if the engine is running in
+     * prod mode</p>
+     */
+    public void writeArchive() {
+        if (!writeEnabled()) {
+            return;
+        }
+        boolean withSource = !engine.isProdMode();
+        List<String> names = new ArrayList<String>();
+        List<TemplateClassArchive.Entry> entries = new ArrayList<TemplateClassArchive.Entry>();
+        for (TemplateClass tc : engine.classes().all()) {
+            if (null == tc.enhancedByteCode || null == tc.name()) {
+                continue;
+            }
+            TemplateClassArchive.Entry e = new TemplateClassArchive.Entry();
+            e.hash = hash(tc);
+            if (null != tc.javaSource) {
+                e.includeTagTypes = tc.serializeIncludeTagTypes();
+                e.includeTemplateClassNames = tc.refreshIncludeTemplateClassNames();
+                e.importPaths = serializeImportPaths(tc);
+                TemplateClass extended = tc.extendedTemplateClass;
+                if (null != extended) {
+                    e.extendedClassName = extended.name();
+                    e.extendedResourceKey = extended.getKey();
+                }
+                if (withSource) {
+                    e.javaSource = tc.javaSource;
+                }
+            }
+            e.byteCode = tc.enhancedByteCode;
+            names.add(tc.name0());
+            entries.add(e);
+        }
+        File f = getCacheFile(TemplateClassArchive.FILE_NAME);
+        try {
+            TemplateClassArchive.write(f, names, entries);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     /**
      * Build a hash of the source code.
      * To efficiently track source code modifications.
@@ -39,11 +39,9 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.instrument.ClassDefinition;
 import java.security.ProtectionDomain;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -200,6 +198,10 @@ public class TemplateClassLoader extends ClassLoader {
         return engine.conf().get(RythmConfigurationKey.ENGINE_CLASS_LOADER_PARENT_IMPL);
     }
 
+    static {
+        registerAsParallelCapable();
+    }
+
     public TemplateClassLoader(RythmEngine engine) {
         this(getDefParent(engine), engine);
     }
@@ -208,6 +210,7 @@ public class TemplateClassLoader extends ClassLoader {
         super(parent);
         this.engine = engine;
         this.conf = engine.conf();
+        this.notFoundTypes = engine.classes().compiler.notFoundTypes;
         for (TemplateClass tc : engine.classes().all()) {
             tc.uncompile();
         }
@@ -229,7 +232,47 @@ public class TemplateClassLoader extends ClassLoader {
     }
 
     @Override
-    protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        TemplateClass root = rootOf(name);
+        if (null != root) {
+            // the root template class is also locked when it is refreshed and compiled,
+            // thus it cannot be reset by another thread before it is defined
+            synchronized (root) {
+                synchronized (getClassLoadingLock(name)) {
+                    return loadClass0(name, resolve);
+                }
+            }
+        }
+        synchronized (getClassLoadingLock(name)) {
+            return loadClass0(name, resolve);
+        }
+    }
+
+    /*
+     * Find the root template class of the given class name. Returns null if
+     * the name is not a template class
+     */
+    private TemplateClass rootOf(String name) {
+        if (name.lastIndexOf(TemplateClass.CN_SUFFIX) == -1) {
+            return null;
+        }
+        Map<String, TemplateClass> idx = engine.classes().clsNameIdx;
+        TemplateClass tc = idx.get(name);
+        if (null == tc) {
+            int pos = name.indexOf("$");
+            if (-1 == pos) {
+                return null;
+            }
+            tc = idx.get(name.substring(0, pos));
+            if (null == tc) {
+                return null;
+            }
+        }
+        TemplateClass root = tc.root();
+        return null == root ? tc : root;
+    }
+
+    private Class<?> loadClass0(String name, boolean resolve) throws ClassNotFoundException {
         if (name.contains("UrlResolver")) {
             logger.info("loading UrlResovler...");
         }
@@ -266,6 +309,10 @@ public class TemplateClassLoader extends ClassLoader {
                 }
                 return TemplateClass;
             }
+            if (null != tc) {
+                // a template class is never found by the parent class loader
+                throw new ClassNotFoundException("Cannot load template class: " + name);
+            }
 
             // Delegate to the classic classloader
             //boolean unlockSM = /*engine.isDevMode() && */null != rsm;
@@ -283,7 +330,7 @@ public class TemplateClassLoader extends ClassLoader {
     }
 
     @SuppressWarnings("unchecked")
-    private Class<?> loadTemplateClass(String name) {
+    private Class<?> loadTemplateClass(String name) throws ClassNotFoundException {
         Class<?> maybeAlreadyLoaded = findLoadedClass(name);
         if (maybeAlreadyLoaded != null) {
             return maybeAlreadyLoaded;
@@ -294,9 +341,20 @@ public class TemplateClassLoader extends ClassLoader {
             if (templateClass.isDefinable()) {
                 return templateClass.javaClass;
             }
+            TemplateSegmentClassLoader segment = engine.classes().segmentClassLoader(templateClass.root());
+            if (null != segment) {
+                return segment.loadClass(name);
+            }
             byte[] bc = templateClass.enhancedByteCode;//bCache.getBytecode(name, templateClass.javaSource);
             if (!templateClass.isClass()) {
-                definePackage(templateClass.getPackage(), null, null, null, null, null, null, null);
+                String pkg = templateClass.getPackage();
+                if (null == getPackage(pkg)) {
+                    try {
+                        definePackage(pkg, null, null, null, null, null, null, null);
+                    } catch (IllegalArgumentException e) {
+                        // defined by another thread in between
+                    }
+                }
             } else {
                 loadPackage(name);
             }
@@ -338,6 +396,10 @@ public class TemplateClassLoader extends ClassLoader {
                 if (null == parent) {
                     throw new RuntimeException("Cannot find inner class def: " + name);
                 }
+                TemplateSegmentClassLoader segment = engine.classes().segmentClassLoader(parent.root());
+                if (null != segment) {
+                    return segment.loadClass(name);
+                }
                 TemplateClass tc = TemplateClass.createInnerClass(name, null, parent);
                 engine.classCache().loadTemplateClass(tc);
                 byte[] bc = tc.enhancedByteCode;
@@ -373,7 +435,7 @@ public class TemplateClassLoader extends ClassLoader {
         return dot > -1 ? name.substring(0, dot) : "";
     }
 
-    private void loadPackage(String className) {
+    private void loadPackage(String className) throws ClassNotFoundException {
         // find the package class name
         int symbol = className.indexOf("$");
         if (symbol > -1) {
@@ -390,19 +452,13 @@ public class TemplateClassLoader extends ClassLoader {
         }
     }
 
-    private Set<String> notFoundTypes = null;
+    private final Set<String> notFoundTypes;
 
     private boolean typeNotFound(String name) {
-        if (null == notFoundTypes) {
-            notFoundTypes = engine.classes().compiler.notFoundTypes;
-        }
         return notFoundTypes.contains(name);
     }
 
     private void setTypeNotFound(String name) {
-        if (null == notFoundTypes) {
-            notFoundTypes = engine.classes().compiler.notFoundTypes;
-        }
         if (engine.isProdMode()) {
             notFoundTypes.add(name);
         } else if (name.matches("^(java\\.|play\\.|com\\.greenlaw110\\.).*")) {
@@ -454,10 +510,9 @@ public class TemplateClassLoader extends ClassLoader {
         if (!tc.refresh()) return;
         if (tc.compile() == null) {
             engine.classes().remove(tc);
-            currentState = new TemplateClassloaderState();
-        } else {
-            throw new ClassReloadException("Need reload");
         }
+        // the new version is defined by a new segment class loader, no need to reload
+        currentState = new TemplateClassloaderState();
     }
 
     /**
@@ -470,30 +525,14 @@ public class TemplateClassLoader extends ClassLoader {
         for (TemplateClass tc : engine.classes().all()) {
             if (tc.refresh()) modifieds.add(tc);
         }
-        Set<TemplateClass> modifiedWithDependencies = new CopyOnWriteArraySet<TemplateClass>();
-        modifiedWithDependencies.addAll(modifieds);
-        List<ClassDefinition> newDefinitions = new ArrayList<ClassDefinition>();
-        boolean dirtySig = false;
-        for (TemplateClass tc : modifiedWithDependencies) {
+        for (TemplateClass tc : modifieds) {
             if (tc.compile() == null) {
                 engine.classes().remove(tc);
-                currentState = new TemplateClassloaderState();//show others that we have changed..
             } else {
-                int sigChecksum = tc.sigChecksum;
+                // the new version is defined by a new segment class loader, no need to reload
                 tc.enhance();
-                if (sigChecksum != tc.sigChecksum) {
-                    dirtySig = true;
-                }
-                newDefinitions.add(new ClassDefinition(tc.javaClass, tc.enhancedByteCode));
-                currentState = new TemplateClassloaderState();//show others that we have changed..
             }
-        }
-        if (!newDefinitions.isEmpty()) {
-            throw new ClassReloadException("Need Reload");
-        }
-        // Check signature (variable name & annotations aware !)
-        if (dirtySig) {
-            throw new ClassReloadException("Signature change !");
+            currentState = new TemplateClassloaderState();//show others that we have changed..
         }
 
         // Now check if there is new classCache or removed classCache
@@ -30,12 +30,20 @@ import org.rythmengine.logger.ILogger;
 import org.rythmengine.logger.Logger;
 import org.rythmengine.resource.ClasspathTemplateResource;
 import org.rythmengine.resource.ITemplateResource;
+import org.rythmengine.resource.StringTemplateResource;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
@@ -63,12 +71,17 @@ public class TemplateClassManager {
     /**
      * Index template class with inline template content or template file name
      */
-    public Map<Object, TemplateClass> tmplIdx = new HashMap<Object, TemplateClass>();
+    public Map<Object, TemplateClass> tmplIdx = new ConcurrentHashMap<Object, TemplateClass>();
+    /**
+     * Index inline template class with the hash of template content
+     */
+    InlineTemplateCache inlineIdx;
 
     public TemplateClassManager(RythmEngine engine) {
         if (null == engine) throw new NullPointerException();
         this.engine = engine;
         this.compiler = new TemplateCompiler(this);
+        this.inlineIdx = new InlineTemplateCache(engine.conf().inlineTemplateCacheSize());
     }
 
     /**
@@ -76,7 +89,8 @@ public class TemplateClassManager {
      */
     public void clear() {
         clsNameIdx = new ConcurrentHashMap<String, TemplateClass>();
-        tmplIdx = new HashMap<Object, TemplateClass>();
+        tmplIdx = new ConcurrentHashMap<Object, TemplateClass>();
+        inlineIdx = new InlineTemplateCache(engine.conf().inlineTemplateCacheSize());
     }
 
     /**
@@ -102,6 +116,9 @@ public class TemplateClassManager {
     
     public TemplateClass getByTemplate(Object name, boolean checkResource) {
         TemplateClass tc = tmplIdx.get(name);
+        if (null == tc && name instanceof String) {
+            tc = inlineIdx.get((String) name);
+        }
         if (checkResource && null == tc) {
             // try to see if resourceLoader has some kind of name transform
             ITemplateResource r = engine.resourceManager().getResource(name.toString());
@@ -118,6 +135,45 @@ public class TemplateClassManager {
         return getByTemplate(name, true);
     }
 
+    /**
+     * Return the template class of a template resource, the template class is created
+     * if not found. When several threads ask for the same resource at the same time,
+     * e.g. the layout of templates parsed in parallel, only one template class is created
+     * and returned to all of them once it is refreshed
+     *
+     * @param resource the template resource
+     * @return the template class
+     */
+    public TemplateClass getOrCreate(ITemplateResource resource) {
+        Object key = resource.getKey();
+        TemplateClass tc = tmplIdx.get(key);
+        if (null != tc) {
+            checkUpdate(tc);
+            return tc;
+        }
+        if (resource instanceof StringTemplateResource || engine.conf().typeInferenceEnabled()) {
+            // not indexed by the resource key
+            return new TemplateClass(resource, engine);
+        }
+        tc = new TemplateClass(resource, engine, true);
+        // the lock is taken before the template class is visible to other threads,
+        // thus they wait on refresh() until the template class is built
+        synchronized (tc) {
+            TemplateClass winner = tmplIdx.putIfAbsent(key, tc);
+            if (null != winner) {
+                winner.refresh(false);
+                return winner;
+            }
+            try {
+                tc.refresh(false);
+            } catch (RuntimeException e) {
+                tmplIdx.remove(key, tc);
+                throw e;
+            }
+        }
+        return tc;
+    }
+
     private void checkUpdate(TemplateClass tc) {
         if (null == tc || engine.isProdMode()) {
             return;
@@ -153,10 +209,16 @@ public class TemplateClassManager {
         if (!templateClass.isInner()) {
             ITemplateResource rsrc = templateClass.templateResource;
             Object key = rsrc.getKey();
+            if (rsrc instanceof StringTemplateResource) {
+                for (TemplateClass evicted : inlineIdx.put(key.toString(), templateClass)) {
+                    drop(evicted);
+                }
+                return;
+            }
             tmplIdx.put(key, templateClass);
             if (rsrc instanceof ClasspathTemplateResource) {
                 String key2 = ((ClasspathTemplateResource) rsrc).getKey2();
-                if (key != key2) {
+                if (null != key2 && key != key2) {
                     tmplIdx.put(key2, templateClass);
                 }
             }
@@ -179,7 +241,181 @@ public class TemplateClassManager {
             if (cn.matches(name0 + "v[0-9]+\\$.*")) embedded.add(cn);
         }
         for (String cn : embedded) clsNameIdx.remove(cn);
-        if (null != templateClass && null != templateClass.templateResource) tmplIdx.remove(templateClass.getKey());
+        if (null != templateClass && null != templateClass.templateResource) {
+            if (templateClass.isStringTemplate()) {
+                inlineIdx.remove(templateClass.getKey(), templateClass);
+            } else {
+                tmplIdx.remove(templateClass.getKey());
+            }
+        }
+    }
+
+    /**
+     * Unload a template class. All references to the template class and its embedded
+     * classes are dropped from the engine, so that they could be garbage collected once
+     * existing template instances are released. The template is loaded again on next use.
+     * <p/>
+     * <p>Note templates extending the unloaded template keep the classes of it loaded
+     * until they are unloaded as well</p>
+     *
+     * @param templateClass the root template class
+     */
+    public void unload(TemplateClass templateClass) {
+        if (null == templateClass || templateClass.isInner()) return;
+        ITemplateResource rsrc = templateClass.templateResource;
+        if (null != rsrc) {
+            Object key = rsrc.getKey();
+            if (rsrc instanceof StringTemplateResource) {
+                inlineIdx.remove(key.toString(), templateClass);
+            } else {
+                tmplIdx.remove(key);
+                if (rsrc instanceof ClasspathTemplateResource) {
+                    String key2 = ((ClasspathTemplateResource) rsrc).getKey2();
+                    if (null != key2) {
+                        tmplIdx.remove(key2);
+                    }
+                }
+            }
+        }
+        drop(templateClass);
+    }
+
+    private void drop(TemplateClass templateClass) {
+        if (logger.isTraceEnabled()) {
+            logger.trace("unload template class: %s", templateClass.name());
+        }
+        clsNameIdx.remove(templateClass.name());
+        for (TemplateClass embedded : templateClass.embeddedClasses()) {
+            clsNameIdx.remove(embedded.name());
+        }
+        engine.unregisterTemplateClass(templateClass);
+    }
+
+    private final Object segmentLock = new Object();
+
+    /**
+     * Return the class loader which defines the given root template class and its
+     * embedded classes. The class loader is created on demand and dropped when the
+     * template class is reset or the engine class loader is replaced
+     */
+    TemplateSegmentClassLoader segmentClassLoader(TemplateClass root) {
+        if (null == root || null == root.name() || !root.isClass()) {
+            return null;
+        }
+        TemplateClassLoader parent = engine.classLoader();
+        TemplateSegmentClassLoader l = root.classLoader;
+        if (null == l || l.getParent() != parent) {
+            // the root class and its embedded classes might be loaded concurrently
+            synchronized (segmentLock) {
+                l = root.classLoader;
+                if (null == l || l.getParent() != parent) {
+                    l = new TemplateSegmentClassLoader(parent, root);
+                    root.classLoader = l;
+                }
+            }
+        }
+        return l;
+    }
+
+    /**
+     * Compile template classes in batch. Instead of invoking the compiler once per template,
+     * templates are split into one shard per worker of the pool and each shard is compiled
+     * with a single compiler invocation. Templates extended by other templates are compiled
+     * first so that they are not compiled again by the shards of their sub templates.
+     * <p/>
+     * <p>In case a shard failed to compile, its templates are compiled one by one to report
+     * the error against the template</p>
+     *
+     * @param templateClasses the template classes to be compiled
+     * @param pool            the pool to run the compilation
+     * @param shards          the number of batches to split the templates into
+     */
+    public void compile(Collection<TemplateClass> templateClasses, ExecutorService pool, int shards) {
+        Set<TemplateClass> parents = new LinkedHashSet<TemplateClass>();
+        Set<TemplateClass> others = new LinkedHashSet<TemplateClass>();
+        for (TemplateClass tc : templateClasses) {
+            TemplateClass parent = tc.extendedTemplateClass;
+            while (null != parent) {
+                parents.add(parent);
+                parent = parent.extendedTemplateClass;
+            }
+            others.add(tc);
+        }
+        others.removeAll(parents);
+        compileShard(shardables(parents));
+        List<TemplateClass> l = shardables(others);
+        if (l.isEmpty()) return;
+        shards = Math.max(1, Math.min(shards, l.size()));
+        List<Callable<Void>> jobs = new ArrayList<Callable<Void>>(shards);
+        for (int i = 0; i < shards; ++i) {
+            final List<TemplateClass> shard = new ArrayList<TemplateClass>();
+            for (int j = i; j < l.size(); j += shards) {
+                shard.add(l.get(j));
+            }
+            jobs.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    compileShard(shard);
+                    return null;
+                }
+            });
+        }
+        invokeAll(pool, jobs);
+    }
+
+    /**
+     * Run jobs on the pool and wait for all of them to finish. The first failure is rethrown
+     */
+    public static <T> List<T> invokeAll(ExecutorService pool, List<? extends Callable<T>> jobs) {
+        List<T> results = new ArrayList<T>(jobs.size());
+        try {
+            for (Future<T> f : pool.invokeAll(jobs)) {
+                results.add(f.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            Throwable t = e.getCause();
+            if (t instanceof RuntimeException) throw (RuntimeException) t;
+            if (t instanceof Error) throw (Error) t;
+            throw new RuntimeException(t);
+        }
+        return results;
+    }
+
+    // return template classes in the collection that are indexed and yet to be compiled
+    private List<TemplateClass> shardables(Collection<TemplateClass> templateClasses) {
+        Set<String> names = new HashSet<String>();
+        List<TemplateClass> l = new ArrayList<TemplateClass>();
+        for (TemplateClass tc : templateClasses) {
+            String name = tc.name();
+            if (null == name || null != tc.javaByteCode || null != tc.enhancedByteCode || null == tc.javaSource) continue;
+            if (clsNameIdx.get(name) != tc || !names.add(name)) continue;
+            l.add(tc);
+        }
+        return l;
+    }
+
+    private void compileShard(List<TemplateClass> shard) {
+        if (shard.isEmpty()) return;
+        String[] names = new String[shard.size()];
+        for (int i = 0; i < names.length; ++i) {
+            names[i] = shard.get(i).name();
+        }
+        boolean engineSet = RythmEngine.set(engine);
+        try {
+            compiler.compile(names);
+        } catch (RuntimeException e) {
+            // compile one by one to find out the template caused the failure
+            for (TemplateClass tc : shard) {
+                tc.compile();
+            }
+        } finally {
+            if (engineSet) {
+                RythmEngine.clear();
+            }
+        }
     }
 
     public void remove(String name) {
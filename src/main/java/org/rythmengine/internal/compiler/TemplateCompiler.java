@@ -42,6 +42,7 @@ import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
 import org.eclipse.jdt.internal.compiler.problem.DefaultProblemFactory;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by IntelliJ IDEA.
@@ -58,7 +59,35 @@ public class TemplateCompiler {
         return classCache.engine;
     }
 
-    Map<String, Boolean> packagesCache = new HashMap<String, Boolean>();
+    Map<String, Boolean> packagesCache = new ConcurrentHashMap<String, Boolean>();
+
+    /*
+     * Parsed class files of the non template types, shared by all compilations
+     * of the engine. The cache is valid as long as the parent class loader of
+     * the template class loader does not change
+     */
+    final Map<String, ClassFileReader> classFileCache = new ConcurrentHashMap<String, ClassFileReader>();
+
+    private volatile ClassLoader cacheOwner;
+
+    /**
+     * Clear the cached class files and package lookups if the parent class loader of
+     * the template class loader changed since last compilation
+     */
+    private void checkCacheOwner() {
+        ClassLoader parent = engine().classLoader().getParent();
+        if (parent == cacheOwner) {
+            return;
+        }
+        synchronized (classFileCache) {
+            if (parent != cacheOwner) {
+                classFileCache.clear();
+                packagesCache.clear();
+                notFoundTypes.clear();
+                cacheOwner = parent;
+            }
+        }
+    }
 
     // -- util methods
     private String getTemplateByClassName(String className) {
@@ -158,13 +187,14 @@ public class TemplateCompiler {
         }
     }
 
-    final Set<String> notFoundTypes = new HashSet<String>();
+    final Set<String> notFoundTypes = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
     /**
      * Please compile this className
      */
     @SuppressWarnings("deprecation")
     public void compile(String[] classNames) {
+        checkCacheOwner();
 
         ICompilationUnit[] compilationUnits = new CompilationUnit[classNames.length];
         for (int i = 0; i < classNames.length; i++) {
@@ -203,10 +233,18 @@ public class TemplateCompiler {
                 if (notFoundTypes.contains(name)) {
                     return null;
                 }
+                ClassFileReader classFileReader = classFileCache.get(name);
+                if (null != classFileReader) {
+                    return new NameEnvironmentAnswer(classFileReader, null);
+                }
                 RythmEngine engine = engine();
                 byte[] bytes = engine.classLoader().getClassDefinition(name);
                 if (bytes != null) {
-                    ClassFileReader classFileReader = new ClassFileReader(bytes, name.toCharArray(), true);
+                    // fully initialized reader doesn't change after construction, thus could be shared
+                    classFileReader = new ClassFileReader(bytes, name.toCharArray(), true);
+                    if (!name.contains(TemplateClass.CN_SUFFIX)) {
+                        classFileCache.put(name, classFileReader);
+                    }
                     return new NameEnvironmentAnswer(classFileReader, null);
                 }
                 if (engine.isProdMode()) {
@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.internal.compiler;
+
+/*-
+ * #%L
+ * Rythm Template Engine
+ * %%
+ * Copyright (C) 2017 - 2021 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.rythmengine.RythmEngine;
+
+/**
+ * Defines the class of a template together with its embedded classes.
+ * <p/>
+ * <p>Each root template class gets its own class loader, which is managed by the
+ * {@link TemplateClassManager} and delegates all other classes to the engine's
+ * {@link TemplateClassLoader}. When the template is reloaded, unloaded or evicted
+ * from the {@link InlineTemplateCache}, the class loader is dropped. Once no template
+ * instance refers to the classes it defined, they could be garbage collected</p>
+ */
+class TemplateSegmentClassLoader extends ClassLoader {
+
+    static {
+        registerAsParallelCapable();
+    }
+
+    private final TemplateClassLoader parent;
+    private final TemplateClass root;
+
+    TemplateSegmentClassLoader(TemplateClassLoader parent, TemplateClass root) {
+        super(parent);
+        this.parent = parent;
+        this.root = root;
+    }
+
+    private boolean isMember(String name) {
+        String rootName = root.name();
+        return name.startsWith(rootName) && (name.length() == rootName.length() || name.charAt(rootName.length()) == '$');
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (!isMember(name)) {
+            return super.loadClass(name, resolve);
+        }
+        // lock the root first as the engine class loader does, see TemplateClassLoader.loadClass
+        synchronized (root) {
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> c = findLoadedClass(name);
+                if (null == c) {
+                    c = define(name);
+                }
+                if (resolve) {
+                    resolveClass(c);
+                }
+                return c;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Class<?> define(String name) throws ClassNotFoundException {
+        TemplateClass tc;
+        byte[] bc;
+        if (name.length() == root.name().length()) {
+            tc = root;
+            bc = root.enhancedByteCode;
+            if (null == bc && (null != root.javaByteCode || null != root.compile())) {
+                bc = root.enhance();
+            }
+        } else {
+            tc = root.embeddedClass(name);
+            if (null == tc) {
+                // the root class bytecode has been loaded from cache, try to find the inner class bytecode there
+                RythmEngine engine = parent.engine;
+                tc = TemplateClass.createInnerClass(name, null, root);
+                engine.classCache().loadTemplateClass(tc);
+            }
+            bc = tc.enhancedByteCode;
+            if (null == bc) {
+                bc = tc.javaByteCode;
+            }
+        }
+        if (null == bc) {
+            throw new ClassNotFoundException("Cannot find bytecode of template class: " + name);
+        }
+        Class<?> c = defineClass(name, bc, 0, bc.length, parent.protectionDomain);
+        tc.javaClass = (Class) c;
+        return c;
+    }
+}
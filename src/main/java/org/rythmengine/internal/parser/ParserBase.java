@@ -35,6 +35,9 @@ import org.rythmengine.logger.ILogger;
 import org.rythmengine.logger.Logger;
 import org.rythmengine.utils.S;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public abstract class ParserBase implements IParser {
@@ -84,6 +87,92 @@ public abstract class ParserBase implements IParser {
         return c_.getRemain();
     }
 
+    /**
+     * Create a regex to be matched by {@link #search(Regex)}. A regex starting with "^"
+     * is matched at the cursor only instead of being tried at every position of the
+     * remaining template source
+     *
+     * @param regex the regex, could be a format string
+     * @param args  the format args
+     * @return the regex
+     */
+    public static Regex regex(String regex, Object... args) {
+        if (0 < args.length) regex = String.format(regex, args);
+        return regex.startsWith("^") ? new AnchoredRegex(regex) : new Regex(regex);
+    }
+
+    /**
+     * A regex anchored at the cursor. It is public with a public default
+     * constructor as pat instantiates the regex class reflectively for sub patterns
+     */
+    public static final class AnchoredRegex extends Regex {
+        public AnchoredRegex() {
+        }
+
+        AnchoredRegex(String regex) {
+            super(regex);
+        }
+    }
+
+    /**
+     * Search the regex in the remaining template source without copying it
+     *
+     * @param r the regex
+     * @return true if the regex is found
+     * @see #regex(String, Object...)
+     */
+    protected final boolean search(Regex r) {
+        TemplateSourceView remain = c_.getRemainView();
+        return r instanceof AnchoredRegex && !r.getMFlag() ? r.matchAt(remain, 0) : r.search(remain);
+    }
+
+    /**
+     * Check the remaining template source starts with the prefix, e.g. the caret. It
+     * costs far less than compiling a regex, thus parsers use it to rule out a token
+     * before building the regexes to match it
+     *
+     * @param prefix the prefix
+     * @return true if the remaining source starts with the prefix
+     */
+    protected final boolean remainStartsWith(String prefix) {
+        return c_.getRemainView().startsWith(prefix);
+    }
+
+    private static final Map<String, Pattern> REMAIN_PATTERNS = new ConcurrentHashMap<String, Pattern>();
+
+    /**
+     * Match a regex against the whole remaining template source, e.g. a
+     * {@link org.rythmengine.extension.ICodeType#blockStart() code type block start}.
+     * The trailing <code>.*</code> such a regex ends with is dropped and the rest is
+     * matched at the cursor, thus the remaining source is neither copied nor scanned
+     * to its end
+     *
+     * @param regex the regex
+     * @return the matcher if the remaining source matches, or <code>null</code>
+     */
+    protected final Matcher matchRemain(String regex) {
+        boolean prefix = regex.endsWith(".*") && !regex.endsWith("\\.*");
+        Pattern p = REMAIN_PATTERNS.get(regex);
+        if (null == p) {
+            p = Pattern.compile(prefix ? regex.substring(0, regex.length() - 2) : regex, Pattern.DOTALL);
+            REMAIN_PATTERNS.put(regex, p);
+        }
+        if (prefix) return lookingAt(p);
+        Matcher m = p.matcher(c_.getRemainView());
+        return m.matches() ? m : null;
+    }
+
+    /**
+     * Match a pattern at the cursor without copying the remaining template source
+     *
+     * @param p the pattern
+     * @return the matcher if the pattern matches at the cursor, or <code>null</code>
+     */
+    protected final Matcher lookingAt(Pattern p) {
+        Matcher m = p.matcher(c_.getRemainView());
+        return m.lookingAt() ? m : null;
+    }
+
     protected final int currentLine() {
         return c_.currentLine();
     }
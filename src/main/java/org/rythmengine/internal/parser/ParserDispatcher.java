@@ -49,14 +49,14 @@ public class ParserDispatcher extends ParserBase {
 
     public ParserDispatcher(IContext context) {
         super(context);
-        P = pattern("\\n?[ \\t\\x0B\\f]*%s(%s)(\\s*|\\(|\\{).*", a(), Patterns.VarName);
+        P = pattern("\\n?[ \\t\\x0B\\f]*%s(%s)(\\s*|\\(|\\{)", a(), Patterns.VarName);
     }
     
     public F.T2<IParser, Token> go2() {
         DialectBase d = (DialectBase) dialect();
         IContext c = ctx();
-        Matcher m = P.matcher(remain());
-        if (m.matches()) {
+        Matcher m = P.matcher(c.getRemainView());
+        if (m.lookingAt()) {
             String s = m.group(1);
             IParser p = d.createBuildInParser(s, c);
             if (null != p) {
@@ -78,9 +78,8 @@ public class ArgsParser extends KeywordParserFactory {
              * parse @args String s...
              */
             public Token go() {
-                String remain = remain();
                 Regex r = new Regex(String.format("\\n?[ \\t\\x0B\\f]*%s%s(\\([ \t\f]*\\))?[ \t\f]*((?@{}))\\n?", a(), keyword()));
-                if (r.search(remain)) {
+                if (search(r)) {
                     String matched = r.stringMatched();
                     if (matched.startsWith("\n") || matched.endsWith("\n")) {
                         ctx.getCodeBuilder().addBuilder(new Token.StringToken("\n", ctx));
@@ -90,6 +89,7 @@ public class ArgsParser extends KeywordParserFactory {
                     step(matched.length());
                     return go2(s);
                 }
+                String remain = remain();
                 boolean startWithLineBreak = remain.startsWith("\n");
                 if (startWithLineBreak) {
                     remain = remain.substring(1);
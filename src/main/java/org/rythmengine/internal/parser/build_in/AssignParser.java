@@ -116,7 +116,7 @@ public class AssignParser extends KeywordParserFactory {
         return new ParserBase(ctx) {
             public Token go() {
                 Regex r = reg(dialect());
-                if (!r.search(remain()))
+                if (!search(r))
                     raiseParseException("bad @assign statement. Correct usage: @assign(myVariable){...}");
                 String matched = r.stringMatched();
                 step(matched.length());
@@ -37,8 +37,8 @@ import java.util.regex.Pattern;
 
 public class BlockCloseParser extends ParserBase {
 
-    private static final String PTN = "([\\}]?%s[\\}\\s\\n\\>\\]]).*";
-    private static final String PTN2 = "((\\}%s|%s\\}|\\})([ \\t\\x0B\\f]*\\{?[ \\t\\x0B\\f]*\\n?)).*";
+    private static final String PTN = "([\\}]?%s[\\}\\s\\n\\>\\]])";
+    private static final String PTN2 = "((\\}%s|%s\\}|\\})([ \\t\\x0B\\f]*\\{?[ \\t\\x0B\\f]*\\n?))";
 
     public BlockCloseParser(IContext context) {
         super(context);
@@ -49,17 +49,17 @@ public class BlockCloseParser extends ParserBase {
         IContext ctx = ctx();
         IBlockHandler bh = ctx.currentBlock();
         if (null == bh) return null;
-        String remain = remain();
+        CharSequence remain = ctx.getRemainView();
         String s;
-        if ("@".equals(remain)) {
-            s = remain;
+        if (remain.length() == 1 && '@' == remain.charAt(0)) {
+            s = "@";
         } else {
             Pattern p = Pattern.compile(String.format(PTN2, a(), a()), Pattern.DOTALL);
             Matcher m = p.matcher(remain);
-            if (!m.matches()) {
+            if (!m.lookingAt()) {
                 p = Pattern.compile(String.format(PTN, a()), Pattern.DOTALL);
                 m = p.matcher(remain);
-                if (!m.matches()) {
+                if (!m.lookingAt()) {
                     return null;
                 }
             }
@@ -42,15 +42,15 @@ import java.util.regex.Pattern;
  */
 public class BraceParser implements IParserFactory {
 
-    private final Pattern P = Pattern.compile("^((\\n[ \\t\\x0B\\f]*\\}[ \\t\\x0B\\f]*)\\n).*", Pattern.DOTALL);
+    private final Pattern P = Pattern.compile("^((\\n[ \\t\\x0B\\f]*\\}[ \\t\\x0B\\f]*)\\n)", Pattern.DOTALL);
+    private static final Pattern P_LINE_BREAK = Pattern.compile("^[ \\t\\x0B\\f]*\\n", Pattern.DOTALL);
 
     @Override
     public IParser create(final IContext ctx) {
         return new ParserBase(ctx) {
             @Override
             public Token go() {
-                String remain = remain();
-                char c = remain.charAt(0);
+                char c = peek();
                 if ('{' == c) {
                     step(1);
 //                    if (ctx().getCodeBuilder().lastIsBlockToken()) {
@@ -96,10 +96,9 @@ public class BraceParser implements IParserFactory {
                                 ctx.getCodeBuilder().removeSpaceTillLastLineBreak(ctx);
                                 ct.removeNextLineBreak = true;
                             } else if (bhCls.contains("Assign")) {
-                                remain = ctx.getRemain();
-                                Matcher m = Pattern.compile("(^[ \\t\\x0B\\f]*\\n).*", Pattern.DOTALL).matcher(remain);
-                                if (m.matches()) {
-                                    String space = m.group(1);
+                                Matcher m = P_LINE_BREAK.matcher(ctx.getRemainView());
+                                if (m.lookingAt()) {
+                                    String space = m.group();
                                     step(space.length());
                                 }
                             } else {
@@ -112,8 +111,8 @@ public class BraceParser implements IParserFactory {
                             }
                         }
                     } else if (null != bh && !isLiteral) {
-                        Matcher m = P.matcher(remain);
-                        if (m.matches()) {
+                        Matcher m = P.matcher(ctx.getRemainView());
+                        if (m.lookingAt()) {
                             CodeBuilder cb = ctx.getCodeBuilder();
                             String bhCls = bh.getClass().getName();
                             String s = m.group(2);
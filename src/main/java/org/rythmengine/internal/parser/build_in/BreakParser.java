@@ -49,7 +49,7 @@ public class BreakParser extends KeywordParserFactory {
         return new RemoveLeadingLineBreakAndSpacesParser(c) {
             public Token go() {
                 Regex r = reg(dialect());
-                if (!r.search(remain())) {
+                if (!search(r)) {
                     raiseParseException("Bad @break statement. Correct usage: @break()");
                 }
                 String matched = r.stringMatched();
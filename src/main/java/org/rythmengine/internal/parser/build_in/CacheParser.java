@@ -147,7 +147,7 @@ public class CacheParser extends KeywordParserFactory {
             @Override
             public Token go() {
                 Regex r = reg(dialect());
-                if (!r.search(remain())) {
+                if (!search(r)) {
                     raiseParseException("Error parsing @cache statement. Correct usage: @cache (\"duration_string\") {cache block}");
                 }
                 String matched = r.stringMatched();
@@ -31,10 +31,7 @@ import org.rythmengine.internal.Token;
 import org.rythmengine.internal.parser.CodeToken;
 import org.rythmengine.internal.parser.ParserBase;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Detect if a type block is ended put
@@ -51,29 +48,20 @@ public class CodeTypeBlockEndSensor extends ParserBase {
         super(context);
     }
 
-    private static Map<String, Pattern> patterns = new HashMap<String, Pattern>();
-
     @Override
     public Token go() {
         IContext ctx = ctx();
         ICodeType curType = ctx.peekCodeType();
         if (curType.allowedExternalTypes().isEmpty()) return null;
 
-        String remain = ctx.getRemain();
-
         String blockEnd = curType.blockEnd();
         if (null == blockEnd) {
             logger.warn("null block end found for type[%s]", curType);
             return null;
         }
 
-        Pattern p = patterns.get(blockEnd);
-        if (null == p) {
-            p = Pattern.compile(blockEnd, Pattern.DOTALL);
-            patterns.put(blockEnd, p);
-        }
-        Matcher m = p.matcher(remain);
-        if (m.matches()) {
+        Matcher m = matchRemain(blockEnd);
+        if (null != m) {
             String matched = m.group(1);
             ctx.step(matched.length());
             ctx.popCodeType();
@@ -31,8 +31,6 @@ import org.rythmengine.internal.Token;
 import org.rythmengine.internal.parser.CodeToken;
 import org.rythmengine.internal.parser.ParserBase;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -51,15 +49,12 @@ public class CodeTypeBlockStartSensor extends ParserBase {
         super(context);
     }
 
-    private static Map<String, Pattern> patterns = new HashMap<String, Pattern>();
-
     @Override
     public Token go() {
         IContext ctx = ctx();
         ICodeType curType = ctx.peekCodeType();
         if (!curType.allowInternalTypeBlock()) return null;
 
-        String remain = ctx.getRemain();
         Iterable<ICodeType> types = ctx.getEngine().extensionManager().templateLangs();
 
         for (ICodeType type : types) {
@@ -70,13 +65,8 @@ public class CodeTypeBlockStartSensor extends ParserBase {
                     continue;
                 }
 
-                Pattern pStart = patterns.get(blockStart);
-                if (null == pStart) {
-                    pStart = Pattern.compile(blockStart, Pattern.DOTALL);
-                    patterns.put(blockStart, pStart);
-                }
-                Matcher m = pStart.matcher(remain);
-                if (m.matches()) {
+                Matcher m = matchRemain(blockStart);
+                if (null != m) {
                     ctx.pushCodeType(type);
                     String matched = m.group(1);
                     ctx.step(matched.length());
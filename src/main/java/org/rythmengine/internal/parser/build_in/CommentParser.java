@@ -31,7 +31,6 @@ import org.rythmengine.internal.Token;
 import org.rythmengine.internal.parser.RemoveLeadingLineBreakAndSpacesParser;
 
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * CommentParser deals with the following type comments:
@@ -42,16 +41,14 @@ import java.util.regex.Pattern;
  * Time: 3:04 PM
  */
 public class CommentParser extends CaretParserFactoryBase {
-	public static final String COMMENT_FORMAT="^(%s/.*?)(\n.*|$)";
+	public static final String COMMENT_FORMAT="^(%s/.*?)(\n|$).*";
     public IParser create(final IContext ctx) {
         return new RemoveLeadingLineBreakAndSpacesParser(ctx) {
             public Token go() {
-                Pattern p = inlineComment();
-                Matcher m = p.matcher(remain());
-                if (!m.matches()) {
-                    p = blockComment();
-                    m = p.matcher(remain());
-                    if (!m.matches()) return null;
+                Matcher m = matchRemain(String.format(COMMENT_FORMAT, a()));
+                if (null == m) {
+                    m = matchRemain(String.format("^(%s\\*.*?\\*%s).*", a(), a()));
+                    if (null == m) return null;
                 } else {
                     // special process to directive comments
                     if (ctx.insideDirectiveComment()) {
@@ -62,22 +59,6 @@ public class CommentParser extends CaretParserFactoryBase {
                 ctx.step(s.length());
                 return Token.EMPTY_TOKEN;
             }
-
-            private Pattern inlineComment() {
-            	String a=a();
-            	Pattern result = Pattern.compile(String.format(COMMENT_FORMAT, a), Pattern.DOTALL);
-                return result;
-//                IContext ctx = ctx();
-//                if (ctx.insideDirectiveComment()) {
-//                    return Pattern.compile(String.format("^(%s//.*?)(%s|\n).*", a(), S.escapeRegex(ctx.peekCodeType().commentEnd())), Pattern.DOTALL);
-//                } else {
-//                    return Pattern.compile(String.format("^(%s//.*?)\n.*", a()), Pattern.DOTALL);
-//                }
-            }
-
-            private Pattern blockComment() {
-                return Pattern.compile(String.format("^(%s\\*.*?\\*%s).*", a(), a()), Pattern.DOTALL);
-            }
         };
     }
 }
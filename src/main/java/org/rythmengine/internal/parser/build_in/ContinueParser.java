@@ -49,7 +49,7 @@ public class ContinueParser extends KeywordParserFactory {
         return new RemoveLeadingLineBreakAndSpacesParser(c) {
             public Token go() {
                 Regex r = reg(dialect());
-                if (r.search(remain())) {
+                if (search(r)) {
                     step(r.stringMatched().length());
                     String condition = r.stringMatched(3);
                     if (null != condition) {
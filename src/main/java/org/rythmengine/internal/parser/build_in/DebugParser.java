@@ -53,7 +53,7 @@ public class DebugParser extends KeywordParserFactory implements IRemoveLeadingL
         return new ParserBase(ctx) {
             public Token go() {
                 Regex r = reg(dialect());
-                if (!r.search(remain())) {
+                if (!search(r)) {
                     raiseParseException("error parsing @debug, correct usage: @debug(\"msg\", args...)");
                 }
                 String matched = r.stringMatched();
@@ -99,12 +99,43 @@ public class DefTagParser extends KeywordParserFactory {
         return Keyword.TAG;
     }
 
+    /*
+     * Return the code block following a tag declaration prefixed with "{", i.e. the
+     * remaining source up to the brace closing the declaration, or in short notation
+     * the remaining source up to the next "@" prefixed with "@". A backslash escapes
+     * the next char. Returns null if the block is not closed
+     */
+    private static String codeBlock(IContext ctx) {
+        TemplateSourceView remain = ctx.getRemainView();
+        int len = remain.length();
+        int depth = 1;
+        for (int i = 0; i < len; ++i) {
+            char c = remain.charAt(i);
+            if ('\\' == c) {
+                i++;
+            } else if ('{' == c) {
+                depth++;
+            } else if ('}' == c && --depth == 0) {
+                return "{" + remain.substring(0, i + 1);
+            }
+        }
+        for (int i = 0; i < len; ++i) {
+            char c = remain.charAt(i);
+            if ('\\' == c) {
+                i++;
+            } else if ('@' == c) {
+                return "@" + remain.substring(0, i + 1);
+            }
+        }
+        return null;
+    }
+
     public IParser create(final IContext ctx) {
         return new ParserBase(ctx) {
 
             private Token goClass() {
-                Regex r = new Regex(String.format(classPatternStr(), dialect().a(), keyword()));
-                if (!r.search(remain())) {
+                Regex r = regex(classPatternStr(), dialect().a(), keyword());
+                if (!search(r)) {
                     return goStaticCode();
                 }
                 final String matched = r.stringMatched();
@@ -128,16 +159,10 @@ public class DefTagParser extends KeywordParserFactory {
                 }
                 step(matched.length());
                 String className = r.stringMatched(6);
-                r = new Regex("^(\\s*((?@{})))");
-                String remain = ctx.getRemain();
-                if (!r.search("{" + remain)) {
-                    // short notation?
-                    r = new Regex("^(\\s*((?@@@)))");
-                    if (!r.search("@" + remain)) {
-                        this.raiseParseException("code blocked expected after @def tag");
-                    }
+                String s = codeBlock(ctx);
+                if (null == s) {
+                    this.raiseParseException("code blocked expected after @def tag");
                 }
-                String s = r.stringMatched(1);
                 int curLine = ctx().currentLine();
                 ctx().step(s.length() - 1);
                 if (s.startsWith("{")) {
@@ -145,7 +170,6 @@ public class DefTagParser extends KeywordParserFactory {
                 } else {
                     while (ctx().peek() != '@') ctx().step(-1);
                 }
-                s = r.stringMatched(2);
                 s = s.substring(1); // strip left "{"
                 s = s.substring(0, s.length() - 1); // strip right "}"
                 String[] lines = s.split("[\\n\\r]+");
@@ -159,8 +183,8 @@ public class DefTagParser extends KeywordParserFactory {
             }
 
             private Token goStaticCode () {
-                Regex r = new Regex(String.format(staticCodePatternStr(), dialect().a(), keyword()));
-                if (!r.search(remain())) {
+                Regex r = regex(staticCodePatternStr(), dialect().a(), keyword());
+                if (!search(r)) {
                     raiseParseException("Error parsing @def, correct usage: @def (class|[type] tagName)([arguments...])");
                 }
                 final String matched = r.stringMatched();
@@ -183,16 +207,10 @@ public class DefTagParser extends KeywordParserFactory {
                     }
                 }
                 step(matched.length());
-                r = new Regex("^(\\s*((?@{})))");
-                String remain = ctx.getRemain();
-                if (!r.search("{" + remain)) {
-                    // short notation?
-                    r = new Regex("^(\\s*((?@@@)))");
-                    if (!r.search("@" + remain)) {
-                        this.raiseParseException("code blocked expected after @def tag");
-                    }
+                String s = codeBlock(ctx);
+                if (null == s) {
+                    this.raiseParseException("code blocked expected after @def tag");
                 }
-                String s = r.stringMatched(1);
                 int curLine = ctx().currentLine();
                 ctx().step(s.length() - 1);
                 if (s.startsWith("{")) {
@@ -200,7 +218,6 @@ public class DefTagParser extends KeywordParserFactory {
                 } else {
                     while (ctx().peek() != '@') ctx().step(-1);
                 }
-                s = r.stringMatched(2);
                 s = s.substring(1); // strip left "{"
                 s = s.substring(0, s.length() - 1); // strip right "}"
                 String[] lines = s.split("[\\n\\r]+");
@@ -215,7 +232,7 @@ public class DefTagParser extends KeywordParserFactory {
 
             public Token go() {
                 Regex r = reg(dialect());
-                if (!r.search(remain())) {
+                if (!search(r)) {
                     return goClass();
                 }
                 final String matched = r.stringMatched();
@@ -242,16 +259,10 @@ public class DefTagParser extends KeywordParserFactory {
                 String tagName = r.stringMatched(6);
                 String signature = r.stringMatched(7);
                 if (null != retType && !"void".equals(retType)) {
-                    r = new Regex("^(\\s*((?@{})))");
-                    String remain = ctx.getRemain();
-                    if (!r.search("{" + remain)) {
-                        // short notation?
-                        r = new Regex("^(\\s*((?@@@)))");
-                        if (!r.search("@" + remain)) {
-                            this.raiseParseException("code blocked expected after @def tag");
-                        }
+                    String s = codeBlock(ctx);
+                    if (null == s) {
+                        this.raiseParseException("code blocked expected after @def tag");
                     }
-                    String s = r.stringMatched(1);
                     int curLine = ctx().currentLine();
                     ctx().step(s.length() - 1);
                     if (s.startsWith("{")) {
@@ -259,7 +270,6 @@ public class DefTagParser extends KeywordParserFactory {
                     } else {
                         while (ctx().peek() != '@') ctx().step(-1);
                     }
-                    s = r.stringMatched(2);
                     s = s.substring(1); // strip left "{"
                     s = s.substring(0, s.length() - 1); // strip right "}"
                     r = new Regex(".*[ \\t\\n\\r\\}]+if[ \\t]*\\(.*");
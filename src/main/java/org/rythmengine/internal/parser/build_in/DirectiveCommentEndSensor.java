@@ -31,10 +31,7 @@ import org.rythmengine.internal.Token;
 import org.rythmengine.internal.parser.RemoveLeadingLineBreakAndSpacesParser;
 import org.rythmengine.utils.S;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Detect if a directive comment is closed and strip
@@ -46,8 +43,6 @@ public class DirectiveCommentEndSensor extends RemoveLeadingLineBreakAndSpacesPa
         super(context);
     }
 
-    private static Map<String, Pattern> patterns = new HashMap<String, Pattern>();
-
     @Override
     public Token go() {
         IContext ctx = ctx();
@@ -60,13 +55,8 @@ public class DirectiveCommentEndSensor extends RemoveLeadingLineBreakAndSpacesPa
             if (!S.empty(s)) {
                 s = S.escapeRegex(s).toString();
                 s = "(\\s*" + s + ")" + ".*";
-                Pattern p = patterns.get(s);
-                if (null == p) {
-                    p = Pattern.compile(s, Pattern.DOTALL);
-                    patterns.put(s, p);
-                }
-                Matcher m = p.matcher(remain());
-                if (m.matches()) {
+                Matcher m = matchRemain(s);
+                if (null != m) {
                     s = m.group(1);
                     ctx.step(s.length());
                     ctx.leaveDirectiveComment();
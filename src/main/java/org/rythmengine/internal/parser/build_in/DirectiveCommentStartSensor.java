@@ -31,10 +31,7 @@ import org.rythmengine.internal.Token;
 import org.rythmengine.internal.parser.RemoveLeadingLineBreakAndSpacesParser;
 import org.rythmengine.utils.S;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Detect if a directive comment is reached and strip
@@ -49,8 +46,6 @@ public class DirectiveCommentStartSensor extends RemoveLeadingLineBreakAndSpaces
         super(context);
     }
 
-    private static Map<String, Pattern> patterns = new HashMap<String, Pattern>();
-
     @Override
     public Token go() {
         IContext ctx = ctx();
@@ -65,13 +60,8 @@ public class DirectiveCommentStartSensor extends RemoveLeadingLineBreakAndSpaces
                 sCommentStart = S.escapeRegex(sCommentStart).toString();
                 // try <!-- @ first
                 String s = "(" + sCommentStart + "\\s*" + ")" + ctx.getDialect().a() + ".*";
-                Pattern p = patterns.get(s);
-                if (null == p) {
-                    p = Pattern.compile(s, Pattern.DOTALL);
-                    patterns.put(s, p);
-                }
-                Matcher m = p.matcher(remain());
-                if (m.matches()) {
+                Matcher m = matchRemain(s);
+                if (null != m) {
                     s = m.group(1);
                     ctx.step(s.length());
                     ctx.enterDirectiveComment();
@@ -79,13 +69,8 @@ public class DirectiveCommentStartSensor extends RemoveLeadingLineBreakAndSpaces
                 }
                 // try <!-- }
                 s = "(" + sCommentStart + "\\s*)\\}.*";
-                p = patterns.get(s);
-                if (null == p) {
-                    p = Pattern.compile(s, Pattern.DOTALL);
-                    patterns.put(s, p);
-                }
-                m = p.matcher(remain());
-                if (m.matches()) {
+                m = matchRemain(s);
+                if (null != m) {
                     s = m.group(1);
                     ctx.step(s.length());
                     ctx.enterDirectiveComment();
@@ -51,11 +51,11 @@ public class ElseForParser extends CaretParserFactoryBase {
                 if (null == bh || !(bh instanceof ForEachCodeToken)) return null;
 
                 String a = dialect().a();
-                Regex r = new Regex(String.format("^((\\n\\r|\\r\\n|[\\n\\r])?(%s\\}?|%s?\\})\\s*(else([ \\t\\x0B\\f]*\\{?[ \\t\\x0B\\f]*\\n?))).*", a, a));
+                if (!ElseIfParser.elseAhead(ctx, a)) return null;
+                Regex r = regex("^((\\n\\r|\\r\\n|[\\n\\r])?(%s\\}?|%s?\\})\\s*(else([ \\t\\x0B\\f]*\\{?[ \\t\\x0B\\f]*\\n?))).*", a, a);
 
-                String s = ctx.getRemain();
                 String s1;
-                if (r.search(s)) {
+                if (search(r)) {
                     s1 = r.stringMatched(1);
                     if (null == s1) return null;
                     step(s1.length());
@@ -67,7 +67,7 @@ public class ElseForParser extends CaretParserFactoryBase {
 
                 try {
                     ctx.closeBlock();
-                    s1 = "\n\t}\n} else {\n";
+                    s1 = ((ForEachCodeToken) bh).closeBlockAndOpenElse();
                 } catch (ParseException e) {
                     throw new RuntimeException(e);
                 }
@@ -30,6 +30,7 @@ import org.rythmengine.exception.ParseException;
 import org.rythmengine.internal.IBlockHandler;
 import org.rythmengine.internal.IContext;
 import org.rythmengine.internal.IParser;
+import org.rythmengine.internal.TemplateSourceView;
 import org.rythmengine.internal.Token;
 import org.rythmengine.internal.parser.Patterns;
 import org.rythmengine.internal.parser.RemoveLeadingLineBreakAndSpacesParser;
@@ -55,17 +56,17 @@ public class ElseIfParser extends CaretParserFactoryBase {
                 if (null == bh || !(bh instanceof IfParser.IfBlockCodeToken)) return null;
 
                 String a = dialect().a();
+                if (!elseAhead(ctx, a)) return null;
                 //Regex rLF = new Regex("^(\\n\\r|\\r\\n|[\\n\\r]).*");
-                Regex r1 = new Regex(String.format("^((\\n\\r|\\r\\n|[\\n\\r])?[ \\t\\x0B\\f]*(%s\\}?|%s?\\})\\s*(else\\s*if\\s*" + Patterns.Expression + "[ \\t\\x0B\\f]*\\{?[ \\t\\x0B\\f]*\\n?)).*", a, a));
-                Regex r2 = new Regex(String.format("^((\\n\\r|\\r\\n|[\\n\\r])?[ \\t\\x0B\\f]*(%s\\}?|%s?\\})\\s*(else([ \\t\\x0B\\f]*\\{?[ \\t\\x0B\\f]*\\n?))).*", a, a));
+                Regex r1 = regex("^((\\n\\r|\\r\\n|[\\n\\r])?[ \\t\\x0B\\f]*(%s\\}?|%s?\\})\\s*(else\\s*if\\s*" + Patterns.Expression + "[ \\t\\x0B\\f]*\\{?[ \\t\\x0B\\f]*\\n?)).*", a, a);
+                Regex r2 = regex("^((\\n\\r|\\r\\n|[\\n\\r])?[ \\t\\x0B\\f]*(%s\\}?|%s?\\})\\s*(else([ \\t\\x0B\\f]*\\{?[ \\t\\x0B\\f]*\\n?))).*", a, a);
 
-                final String s = ctx.getRemain();
                 int line = ctx.currentLine();
                 String s1;
                 boolean expression = false;
                 boolean needsToProcessFollowingOpenBrace;
                 final String matched;
-                if (r1.search(s)) {
+                if (search(r1)) {
                     s1 = r1.stringMatched(1);
                     matched = s1;
                     if (null == s1) return null;
@@ -73,7 +74,7 @@ public class ElseIfParser extends CaretParserFactoryBase {
                     needsToProcessFollowingOpenBrace = !s1.trim().endsWith("{");
                     s1 = r1.stringMatched(4);
                     expression = true;
-                } else if (r2.search(s)) {
+                } else if (search(r2)) {
                     s1 = r2.stringMatched(1);
                     if (null == s1) return null;
                     matched = s1;
@@ -129,4 +130,17 @@ public class ElseIfParser extends CaretParserFactoryBase {
 
         };
     }
+
+    /*
+     * The else clause starts with the caret or the closing brace after spaces and line
+     * breaks. Check it before the else regexes get compiled
+     */
+    static boolean elseAhead(IContext ctx, String caret) {
+        TemplateSourceView remain = ctx.getRemainView();
+        int len = remain.length(), i = 0;
+        while (i < len && " \t\u000B\f\r\n".indexOf(remain.charAt(i)) > -1) i++;
+        if (i == len) return false;
+        if ('}' == remain.charAt(i)) return true;
+        return i + caret.length() <= len && caret.equals(remain.substring(i, i + caret.length()));
+    }
 }
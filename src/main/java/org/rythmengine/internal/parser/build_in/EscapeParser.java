@@ -48,7 +48,7 @@ public class EscapeParser extends KeywordParserFactory {
         return new ParserBase(ctx) {
             public Token go() {
                 Regex r = reg(dialect());
-                if (!r.search(remain())) return null;
+                if (!search(r)) return null;
                 final String matched = r.stringMatched();
                 if (matched.startsWith("\n") || matched.endsWith("\n")) {
                     ctx.getCodeBuilder().addBuilder(new Token.StringToken("\n", ctx));
@@ -52,7 +52,7 @@ public class ExecParser extends KeywordParserFactory {
         return new RemoveLeadingLineBreakAndSpacesParser(ctx) {
             public Token go() {
                 Regex r = reg(dialect());
-                if (!r.search(remain())) {
+                if (!search(r)) {
                     raiseParseException("Error parsing @exec statement. Correct usage: @exec(myMacro)");
                 }
                 final int curLine = ctx().currentLine();
@@ -41,7 +41,7 @@ public class ExitIfNoClassParser extends KeywordParserFactory {
         return new RemoveLeadingLineBreakAndSpacesParser(ctx) {
             public Token go() {
                 Regex r = reg(dialect());
-                if (!r.search(remain())) {
+                if (!search(r)) {
                     raiseParseException("error parsing @debug, correct usage: @__exitIfNoClass__(My.Class.Name)");
                 }
                 step(r.stringMatched().length());
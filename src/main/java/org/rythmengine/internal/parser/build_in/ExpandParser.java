@@ -52,7 +52,7 @@ public class ExpandParser extends KeywordParserFactory {
         return new RemoveLeadingLineBreakAndSpacesParser(c) {
             public Token go() {
                 Regex r = reg(dialect());
-                if (!r.search(remain())) {
+                if (!search(r)) {
                     raiseParseException("Error parsing @expand statement. Correct usage: @expand(\"my-macro\")");
                 }
                 final int curLine = ctx().currentLine();
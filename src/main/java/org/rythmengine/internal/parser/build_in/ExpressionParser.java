@@ -63,11 +63,12 @@ public class ExpressionParser extends CaretParserFactoryBase {
         return s;
     }
 
-    static class ExpressionToken extends CodeToken {
+    public static class ExpressionToken extends CodeToken {
 
         public ExpressionToken(String s, IContext context) {
             super(s, context);
             checkRestrictedClass(ctx, s);
+            checkDynaExpAtParseTime();
             if (s.contains("_utils.sep(\"")) return;
             if (context.getDialect() instanceof BasicRythm) {
                 if (s.startsWith("(")) {
@@ -120,26 +121,20 @@ public class ExpressionParser extends CaretParserFactoryBase {
     @Override
     public IParser create(IContext ctx) {
 
-        Regex r1_ = null, r2_ = null;
-        String caret_ = null;
         final IDialect dialect = ctx.getDialect();
-        if (dialect instanceof Rythm || dialect instanceof SimpleRythm) {
-            caret_ = dialect.a();
-            r1_ = new Regex(String.format(patternStr(), caret_));
-            r2_ = new Regex(String.format("^(%s(?@())).*", caret_));
-        }
-        final Regex r1 = r1_, r2 = r2_;
-        final String caret = caret_;
-        if (null == r1 || null == r2) {
+        if (!(dialect instanceof Rythm || dialect instanceof SimpleRythm)) {
             throw new DialectNotSupportException(dialect.id());
         }
+        final String caret = dialect.a();
 
         return new ParserBase(ctx) {
 
             @Override
             public Token go() {
-                String s = remain();
-                if (r1.search(s)) {
+                if (!remainStartsWith(caret)) return null;
+                Regex r1 = regex(patternStr(), caret);
+                String s;
+                if (search(r1)) {
                     s = r1.stringMatched();
                     if (s.length() > 0) {
 //                        String s0 = s.substring(1);
@@ -157,8 +152,8 @@ public class ExpressionParser extends CaretParserFactoryBase {
                         }
                     }
                 }
-                s = remain();
-                if (r2.search(s)) {
+                Regex r2 = regex("^(%s(?@())).*", caret);
+                if (search(r2)) {
                     s = r2.stringMatched(1);
                     if (null != s && !"@".equals(s.trim())) {
                         step(s.length());
@@ -52,7 +52,7 @@ public class ExtendsParser extends KeywordParserFactory {
         return new RemoveLeadingLineBreakAndSpacesParser(ctx) {
             public Token go() {
                 Regex r = reg(dialect());
-                if (!r.search(remain())) {
+                if (!search(r)) {
                     error(ctx());
                 }
                 final int lineNo = currentLine();
@@ -61,7 +61,7 @@ public class ExtendsParser extends KeywordParserFactory {
                 if (null == s) {
                     error(ctx());
                 }
-                r = innerPattern;
+                r = new Regex(INNER_PATTERN); // Regex is not thread safe, don't share innerPattern
                 if (!r.search(s)) error(ctx());
 
                 // process extend target
@@ -100,7 +100,8 @@ public class ExtendsParser extends KeywordParserFactory {
         return "(^\\n?[ \\t\\x0B\\f]*%s%s)\\s*((?@())[\\s\\r\\n;]*)";
     }
 
-    protected static Regex innerPattern = new Regex("\\((.*?)\\s*(,\\s*(.*))?\\)");
+    private static final String INNER_PATTERN = "\\((.*?)\\s*(,\\s*(.*))?\\)";
+    protected static Regex innerPattern = new Regex(INNER_PATTERN);
     protected static Regex argsPattern = new Regex("\\G(,\\s*)?((([a-zA-Z_][\\w$_]*)\\s*[=:]\\s*)?((?@())|'.'|(?@\"\")|[0-9\\.]+[l]?|[a-zA-Z_][a-zA-Z0-9_\\.]*(?@())*(?@[])*(?@())*(\\.[a-zA-Z][a-zA-Z0-9_\\.]*(?@())*(?@[])*(?@())*)*))");
 
     protected String patternStr0() {
@@ -32,9 +32,14 @@ import org.rythmengine.internal.TemplateParser;
 import org.rythmengine.internal.Token;
 import org.rythmengine.internal.dialect.BasicRythm;
 import org.rythmengine.internal.parser.BlockCodeToken;
+import org.rythmengine.utils.Range;
 import org.rythmengine.utils.S;
 import com.stevesoft.pat.Regex;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
 public class ForEachCodeToken extends BlockCodeToken {
 
     private String type;
@@ -42,8 +47,41 @@ public class ForEachCodeToken extends BlockCodeToken {
     private String varname;
     private String iterable;
     private String joinSep;
-//    private int openPos;
-//    private int closePos;
+    // the range expression, e.g. "1 to 10", when iterable is a range
+    private String rangeExpr;
+    // the declared type of the iterable when it is a render arg
+    private String iterableDeclType;
+    private int openPos;
+    // the template source of the loop body, set when the block is closed
+    private String body;
+    private boolean pushItrVar = true;
+    // the number of dynamic expressions parsed before the loop body
+    private int dynaExpCount;
+
+    private static final Map<String, String> primitives = new HashMap<String, String>();
+    static {
+        String[] sa = {"int", "long", "short", "byte", "float", "double", "char", "boolean"};
+        String[] boxed = {"Integer", "Long", "Short", "Byte", "Float", "Double", "Character", "Boolean"};
+        for (int i = 0; i < sa.length; ++i) {
+            primitives.put(sa[i], sa[i]);
+            primitives.put(boxed[i], sa[i]);
+            primitives.put("java.lang." + boxed[i], sa[i]);
+        }
+    }
+
+    private static final Map<String, String> boxedTypes = new HashMap<String, String>();
+    static {
+        boxedTypes.put("int", "Integer");
+        boxedTypes.put("long", "Long");
+        boxedTypes.put("short", "Short");
+        boxedTypes.put("byte", "Byte");
+        boxedTypes.put("float", "Float");
+        boxedTypes.put("double", "Double");
+        boxedTypes.put("char", "Character");
+        boxedTypes.put("boolean", "Boolean");
+    }
+
+    private static final Pattern P_LIST_TYPE = Pattern.compile("^(java\\.util\\.(concurrent\\.)?)?(List|ArrayList|LinkedList|Vector|Stack|CopyOnWriteArrayList)(\\s*<.*>)?$");
 
     /**
      * @param type
@@ -67,11 +105,13 @@ public class ForEachCodeToken extends BlockCodeToken {
         this.type = objectType(type);
         this.varname = null == varname ? "_" : varname.trim();
         if (iterable.contains("..") || iterable.contains(" to ") || iterable.contains(" till ")) {
+            rangeExpr = iterable;
             iterable = "org.rythmengine.utils.Range.valueOf(\"" + iterable + "\")";
             iterableType = "Range";
         }
         this.iterable = iterable;
-        //openPos = context.cursor();
+        openPos = context.cursor();
+        dynaExpCount = context.getCodeBuilder().dynaExpCount();
         IContext ctx = context;
         ctx.pushBreak(IContext.Break.BREAK);
         ctx.pushContinue(IContext.Continue.CONTINUE);
@@ -114,6 +154,9 @@ public class ForEachCodeToken extends BlockCodeToken {
             ExpressionParser.assertBasic(iterable, context);
             context.getCodeBuilder().addRenderArgsIfNotDeclared(line, "Iterable<?>", iterable);
         }
+        if (null == rangeExpr) {
+            iterableDeclType = cb.getRenderArgType(iterable);
+        }
     }
 
     private String objectType(String type) {
@@ -129,6 +172,69 @@ public class ForEachCodeToken extends BlockCodeToken {
         return type;
     }
 
+    /**
+     * Check if the loop body might reference the loop helper variable specified.
+     * <p>If body is not available or it contains code fragment
+     * that cannot be inspected (e.g. include or macro), then assume
+     * the variable is referenced</p>
+     *
+     * @param var the loop helper variable name
+     * @return <code>true</code> if the loop helper variable might be referenced
+     */
+    private boolean uses(String var) {
+        if (null == body) return true;
+        return Pattern.compile("(?<![\\w$])" + Pattern.quote(var) + "(?![\\w$])").matcher(body).find();
+    }
+
+    /**
+     * Check if the loop variable shall be declared with boxed type even the
+     * elements are primitive values, e.g. when the loop body calls method on
+     * the loop variable or compares it with <code>null</code>
+     */
+    private boolean needsBoxedLoopVar() {
+        if (null == body) return true;
+        if (body.contains("null")) return true;
+        return Pattern.compile("(?<![\\w$])" + Pattern.quote(varname) + "\\s*\\.").matcher(body).find();
+    }
+
+    private static String primitiveOf(String type) {
+        return null == type ? null : primitives.get(type.trim());
+    }
+
+    /**
+     * Evaluate the range expression at code generation time
+     *
+     * @return <code>{min, maxExclusive}</code> if the range expression is a literal or
+     * <code>null</code> otherwise
+     */
+    private int[] rangeBounds() {
+        if (null == rangeExpr) return null;
+        try {
+            Range r = Range.valueOf(rangeExpr);
+            Object min = r.min(), max = r.max();
+            if (min instanceof Integer) {
+                return new int[]{(Integer) min, (Integer) max};
+            } else if (min instanceof Character) {
+                return new int[]{(Character) min, (Character) max};
+            }
+        } catch (RuntimeException e) {
+            // not a literal range expression, e.g. contains variables
+        }
+        return null;
+    }
+
+    private void closeBody() {
+        if (null != body) return;
+        String s = ctx.getTemplateSource(openPos, ctx.cursor());
+        CodeBuilder cb = ctx.getCodeBuilder();
+        if (s.contains("include") || s.contains("exec") || s.contains("expand") || cb.hasMacros()) {
+            return;
+        }
+        body = s;
+        // expressions evaluated via __eval look up the loop variable by name
+        pushItrVar = cb.dynaExpCount() > dynaExpCount;
+    }
+
     @Override
     public void output() {
         String prefix = "_".equals(varname) ? "" : varname + "";
@@ -144,55 +250,162 @@ public class ForEachCodeToken extends BlockCodeToken {
         String varUtils = prefix + "_utils";
         String varWithUtils = prefix + "__utils";
 
+        boolean useSep = uses(varSep);
+        boolean useUtils = uses(varUtils);
+        boolean useParity = uses(varParity);
+        boolean useIsOdd = useParity || uses(varIsOdd);
+        boolean useIsFirst = useUtils || uses(varIsFirst);
+        boolean useIsLast = useSep || useUtils || uses(varIsLast);
+
+        String elemType = "?".equals(type) ? "java.lang.Object" : type;
         String varItr = cb.newVarName();
-        if ("java.lang.Object".equals(type)) {
-            p("{\n__Itr ").p(varItr).p(" = __Itr.of(").p(iterable).p(");");
+        int[] range = rangeBounds();
+        String rangePrimitive = null;
+        if (null != range) {
+            boolean isChar = rangeExpr.contains("'");
+            rangePrimitive = "java.lang.Object".equals(elemType) ? (isChar ? "char" : "int") : primitiveOf(elemType);
+            if ("boolean".equals(rangePrimitive)) rangePrimitive = null;
+        }
+        String componentType = null;
+        if (null != iterableDeclType && iterableDeclType.trim().endsWith("]")) {
+            String declType = iterableDeclType.trim();
+            componentType = declType.substring(0, declType.lastIndexOf("[")).trim();
+        }
+        if (null != rangePrimitive) {
+            // primitive loop on literal range, e.g. 1 to 1000
+            String loopVarType = needsBoxedLoopVar() ? boxedTypes.get(rangePrimitive) : rangePrimitive;
+            p("{");
+            pline();
+            p("int ").p(varSize).p(" = ").p(range[1] - range[0]).p(";");
+            pline();
+            p("if (").p(varSize).p(" > 0) {");
+            pline();
+            p("int ").p(varId).p(" = 0;");
+            pline();
+            p("for(int ").p(varItr).p(" = ").p(range[0]).p("; ").p(varItr).p(" < ").p(range[1]).p("; ++").p(varItr).p(") {");
+            pline();
+            p(loopVarType).p(" ").p(varname).p(" = (").p(rangePrimitive).p(") ").p(varItr).p(";");
+            pline();
+        } else if (null != componentType) {
+            // indexed loop on array, no boxing if the component is primitive. Elements
+            // of boxed arrays, e.g. Integer[], could be null and are never unboxed
+            String varArray = cb.newVarName();
+            boolean primitiveArray = boxedTypes.containsKey(componentType.trim());
+            String primitive = primitiveArray ? primitiveOf(elemType) : null;
+            if (null == primitive && primitiveArray) {
+                primitive = componentType;
+            }
+            p("{\n").p(componentType).p("[] ").p(varArray).p(" = ").p(iterable).p(";");
+            pline();
+            p("int ").p(varSize).p(" = null == ").p(varArray).p(" ? 0 : ").p(varArray).p(".length;");
+            pline();
+            p("if (").p(varSize).p(" > 0) {");
+            pline();
+            p("int ").p(varId).p(" = 0;");
+            pline();
+            p("for(int ").p(varItr).p(" = 0; ").p(varItr).p(" < ").p(varSize).p("; ++").p(varItr).p(") {");
+            pline();
+            if (null != primitive) {
+                String loopVarType = needsBoxedLoopVar() ? boxedTypes.get(primitive) : primitive;
+                p(loopVarType).p(" ").p(varname).p(" = (").p(primitive).p(") ").p(varArray).p("[").p(varItr).p("];");
+            } else {
+                p(elemType).p(" ").p(varname).p(" = (").p(elemType).p(") ").p(varArray).p("[").p(varItr).p("];");
+            }
+            pline();
+        } else if (null != iterableDeclType && P_LIST_TYPE.matcher(iterableDeclType.trim()).matches()) {
+            // indexed loop on RandomAccess list, iterator is used only for other lists
+            String varList = cb.newVarName();
+            String varListItr = cb.newVarName();
+            p("{\njava.util.List ").p(varList).p(" = ").p(iterable).p(";");
+            pline();
+            p("int ").p(varSize).p(" = null == ").p(varList).p(" ? 0 : ").p(varList).p(".size();");
+            pline();
+            p("if (").p(varSize).p(" > 0) {");
+            pline();
+            p("int ").p(varId).p(" = 0;");
+            pline();
+            p("java.util.Iterator ").p(varListItr).p(" = ").p(varList).p(" instanceof java.util.RandomAccess ? null : ").p(varList).p(".iterator();");
+            pline();
+            p("for(int ").p(varItr).p(" = 0; ").p(varItr).p(" < ").p(varSize).p("; ++").p(varItr).p(") {");
+            pline();
+            p(elemType).p(" ").p(varname).p(" = (").p(elemType).p(") (null == ").p(varListItr).p(" ? ").p(varList).p(".get(").p(varItr).p(") : ").p(varListItr).p(".next());");
+            pline();
         } else {
-            if ("Range".equals(iterableType)) {
-                p("{\n__Itr<").p(type).p("> ").p(varItr).p(" = __Itr.ofRange(").p(iterable).p(");");
+            if ("java.lang.Object".equals(type)) {
+                p("{\n__Itr ").p(varItr).p(" = __Itr.of(").p(iterable).p(");");
             } else {
-                p("{\n__Itr<").p(type).p("> ").p(varItr).p(" = __Itr.valueOf(").p(iterable).p(");");
+                if ("Range".equals(iterableType)) {
+                    p("{\n__Itr<").p(type).p("> ").p(varItr).p(" = __Itr.ofRange(").p(iterable).p(");");
+                } else {
+                    p("{\n__Itr<").p(type).p("> ").p(varItr).p(" = __Itr.valueOf(").p(iterable).p(");");
+                }
             }
+            pline();
+            p("int ").p(varSize).p(" = ").p(varItr).p(".size();");
+            pline();
+            p("if (").p(varSize).p(" > 0) {");
+            pline();
+            p("int ").p(varId).p(" = 0;");
+            pline();
+            p("for(").p(elemType).p(" ").p(varname).p(" : ").p(varItr).p(") {");
+            pline();
         }
-        pline();
-        p("int ").p(varSize).p(" = ").p(varItr).p(".size();");
-        pline();
-        p("if (").p(varSize).p(" > 0) {");
-        pline();
-        p("int ").p(varId).p(" = 0;");
-        pline();
-        p("for(").p("?".equals(type) ? "java.lang.Object" : type).p(" ").p(varname).p(" : ").p(varItr).p(") {");
-        pline();
         if (null != joinSep) {
             p("if (").p(varId).p("++ > 0) {p(").p(joinSep).p(");}");
         } else {
             p(varId).p("++;");
         }
         pline();
-        p("boolean ").p(varIsOdd).p(" = ").p(varId).p(" % 2 == 1;");
-        pline();
-        p("java.lang.String ").p(varParity).p(" = ").p(varIsOdd).p(" ? \"odd\" : \"even\";");
-        pline();
-        p("boolean ").p(varIsFirst).p(" = ").p(varId).p(" == 1;");
-        pline();
-        p("boolean ").p(varIsLast).p(" = ").p(varId).p(" >= ").p(varSize).p(";");
-        pline();
-        p("org.rythmengine.utils.RawData ").p(varSep).p(" = new org.rythmengine.utils.RawData(").p(varIsLast).p(" ? \"\" : \",\");");
-        pline();
+        if (useIsOdd) {
+            p("boolean ").p(varIsOdd).p(" = ").p(varId).p(" % 2 == 1;");
+            pline();
+        }
+        if (useParity) {
+            p("java.lang.String ").p(varParity).p(" = ").p(varIsOdd).p(" ? \"odd\" : \"even\";");
+            pline();
+        }
+        if (useIsFirst) {
+            p("boolean ").p(varIsFirst).p(" = ").p(varId).p(" == 1;");
+            pline();
+        }
+        if (useIsLast) {
+            p("boolean ").p(varIsLast).p(" = ").p(varId).p(" >= ").p(varSize).p(";");
+            pline();
+        }
+        if (useSep) {
+            p("org.rythmengine.utils.RawData ").p(varSep).p(" = new org.rythmengine.utils.RawData(").p(varIsLast).p(" ? \"\" : \",\");");
+            pline();
+        }
         /*p("org.rythmengine.utils.RawData ").p(varWithSep).p(" = new org.rythmengine.utils.RawData(org.rythmengine.utils.S.escape(").p(varname).p(")+(").p(varIsLast).p(" ? \"\" : \",\"));");
         pline();
         */
-        p("org.rythmengine.internal.LoopUtil ").p(varUtils).p(" = new org.rythmengine.internal.LoopUtil(").p(varIsFirst).p(", ").p(varIsLast).p(");");
-        pline();
+        if (useUtils) {
+            p("org.rythmengine.internal.LoopUtil ").p(varUtils).p(" = new org.rythmengine.internal.LoopUtil(").p(varIsFirst).p(", ").p(varIsLast).p(");");
+            pline();
+        }
         /*
         p("org.rythmengine.internal.LoopUtil ").p(varWithUtils).p(" = new org.rythmengine.internal.LoopUtil(").p(varIsFirst).p(", ").p(varIsLast).p(", ").p(varname).p(");");
         pline();
         */
-        p("__pushItrVar(\"").p(varname).p("\", ").p(varname).p(");");
-        pline();
+        if (pushItrVar) {
+            p("__pushItrVar(\"").p(varname).p("\", ").p(varname).p(");");
+            pline();
+        }
     }
+
+    /**
+     * Close the loop and open the else block. Used by {@link ElseForParser}
+     *
+     * @return the code closes the loop and opens the else block
+     */
+    public String closeBlockAndOpenElse() {
+        closeBody();
+        return pushItrVar ? "\n\t__popItrVar();\n\t}\n} else {\n" : "\n\t}\n} else {\n";
+    }
+
     @Override
     public String closeBlock() {
-        return "\n\t__popItrVar();\n\t}\n}\n}\n";
+        closeBody();
+        return pushItrVar ? "\n\t__popItrVar();\n\t}\n}\n}\n" : "\n\t}\n}\n}\n";
     }
 }
@@ -37,9 +37,8 @@ public class ForEachParser extends KeywordParserFactory {
 
         return new RemoveLeadingSpacesIfLineBreakParser(ctx) {
             public Token go() {
-                Regex r = new Regex(String.format(patternStr2(), dialect().a(), keyword()));
-                String remain = remain();
-                if (!r.search(remain)) {
+                Regex r = regex(patternStr2(), dialect().a(), keyword());
+                if (!search(r)) {
                     raiseParseException("Error parsing @for statement, correct usage: @for(Type var: Iterable){...} or @for(int i = ...)");
                 }
                 int lineNo = ctx.currentLine();
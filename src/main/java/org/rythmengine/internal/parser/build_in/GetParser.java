@@ -53,7 +53,7 @@ public class GetParser extends KeywordParserFactory {
             @Override
             public Token go() {
                 Regex r = reg(dialect());
-                if (!r.search(remain())) {
+                if (!search(r)) {
                     raiseParseException("Error parsing @get call. Correct usage: @get(\"myVal\")");
                 }
                 final String matched = r.stringMatched();
@@ -54,9 +54,8 @@ public class I18nParser extends KeywordParserFactory {
     public IParser create(final IContext ctx) {
         return new ParserBase(ctx) {
             public Token go() {
-                String remain = remain();
                 Regex r = reg(dialect());
-                if (!r.search(remain)) {
+                if (!search(r)) {
                     raiseParseException("Error parsing @i18n statement. Correct usage: @i18n(\"key\", ...)");
                 }
                 final String matched = r.stringMatched();
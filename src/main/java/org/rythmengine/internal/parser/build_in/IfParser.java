@@ -49,7 +49,7 @@ public class IfParser extends KeywordParserFactory {
             @Override
             public Token go() {
                 Regex r = reg(dialect());
-                if (!r.search(remain())) {
+                if (!search(r)) {
                     raiseParseException("Error parsing @if statement. Correct usage: @if (some-condition) {some-template-code}");
                 }
                 final String matched = r.stringMatched();
@@ -86,6 +86,7 @@ public class IfParser extends KeywordParserFactory {
                 s = ExpressionParser.processPositionPlaceHolder(s);
                 s = S.stripBrace(s);
                 if (s.endsWith("@")) {
+                    ctx().getCodeBuilder().addDynaExp();
                     s = s.substring(0, s.length() - 1);
                     s = "__eval(\"" + s + "\")";
                 }
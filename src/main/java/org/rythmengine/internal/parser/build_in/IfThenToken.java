@@ -44,6 +44,17 @@ public class IfThenToken extends CodeToken {
     public IfThenToken(String IF, String THEN, IContext context) {
         super(null, context);
         ifthen.add(F.T2(IF, THEN));
+        checkDynaExp(context);
+    }
+
+    // tell the enclosing loops a condition is evaluated dynamically via __eval
+    private void checkDynaExp(IContext context) {
+        for (F.T2<String, String> pair : ifthen) {
+            if (pair._1.trim().endsWith("@")) {
+                context.getCodeBuilder().addDynaExp();
+                return;
+            }
+        }
     }
     public IfThenToken(IContext context, String... conditions) {
         super(null, context);
@@ -54,6 +65,7 @@ public class IfThenToken extends CodeToken {
         for (int i = 0; i < len; i += 2) {
             ifthen.add(F.T2(conditions[i], conditions[i+1]));
         }
+        checkDynaExp(context);
     }
 
     @Override
@@ -46,19 +46,18 @@ public class ImportParser extends KeywordParserFactory {
     public IParser create(final IContext ctx) {
         return new ParserBase(ctx) {
             public Token go() {
-                String remain = remain();
                 String line;
                 Regex r = new Regex(String.format("\\n?[ \\t\\x0B\\f]*%s%s(\\([ \t\f]*\\))?[ \t\f]*((?@{}))[ \\t\\x0B\\f]*\\n?", a(), keyword()));
                 String matched;
-                if (r.search(remain)) {
+                if (search(r)) {
                     matched = r.stringMatched();
                     String s = r.stringMatched(2);
                     s = S.strip(s, "{", "}");
                     step(matched.length());
                     line = s.replaceAll("[\\n\\r]+", ",");
                 } else {
-                    Matcher m = ptn(dialect()).matcher(remain);
-                    if (!m.matches()) return null;
+                    Matcher m = lookingAt(ptn(dialect()));
+                    if (null == m) return null;
                     String s = m.group(1);
                     step(s.length());
                     matched = s;
@@ -49,7 +49,7 @@ public class IncludeParser extends KeywordParserFactory {
         return new ParserBase(ctx) {
             public Token go() {
                 Regex r = reg(dialect());
-                if (!r.search(remain())) {
+                if (!search(r)) {
                     raiseParseException("Error parsing @include statement. Correct usage: @include(\"foo.bar, a.b.c, ...\")");
                 }
                 final String matched = r.stringMatched();
@@ -51,7 +51,7 @@ public class InitCodeParser extends KeywordParserFactory {
         return new RemoveLeadingLineBreakAndSpacesParser(ctx) {
             public Token go() {
                 Regex r = reg(dialect());
-                if (r.search(remain())) {
+                if (search(r)) {
                     final String matched = r.stringMatched();
                     if (matched.startsWith("\n") || matched.endsWith("\n")) {
                         ctx.getCodeBuilder().addBuilder(new Token.StringToken("\n", ctx));
@@ -47,8 +47,9 @@ public class InvokeMacroParser extends CaretParserFactoryBase {
 
             @Override
             public Token go() {
-                Regex r = new Regex(String.format(patternStr(), dialect().a()));
-                if (!r.search(remain())) return null;
+                if (!remainStartsWith(a())) return null;
+                Regex r = regex(patternStr(), a());
+                if (!search(r)) return null;
                 String macro = r.stringMatched(2);
                 CodeBuilder cb = ctx().getCodeBuilder();
                 // inline tag has higher priority than macro
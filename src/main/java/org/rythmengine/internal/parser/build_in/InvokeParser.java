@@ -52,7 +52,7 @@ public class InvokeParser extends KeywordParserFactory {
             @Override
             public Token go() {
                 Regex r = reg(dialect());
-                if (!r.search(remain())) {
+                if (!search(r)) {
                     raiseParseException("Error parsing @invoke statement. Correct usage: @invoke(\"tagname\", ...)");
                 }
                 final String matched = r.stringMatched();
@@ -92,14 +92,13 @@ public class InvokeParser extends KeywordParserFactory {
                     tagName = invocation.substring(0, pos);
                     params = invocation.substring(pos + 1);
                 }
-                String s = remain();
-                Matcher m0 = InvokeTemplateParser.P_HEREDOC_SIMBOL.matcher(s);
-                Matcher m1 = InvokeTemplateParser.P_STANDARD_BLOCK.matcher(s);
-                if (m0.matches()) {
+                Matcher m0 = lookingAt(InvokeTemplateParser.P_HEREDOC_SIMBOL);
+                Matcher m1 = null == m0 ? lookingAt(InvokeTemplateParser.P_STANDARD_BLOCK) : null;
+                if (null != m0) {
                     Token tb = InvokeTemplateParser.InvokeTagWithBodyToken.dynamicTagToken(tagName, params, r.stringMatched(4), ctx());
                     ctx().step(m0.group(1).length());
                     return tb;
-                } else if (m1.matches()) {
+                } else if (null != m1) {
                     Token tb = InvokeTemplateParser.InvokeTagWithBodyToken.dynamicTagToken(tagName, params, r.stringMatched(4), ctx());
                     ctx().step(m1.group(1).length());
                     return tb;
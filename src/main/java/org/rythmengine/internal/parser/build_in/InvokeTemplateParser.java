@@ -243,6 +243,17 @@ public class InvokeTemplateParser extends CaretParserFactoryBase {
             return (assignTo != null) || (escape != null) || enableCache;
         }
 
+        /*
+         * Return the code calling the tag inlined into the current template, or null
+         * if the tag invocation cannot be inlined
+         */
+        String inlineCode(String fullName) {
+            if (isDynamic || needsNewOut() || ignoreNonExistsTag || ctx.peekInsideBody()) {
+                return null;
+            }
+            return ctx.getCodeBuilder().inlineTag(fullName, params);
+        }
+
         @Override
         public void output() {
             if (assignTo != null) {
@@ -493,8 +504,8 @@ public class InvokeTemplateParser extends CaretParserFactoryBase {
         }
     }
 
-    static final Pattern P_HEREDOC_SIMBOL = Pattern.compile("(\\s*<<).*", Pattern.DOTALL);
-    static final Pattern P_STANDARD_BLOCK = Pattern.compile("(\\s*\\{).*", Pattern.DOTALL);
+    static final Pattern P_HEREDOC_SIMBOL = Pattern.compile("(\\s*<<)", Pattern.DOTALL);
+    static final Pattern P_STANDARD_BLOCK = Pattern.compile("(\\s*\\{)", Pattern.DOTALL);
 
     @Override
     public IParser create(final IContext ctx) {
@@ -514,8 +525,9 @@ public class InvokeTemplateParser extends CaretParserFactoryBase {
 
             @Override
             public Token go() {
-                Regex r = new Regex(String.format(patternStr(), dialect().a()));
-                if (!r.search(remain())) return null;
+                if (!remainStartsWith(a())) return null;
+                Regex r = regex(patternStr(), a());
+                if (!search(r)) return null;
                 String tagName = r.stringMatched(2);
                 try {
                     tagName = testTag(tagName);
@@ -523,20 +535,22 @@ public class InvokeTemplateParser extends CaretParserFactoryBase {
                     raiseParseException("Error load tag class: " + e.getMessage() + "\nPossible cause: lower or upper case issue on windows platform");
                 }
                 if (null == tagName) return null;
-                else tagName = new StringBuilder("\"").append(tagName).append("\"").toString();
+                String fullName = tagName;
+                tagName = new StringBuilder("\"").append(tagName).append("\"").toString();
                 String s = r.stringMatched();
                 ctx().step(s.length());
-                s = remain();
-                Matcher m0 = P_HEREDOC_SIMBOL.matcher(s);
-                Matcher m1 = P_STANDARD_BLOCK.matcher(s);
-                if (m0.matches()) {
+                Matcher m0 = lookingAt(P_HEREDOC_SIMBOL);
+                Matcher m1 = null == m0 ? lookingAt(P_STANDARD_BLOCK) : null;
+                if (null != m0) {
                     ctx().step(m0.group(1).length());
                     return new InvokeTagWithBodyToken(tagName, r.stringMatched(3), r.stringMatched(4), ctx());
-                } else if (m1.matches()) {
+                } else if (null != m1) {
                     ctx().step(m1.group(1).length());
                     return new InvokeTagWithBodyToken(tagName, r.stringMatched(3), r.stringMatched(4), ctx());
                 } else {
-                    return new InvokeTagToken(tagName, r.stringMatched(3), r.stringMatched(4), ctx());
+                    InvokeTagToken tk = new InvokeTagToken(tagName, r.stringMatched(3), r.stringMatched(4), ctx());
+                    String code = tk.inlineCode(fullName);
+                    return null == code ? tk : new CodeToken(code, ctx());
                 }
             }
         };
@@ -44,15 +44,25 @@ public abstract class KeywordParserFactory extends CaretParserFactoryBase implem
 
     private Pattern p = null;
 
+    /**
+     * Returns the keyword pattern without the trailing <code>.*</code> of
+     * {@link #patternStr()}, to be matched at the cursor with
+     * {@link ParserBase#lookingAt(java.util.regex.Pattern)}
+     *
+     * @param d the dialect
+     * @return the pattern
+     */
     protected Pattern ptn(IDialect d) {
         if (null == p) {
-            p = ParserBase.pattern(patternStr(), d.a(), keyword());
+            String s = patternStr();
+            if (s.endsWith(".*")) s = s.substring(0, s.length() - 2);
+            p = ParserBase.pattern(s, d.a(), keyword());
         }
         return p;
     }
 
     protected Regex reg(IDialect d) {
-        return new Regex(String.format(patternStr(), d.a(), keyword()));
+        return ParserBase.regex(patternStr(), d.a(), keyword());
     }
 
 }
@@ -44,7 +44,7 @@ public class LogTimeParser extends KeywordParserFactory {
         return new RemoveLeadingLineBreakAndSpacesParser(ctx) {
             public Token go() {
                 Regex r = reg(dialect());
-                if (!r.search(remain())) {
+                if (!search(r)) {
                     raiseParseException("error parsing @__logTime__, correct usage: @__logTime__()");
                 }
                 step(r.stringMatched().length());
@@ -48,7 +48,7 @@ public class MacroParser extends KeywordParserFactory {
         return new ParserBase(ctx) {
             public Token go() {
                 Regex r = reg(dialect());
-                if (!r.search(remain())) {
+                if (!search(r)) {
                     raiseParseException("bad @macro statement. Correct usage: @macro(macro-name){...}");
                 }
                 final String matched = r.stringMatched();
@@ -48,8 +48,8 @@ public class NoCompactParser extends KeywordParserFactory {
     public IParser create(final IContext ctx) {
         return new RemoveLeadingLineBreakAndSpacesParser(ctx) {
             public Token go() {
-                Matcher m = ptn(dialect()).matcher(remain());
-                if (!m.matches()) return null;
+                Matcher m = lookingAt(ptn(dialect()));
+                if (null == m) return null;
                 final String matched = m.group(1);
                 step(matched.length());
                 if (matched.startsWith("\n") || matched.endsWith("\n")) {
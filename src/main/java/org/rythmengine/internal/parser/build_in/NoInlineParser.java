@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.internal.parser.build_in;
+
+/*-
+ * #%L
+ * Rythm Template Engine
+ * %%
+ * Copyright (C) 2017 - 2021 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.stevesoft.pat.Regex;
+import org.rythmengine.internal.IContext;
+import org.rythmengine.internal.IParser;
+import org.rythmengine.internal.Keyword;
+import org.rythmengine.internal.Token;
+import org.rythmengine.internal.parser.Directive;
+import org.rythmengine.internal.parser.RemoveLeadingLineBreakAndSpacesParser;
+
+/**
+ * Parse <code>@__noInline__()</code>, which prevents the tag from being
+ * inlined into the caller template
+ */
+public class NoInlineParser extends KeywordParserFactory {
+
+    @Override
+    public Keyword keyword() {
+        return Keyword.NO_INLINE;
+    }
+
+    public IParser create(final IContext ctx) {
+        return new RemoveLeadingLineBreakAndSpacesParser(ctx) {
+            public Token go() {
+                Regex r = reg(dialect());
+                if (!search(r)) {
+                    raiseParseException("error parsing @__noInline__, correct usage: @__noInline__()");
+                }
+                step(r.stringMatched().length());
+                return new Directive("", ctx()) {
+                    @Override
+                    public void call() {
+                        ctx().getCodeBuilder().setNoInline();
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    protected String patternStr() {
+        return "%s%s\\s*\\(\\s*\\)[\\r\\n]+";
+    }
+}
@@ -47,7 +47,7 @@ public class NoSIMParser extends KeywordParserFactory {
         return new RemoveLeadingLineBreakAndSpacesParser(ctx) {
             public Token go() {
                 Regex r = reg(dialect());
-                if (r.search(remain())) {
+                if (search(r)) {
                     String s = r.stringMatched();
                     step(s.length());
                 }
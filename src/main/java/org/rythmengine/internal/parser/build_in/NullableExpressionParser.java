@@ -54,18 +54,16 @@ public class NullableExpressionParser extends CaretParserFactoryBase {
             @Override
             public Token go() {
                 final String caret_ = dialect.a();
-                final Regex r1 = new Regex(String.format(patternStr1(), caret_));
-                final Regex r2 = new Regex(String.format(patternStr2(), caret_));
-                final Regex r3 = new Regex(patternStr3());
-                final Regex r4 = new Regex(patternStr4());
+                if (!remainStartsWith(caret_)) return null;
+                final Regex r1 = regex(patternStr1(), caret_);
+                final Regex r2 = regex(patternStr2(), caret_);
 
-                String s = remain();
                 String exp;
                 int step;
-                if (r1.search(s)) {
+                if (search(r1)) {
                     exp = r1.stringMatched(2);
                     step = r1.stringMatched(1).length();
-                } else if (r2.search(s)) {
+                } else if (search(r2)) {
                     exp = r2.stringMatched(2);
                     exp = S.stripBrace(exp);
                     step = r2.stringMatched().length();
@@ -74,6 +72,7 @@ public class NullableExpressionParser extends CaretParserFactoryBase {
                 }
                 exp = exp.trim();
                 if (!exp.contains("?")) return null; // leave it to normal expression handler
+                final Regex r4 = new Regex(patternStr4());
                 if (!r4.search(exp)) {
                     //raiseParseException("nullable expression can contain only expression, \"[]\", \"()\", \".\", \"?\", found: %s", exp);
                     return null; // the foo == null ? "bar" : foo style expression?
@@ -82,6 +81,7 @@ public class NullableExpressionParser extends CaretParserFactoryBase {
                 StringBuilder curExp = new StringBuilder();
                 final List<String> statements = new ArrayList<String>();
                 ExtensionManager jem = ctx().getEngine().extensionManager();
+                final Regex r3 = new Regex(patternStr3());
                 while (r3.search(exp)) {
                     String s0 = r3.stringMatched().trim();
                     if (jem.isJavaExtension(s0)) break;
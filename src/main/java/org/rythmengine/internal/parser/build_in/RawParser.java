@@ -49,8 +49,8 @@ public class RawParser extends KeywordParserFactory {
     public IParser create(final IContext ctx) {
         return new ParserBase(ctx) {
             public Token go() {
-                Matcher m = ptn(dialect()).matcher(remain());
-                if (!m.matches()) return null;
+                Matcher m = lookingAt(ptn(dialect()));
+                if (null == m) return null;
                 final String matched = m.group(1);
                 if (matched.startsWith("\n") || matched.endsWith("\n")) {
                     ctx.getCodeBuilder().addBuilder(new Token.StringToken("\n", ctx));
@@ -78,7 +78,7 @@ public class RenderBodyParser extends KeywordParserFactory {
         return new ParserBase(ctx) {
             public Token go() {
                 Regex r = reg(dialect());
-                if (!r.search(remain())) {
+                if (!search(r)) {
                     raiseParseException("bad @renderBody statement. Correct usage: @renderBody(params...)");
                 }
                 final String matched = r.stringMatched();
@@ -62,7 +62,7 @@ public class RenderInheritedParser extends KeywordParserFactory {
         return new ParserBase(ctx) {
             public Token go() {
                 Regex r = reg(dialect());
-                if (!r.search(remain())) {
+                if (!search(r)) {
                     raiseParseException("bad @inherited statement. Correct usage: @inherited()");
                 }
                 String section = ctx.currentSection();
@@ -86,8 +86,8 @@ public class RenderSectionParser extends KeywordParserFactory {
     public IParser create(final IContext ctx) {
         return new ParserBase(ctx) {
             public Token go() {
-                Matcher m = ptn(dialect()).matcher(remain());
-                if (!m.matches()) return null;
+                Matcher m = lookingAt(ptn(dialect()));
+                if (null == m) return null;
                 String matched = m.group(1);
                 boolean lineBreak = false;
                 if (matched.startsWith("\n") || matched.endsWith("\n")) {
@@ -110,13 +110,12 @@ public class RenderSectionParser extends KeywordParserFactory {
                 }
                 step(matched.length());
                 String section = m.group(4);
-                String s = remain();
-                Matcher m0 = InvokeTemplateParser.P_HEREDOC_SIMBOL.matcher(s);
-                Matcher m1 = InvokeTemplateParser.P_STANDARD_BLOCK.matcher(s);
-                if (m0.matches()) {
+                Matcher m0 = lookingAt(InvokeTemplateParser.P_HEREDOC_SIMBOL);
+                Matcher m1 = null == m0 ? lookingAt(InvokeTemplateParser.P_STANDARD_BLOCK) : null;
+                if (null != m0) {
                     ctx().step(m0.group(1).length());
                     return new DefaultSectionToken(section, ctx());
-                } else if (m1.matches()) {
+                } else if (null != m1) {
                     ctx().step(m1.group(1).length());
                     return new DefaultSectionToken(section, ctx());
                 } else {
@@ -49,7 +49,7 @@ public class ReturnIfParser extends KeywordParserFactory {
         return new ParserBase(ctx) {
             public Token go() {
                 Regex r = reg(dialect());
-                if (!r.search(remain())) {
+                if (!search(r)) {
                     raiseParseException("error parsing @returnIf, correct usage: @returnIf(<expression>)");
                 }
                 final String matched = r.stringMatched();
@@ -47,7 +47,7 @@ public class ReturnParser extends KeywordParserFactory {
         return new ParserBase(ctx) {
             public Token go() {
                 Regex r = reg(dialect());
-                if (!r.search(remain())) {
+                if (!search(r)) {
                     raiseParseException("error parsing @return, correct usage: @return()");
                 }
                 final String matched = r.stringMatched();
@@ -53,8 +53,8 @@ public class ScriptParser extends RemoveLeadingLineBreakAndSpacesParser {
     public Token go() {
         IContext ctx = ctx();
         //if (ctx.currentBlock() == null) return null;
-        Regex r = new Regex(String.format(PTN, a(), a()));
-        if (!r.search(ctx.getRemain())) return null;
+        Regex r = regex(PTN, a(), a());
+        if (!search(r)) return null;
         if (!ctx.getDialect().enableScripting()) {
             throw new TemplateParser.ScriptingDisabledException(ctx);
         }
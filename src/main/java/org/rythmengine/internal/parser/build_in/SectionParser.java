@@ -85,7 +85,7 @@ public class SectionParser extends KeywordParserFactory {
         return new RemoveLeadingLineBreakAndSpacesParser(ctx) {
             public Token go() {
                 Regex r = reg(dialect());
-                if (!r.search(remain()))
+                if (!search(r))
                     raiseParseException("bad @section statement. Correct usage: @section(\"mySection\"){...}");
                 step(r.stringMatched().length());
                 String s = r.stringMatched(1);
@@ -53,7 +53,7 @@ public class SetParser extends KeywordParserFactory {
             @Override
             public Token go() {
                 Regex r = reg(dialect());
-                if (!r.search(remain())) return null;
+                if (!search(r)) return null;
                 final String matched = r.stringMatched();
                 step(matched.length()); // remain: @set("name": val)...
                 if (matched.startsWith("\n") || matched.endsWith("\n")) {
@@ -49,7 +49,7 @@ public class SimpleParser extends KeywordParserFactory {
         return new RemoveLeadingLineBreakAndSpacesParser(ctx) {
             public Token go() {
                 Regex r = reg(dialect());
-                if (!r.search(remain())) {
+                if (!search(r)) {
                     raiseParseException("bad @__simple__ statement");
                 }
                 step(r.stringMatched().length());
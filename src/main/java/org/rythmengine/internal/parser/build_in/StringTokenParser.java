@@ -44,23 +44,25 @@ public class StringTokenParser extends ParserBase {
     /*
      * ([^@]+((@[^@]+?)
      */
-    private static final String PTN = "(%s%s.*?|.*?)([\\n\\r@\\<\\#\\$\\&\\{\\}\\-\\*\\/].*|$)";
+    private static final String PTN = "(%s%s.*?|.*?)(?=[\\n\\r@\\<\\#\\$\\&\\{\\}\\-\\*\\/]|\\z)";
+
+    private Pattern p;
 
     @Override
     public Token go() {
         IContext ctx = ctx();
-        String s = ctx.getRemain();
-        if (s.length() == 0) {
+        if (!ctx.hasRemain()) {
             return Token.EMPTY_TOKEN;
         }
         String a = a();
-        Pattern p = Pattern.compile(String.format(PTN, a, a),
-                Pattern.DOTALL);
-        Matcher m = p.matcher(s);
-        if (!m.matches()) {
+        if (null == p) {
+            p = Pattern.compile(String.format(PTN, a, a), Pattern.DOTALL);
+        }
+        Matcher m = p.matcher(ctx.getRemainView());
+        if (!m.lookingAt()) {
             return null;
         }
-        s = m.group(1);
+        String s = m.group(1);
         if (s.length() == 0) {
             return null;
         }
@@ -48,7 +48,7 @@ public class TimestampParser extends KeywordParserFactory {
         return new RemoveLeadingLineBreakAndSpacesParser(ctx) {
             public Token go() {
                 Regex r = reg(dialect());
-                if (!r.search(remain())) {
+                if (!search(r)) {
                     return null;
                 }
                 step(r.stringMatched().length());
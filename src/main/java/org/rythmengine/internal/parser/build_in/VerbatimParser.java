@@ -48,7 +48,7 @@ public class VerbatimParser extends KeywordParserFactory {
         return new ParserBase(ctx) {
             public Token go() {
                 Regex r = reg(dialect());
-                if (r.search(remain())) {
+                if (search(r)) {
                     final String matched = r.stringMatched();
                     step(matched.length());
                     String s0 = r.stringMatched(3);
@@ -59,7 +59,7 @@ public class FileTemplateResource extends TemplateResourceBase implements ITempl
             path = path.substring(homePath.length());
         }
         file = f;
-        key = path.replace('\\', '/');
+        key = toKey(path);
     }
 
     /**
@@ -75,7 +75,19 @@ public class FileTemplateResource extends TemplateResourceBase implements ITempl
         if (path.startsWith(homePath)) {
             path = path.substring(homePath.length());
         }
-        this.key = path.replace('\\', '/');
+        this.key = toKey(path);
+    }
+
+    /*
+     * The same file could be loaded by path with a doubled separator, e.g. "//layout.html"
+     * when the caller template is in the root, the key of both shall be the same
+     */
+    private static String toKey(String path) {
+        String key = path.replace('\\', '/');
+        while (key.contains("//")) {
+            key = key.replace("//", "/");
+        }
+        return key;
     }
 
     @Override
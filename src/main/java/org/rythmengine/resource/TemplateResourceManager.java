@@ -34,6 +34,7 @@ import org.rythmengine.extension.ITemplateResourceLoader;
 import org.rythmengine.internal.RythmThreadFactory;
 import org.rythmengine.internal.compiler.ParamTypeInferencer;
 import org.rythmengine.internal.compiler.TemplateClass;
+import org.rythmengine.internal.compiler.TemplateClassManager;
 import org.rythmengine.logger.ILogger;
 import org.rythmengine.logger.Logger;
 import org.rythmengine.utils.S;
@@ -45,6 +46,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
@@ -276,6 +278,9 @@ public class TemplateResourceManager {
         return cache(resource);
     }
 
+    // collects resources found during scan
+    private volatile List<ITemplateResource> scanned;
+
     public ITemplateResourceLoader whichLoader(ITemplateResource resource) {
         return whichLoader.get(resource.getKey());
     }
@@ -301,13 +306,84 @@ public class TemplateResourceManager {
         return null == resource ? NULL : cache(key, resource);
     }
     
+    /**
+     * Scan all resource loaders and precompile the templates found.
+     * <p/>
+     * <p>Templates are parsed in parallel on a fork join pool, the generated
+     * java sources are then compiled in batches, one batch per core, and finally
+     * the template classes are loaded in parallel</p>
+     */
     public void scan() {
-        for (ITemplateResourceLoader loader : loaders) {
-            loader.scan(this);
+        List<ITemplateResource> resources = Collections.synchronizedList(new ArrayList<ITemplateResource>());
+        scanned = resources;
+        try {
+            for (ITemplateResourceLoader loader : loaders) {
+                loader.scan(this);
+            }
+        } finally {
+            scanned = null;
+        }
+        if (resources.isEmpty()) {
+            return;
+        }
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<Callable<TemplateClass>> parseJobs = new ArrayList<Callable<TemplateClass>>(resources.size());
+            for (final ITemplateResource resource : resources) {
+                parseJobs.add(new Callable<TemplateClass>() {
+                    @Override
+                    public TemplateClass call() {
+                        boolean engineSet = RythmEngine.set(engine);
+                        try {
+                            return _parse(resource);
+                        } finally {
+                            if (engineSet) {
+                                RythmEngine.clear();
+                            }
+                        }
+                    }
+                });
+            }
+            final List<TemplateClass> classes = new ArrayList<TemplateClass>();
+            for (TemplateClass tc : TemplateClassManager.invokeAll(pool, parseJobs)) {
+                if (null != tc) {
+                    classes.add(tc);
+                }
+            }
+            engine.classes().compile(classes, pool, parallelism);
+            List<Callable<Void>> loadJobs = new ArrayList<Callable<Void>>(classes.size());
+            for (final TemplateClass tc : classes) {
+                loadJobs.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        boolean engineSet = RythmEngine.set(engine);
+                        try {
+                            tc.asTemplate(engine);
+                        } finally {
+                            if (engineSet) {
+                                RythmEngine.clear();
+                            }
+                        }
+                        return null;
+                    }
+                });
+            }
+            TemplateClassManager.invokeAll(pool, loadJobs);
+        } finally {
+            pool.shutdown();
         }
     }
 
     public void resourceLoaded(final ITemplateResource resource) {
+        List<ITemplateResource> scanned = this.scanned;
+        if (null != scanned) {
+            if (resource.isValid()) {
+                whichLoader.put(resource.getKey(), resource.getLoader());
+                scanned.add(resource);
+            }
+            return;
+        }
         resourceLoaded(resource, true);
     }
     
@@ -331,18 +407,23 @@ public class TemplateResourceManager {
     }
     
     private TemplateClass _resourceLoaded(ITemplateResource resource) {
-        if (!resource.isValid()) return null;
-        String key = S.str(resource.getKey());
-        if (typeInference) {
-            key += ParamTypeInferencer.uuid();
+        TemplateClass tc = _parse(resource);
+        if (null != tc) {
+            tc.asTemplate(engine);
         }
+        return tc;
+    }
+
+    private TemplateClass _parse(ITemplateResource resource) {
+        if (!resource.isValid()) return null;
         RythmEngine engine = this.engine;
-        TemplateClass tc = engine.classes().getByTemplate(key);
-        if (null == tc) {
-            tc = new TemplateClass(resource, engine);
+        if (typeInference) {
+            String key = S.str(resource.getKey()) + ParamTypeInferencer.uuid();
+            TemplateClass tc = engine.classes().getByTemplate(key);
+            return null == tc ? new TemplateClass(resource, engine) : tc;
         }
-        tc.asTemplate(engine);
-        return tc;
+        // templates are parsed in parallel, make sure a layout shared by them is created once
+        return engine.classes().getOrCreate(resource);
     }
 
     private static class ScannerThreadFactory extends RythmThreadFactory {
@@ -351,8 +432,9 @@ public class TemplateResourceManager {
         }
     }
 
-    /* 
-     * At the moment we don't support parsing templates in parallel, so ...
+    /*
+     * Templates found by {@link #scan()} are parsed in parallel, this single threaded
+     * service is kept for async loading of individual resources
      */
     private ScheduledExecutorService loadingService = new ScheduledThreadPoolExecutor(1, new ScannerThreadFactory());
     
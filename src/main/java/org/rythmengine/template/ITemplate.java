@@ -29,14 +29,20 @@ import org.rythmengine.Rythm;
 import org.rythmengine.RythmEngine;
 import org.rythmengine.conf.RythmConfiguration;
 import org.rythmengine.extension.ICodeType;
+import org.rythmengine.internal.RenderContext;
 import org.rythmengine.internal.compiler.TemplateClass;
 import org.rythmengine.utils.Escape;
 import org.rythmengine.utils.JSONWrapper;
 
+import java.io.ByteArrayOutputStream;
 import java.io.OutputStream;
 import java.io.Writer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.*;
-import java.util.concurrent.ConcurrentLinkedDeque;
 
 /**
  * Define a template instance API
@@ -80,6 +86,39 @@ public interface ITemplate extends ITag, Cloneable {
      */
     ITemplate __setWriter(Writer writer);
 
+    /**
+     * Set binary output channel to the template instance. The channel must be
+     * in blocking mode, as the output is written while the template is rendered
+     * <p/>
+     * <p>The default implementation throws {@link UnsupportedOperationException},
+     * templates extending {@link TemplateBase} support it</p>
+     *
+     * @param channel
+     * @throws NullPointerException  if channel specified is null
+     * @throws IllegalArgumentException if the channel is a non-blocking {@link java.nio.channels.SelectableChannel}
+     * @throws IllegalStateException if another output is already set
+     * @return this template instance
+     */
+    default ITemplate __setOutputChannel(WritableByteChannel channel) {
+        throw new UnsupportedOperationException("binary channel output not supported by " + getClass().getName());
+    }
+
+    /**
+     * Set byte buffers to the template instance. The output will be put into
+     * the buffers one after another starting from their current position
+     * <p/>
+     * <p>The default implementation throws {@link UnsupportedOperationException},
+     * templates extending {@link TemplateBase} support it</p>
+     *
+     * @param buffers
+     * @throws NullPointerException  if buffers specified is null
+     * @throws IllegalStateException if another output is already set
+     * @return this template instance
+     */
+    default ITemplate __setOutputBuffers(ByteBuffer... buffers) {
+        throw new UnsupportedOperationException("byte buffer output not supported by " + getClass().getName());
+    }
+
     /**
      * Set user context to the template instance
      *   
@@ -168,6 +207,51 @@ public interface ITemplate extends ITag, Cloneable {
      */
     void render(Writer w);
 
+    /**
+     * Render the template and write the result into channel
+     * <p/>
+     * <p>The default implementation renders into an output stream of the channel</p>
+     *
+     * @param channel a channel in blocking mode
+     * @throws IllegalArgumentException if the channel is in non-blocking mode
+     */
+    default void render(WritableByteChannel channel) {
+        if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking()) {
+            throw new IllegalArgumentException("channel must be in blocking mode");
+        }
+        render(Channels.newOutputStream(channel));
+    }
+
+    /**
+     * Render the template and put the result into byte buffers. The positions of the
+     * buffers are advanced by the number of bytes put into them. If the render fails
+     * the positions are left unchanged
+     * <p/>
+     * <p>The default implementation renders into a byte array and copies it into
+     * the buffers</p>
+     *
+     * @param buffers
+     * @throws java.nio.BufferOverflowException if the result does not fit in the buffers
+     */
+    default void render(ByteBuffer[] buffers) {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        render(os);
+        byte[] ba = os.toByteArray();
+        long remaining = 0;
+        for (ByteBuffer buffer : buffers) {
+            remaining += buffer.remaining();
+        }
+        if (remaining < ba.length) {
+            throw new BufferOverflowException();
+        }
+        int off = 0;
+        for (ByteBuffer buffer : buffers) {
+            int len = Math.min(buffer.remaining(), ba.length - off);
+            buffer.put(ba, off, len);
+            off += len;
+        }
+    }
+
     /**
      * Must be called before real render() happened.
      * Also if the template extends a parent template, then
@@ -236,18 +320,18 @@ public interface ITemplate extends ITag, Cloneable {
          * 
          * @see {@link #localeStack}
          */
-        private Deque<ICodeType> codeTypeStack = new ConcurrentLinkedDeque<ICodeType>();
+        private Deque<ICodeType> codeTypeStack = new ArrayDeque<ICodeType>(4);
 
         /**
          * template escape stack. Used to enable the
          * {@link org.rythmengine.conf.RythmConfigurationKey#FEATURE_SMART_ESCAPE_ENABLED}
          */
-        private Deque<Escape> escapeStack = new ConcurrentLinkedDeque<Escape>();
+        private Deque<Escape> escapeStack = new ArrayDeque<Escape>(4);
 
         /**
          * template locale stack. Used to track the locale in the current context.
          */
-        private Deque<Locale> localeStack = new ConcurrentLinkedDeque<Locale>();
+        private Deque<Locale> localeStack = new ArrayDeque<Locale>(4);
 
         private TemplateBase tmpl;
         
@@ -266,12 +350,15 @@ public interface ITemplate extends ITag, Cloneable {
          * @param locale
          */
         public void init(TemplateBase templateBase, ICodeType type, Locale locale, TemplateClass tc,  RythmEngine engine) {
-            if (null == type) {
-                type = engine.renderSettings.codeType();
-                if (null == type) type = tc.codeType;
-            }
-            if (null == locale) {
-                locale = engine.renderSettings.locale();
+            if (null == type || null == locale) {
+                RenderContext ctx = templateBase.__renderContext();
+                if (null == type) {
+                    type = ctx.codeType();
+                    if (null == type) type = tc.codeType;
+                }
+                if (null == locale) {
+                    locale = ctx.locale();
+                }
             }
             codeTypeStack.push(type);
             localeStack.push(locale);
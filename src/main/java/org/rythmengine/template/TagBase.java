@@ -27,6 +27,7 @@ package org.rythmengine.template;
 
 import org.rythmengine.RythmEngine;
 import org.rythmengine.internal.IEvent;
+import org.rythmengine.internal.RenderContext;
 import org.rythmengine.utils.S;
 
 import java.util.Map;
@@ -67,8 +68,8 @@ public abstract class TagBase extends TemplateBase implements ITag {
     }
 
     @Override
-    public ITemplate __cloneMe(RythmEngine engine, ITemplate caller) {
-        TagBase newTag = (TagBase) super.__cloneMe(engine, caller);
+    public ITemplate __cloneMe(RythmEngine engine, ITemplate caller, RenderContext ctx) {
+        TagBase newTag = (TagBase) super.__cloneMe(engine, caller, ctx);
         //newTag.setBody(null);
         //newTag.__buffer = new StringBuilder();
         return newTag;
@@ -36,6 +36,9 @@ import org.rythmengine.exception.RythmException;
 import org.rythmengine.extension.ICodeType;
 import org.rythmengine.extension.II18nMessageResolver;
 import org.rythmengine.internal.IEvent;
+import org.rythmengine.internal.OutputBufferPool;
+import org.rythmengine.internal.ByteOutputEncoder;
+import org.rythmengine.internal.RenderContext;
 import org.rythmengine.internal.RythmEvents;
 import org.rythmengine.internal.TemplateBuilder;
 import org.rythmengine.internal.compiler.ClassReloadException;
@@ -47,9 +50,12 @@ import org.rythmengine.utils.*;
 import java.io.*;
 import java.lang.reflect.Array;
 import java.lang.reflect.Modifier;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedDeque;
 
 /**
  * The base class of template implementation. It provides a set of
@@ -72,6 +78,29 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
      */
     private transient TemplateClass __templateClass = null;
 
+    /**
+     * The environment of the render operation this template instance belongs to
+     */
+    private transient RenderContext __renderCtx = null;
+
+    /**
+     * Return the render context of this template instance. If no context has been
+     * set then it is captured from the {@link RythmEngine.RenderSettings render settings}
+     * of the current thread
+     * <p/>
+     * <p>Not to be called in user application or template</p>
+     *
+     * @return the render context
+     */
+    public RenderContext __renderContext() {
+        RenderContext ctx = __renderCtx;
+        if (null == ctx) {
+            ctx = RenderContext.capture(__engine());
+            __renderCtx = ctx;
+        }
+        return ctx;
+    }
+
     /**
      * Set template class and template code type to this template instance
      * <p/>
@@ -92,7 +121,7 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
             try {
                 TemplateClass ptc = engine.classes().getByClassName(pc.getName());
                 if (null != ptc) {
-                    __parent = (TemplateBase) ptc.asTemplate(engine);
+                    __parent = (TemplateBase) ptc.asTemplate(__renderContext());
                 } else {
                     throw new RuntimeException("Cannot find template class for parent class: " + pc);
                 }
@@ -122,11 +151,18 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
 
     private Writer w;
     private OutputStream os;
+    private WritableByteChannel ch;
+    private ByteBuffer[] bufs;
+    private ByteOutputEncoder enc;
+
+    private boolean __binaryOutput() {
+        return null != os || null != ch || null != bufs;
+    }
 
     @Override
     public ITemplate __setWriter(Writer writer) {
         if (null == writer) throw new NullPointerException();
-        if (null != os) throw new IllegalStateException("Cannot set writer to template when outputstream is presented");
+        if (__binaryOutput()) throw new IllegalStateException("Cannot set writer to template when binary output is presented");
         if (null != this.w)
             throw new IllegalStateException("Cannot set writer to template when an writer is presented");
         this.w = writer;
@@ -137,18 +173,120 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
     public ITemplate __setOutputStream(OutputStream os) {
         if (null == os) throw new NullPointerException();
         if (null != w) throw new IllegalStateException("Cannot set output stream to template when writer is presented");
-        if (null != this.os)
-            throw new IllegalStateException("Cannot set output stream to template when an outputstream is presented");
+        if (__binaryOutput())
+            throw new IllegalStateException("Cannot set output stream to template when binary output is presented");
         this.os = os;
         return this;
     }
 
+    @Override
+    public ITemplate __setOutputChannel(WritableByteChannel channel) {
+        if (null == channel) throw new NullPointerException();
+        if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking())
+            throw new IllegalArgumentException("Cannot render to a non-blocking channel");
+        if (null != w || __binaryOutput())
+            throw new IllegalStateException("Cannot set output channel to template when another output is presented");
+        this.ch = channel;
+        return this;
+    }
+
+    @Override
+    public ITemplate __setOutputBuffers(ByteBuffer... buffers) {
+        if (null == buffers) throw new NullPointerException();
+        if (null != w || __binaryOutput())
+            throw new IllegalStateException("Cannot set output buffers to template when another output is presented");
+        this.bufs = buffers;
+        return this;
+    }
+
+    /**
+     * Stores render args of this template that are not declared by the template.
+     * Declared render args are stored in the protected fields generated for them,
+     * which are bound by name through the static slot names of the template class
+     *
+     * @see #__bindRenderArg(String, Object)
+     * @see #__renderArg(String)
+     */
+    protected Map<String, Object> __renderArgs = new HashMap<String, Object>();
+
+    /**
+     * Find the slot of a render arg declared by a template class. Called by generated
+     * template source code.
+     * <p/>
+     * <p>Arg names passed from string literals, including those in generated code,
+     * are interned and thus matched by reference first. Other names are compared
+     * with <code>equals</code>. No hashing is involved either way.</p>
+     * <p/>
+     * <p>Not to be used in user application or template</p>
+     *
+     * @param names the declared render arg names in slot order
+     * @param name  the render arg name
+     * @return the slot or <code>-1</code> if the name is not declared
+     */
+    protected static int __argSlot(String[] names, String name) {
+        for (int i = 0; i < names.length; ++i) {
+            if (names[i] == name) return i;
+        }
+        for (int i = 0; i < names.length; ++i) {
+            if (names[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Store the value into the render arg field declared by name. The implementation
+     * is generated by {@link org.rythmengine.internal.CodeBuilder} for each template
+     * class declaring render args and delegates to the super class if the name is
+     * not declared by that class.
+     * <p/>
+     * <p>Not to be used in user application or template</p>
+     *
+     * @param name the render arg name
+     * @param arg the value
+     * @return <code>true</code> if the arg is declared and has been stored
+     */
+    protected boolean __bindRenderArg(String name, Object arg) {
+        return false;
+    }
+
+    /**
+     * Return the render arg value of this template instance by name without
+     * looking up the caller. Declared args are read from their fields, other
+     * args are read from {@link #__renderArgs}.
+     * <p/>
+     * <p>Not to be used in user application or template</p>
+     *
+     * @param name the render arg name
+     * @return the render arg value
+     */
+    protected Object __renderArg(String name) {
+        return __renderArgs.get(name);
+    }
+
     /**
-     * Stores render args of this template. The generated template source code
-     * will also declare render args as separate protected field while keeping
-     * a copy inside this Map data structure
+     * Put all render args of this template instance into the map specified. Declared
+     * args holding the default value are not put.
+     * <p/>
+     * <p>Not to be used in user application or template</p>
+     *
+     * @param map the map to put render args into
+     */
+    protected void __collectRenderArgs(Map<String, Object> map) {
+        map.putAll(__renderArgs);
+    }
+
+    /**
+     * Return all render args of this template instance in a new map
+     * <p/>
+     * <p>Not to be used in user application or template</p>
+     *
+     * @return the render args
      */
-    protected Map<String, Object> __renderArgs = new ConcurrentHashMap<String, Object>();
+    protected final Map<String, Object> __renderArgMap() {
+        Map<String, Object> m = new HashMap<String, Object>();
+        __collectRenderArgs(m);
+        return m;
+    }
 
     /**
      * Return the {@link RythmEngine engine} running this template
@@ -266,11 +404,11 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
 
     /* to be used by dynamic generated sub classes */
     private String layoutContent = "";
-    // store the current template section content
-    private Map<String, String> layoutSections = new ConcurrentHashMap<String, String>();
-    // store the parent default section content
-    private Map<String, String> layoutSections0 = new ConcurrentHashMap<String, String>();
-    private Map<String, Object> renderProperties = new ConcurrentHashMap<String, Object>();
+    // store the current template section content, created on demand
+    private Map<String, String> layoutSections = null;
+    // store the parent default section content, created on demand
+    private Map<String, String> layoutSections0 = null;
+    private Map<String, Object> renderProperties = null;
 
     /**
      * The parent template (layout template)
@@ -314,7 +452,7 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
      */
     protected RawData __render(String template) {
         if (null == template) return new RawData("");
-        return S.raw(__engine.sandbox().render(template, __renderArgs));
+        return S.raw(__engine.sandbox().render(template, __renderArgMap()));
     }
 
     /**
@@ -333,11 +471,26 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
      * @param section
      */
     private void __addLayoutSection(String name, String section, boolean def) {
-        Map<String, String> m = def ? layoutSections0 : layoutSections;
+        Map<String, String> m;
+        if (def) {
+            if (null == layoutSections0) layoutSections0 = new HashMap<String, String>();
+            m = layoutSections0;
+        } else {
+            if (null == layoutSections) layoutSections = new HashMap<String, String>();
+            m = layoutSections;
+        }
         if (m.containsKey(name)) return;
         m.put(name, section);
     }
 
+    private String __layoutSection(String name) {
+        return null == layoutSections ? null : layoutSections.get(name);
+    }
+
+    private String __layoutSection0(String name) {
+        return null == layoutSections0 ? null : layoutSections0.get(name);
+    }
+
     private StringBuilder tmpOut = null;
     private String section = null;
     private TextBuilder tmpCaller = null;
@@ -385,10 +538,10 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
      * @param name
      */
     protected void __pLayoutSection(String name) {
-        String s = layoutSections.get(name);
-        if (null == s) s = layoutSections0.get(name);
+        String s = __layoutSection(name);
+        if (null == s) s = __layoutSection0(name);
         else {
-            String s0 = layoutSections0.get(name);
+            String s0 = __layoutSection0(name);
             if (s0 == null) s0 = "";
             s = s.replace("\u0000\u0000inherited\u0000\u0000", s0);
         }
@@ -412,7 +565,7 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
      * @return section data by name
      */
     protected RawData __getSection(String name) {
-        return S.raw(layoutSections.get(name));
+        return S.raw(__layoutSection(name));
     }
 
     /**
@@ -421,7 +574,7 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
      * @return layout content
      */
     protected RawData __getSection() {
-        return S.raw(S.isEmpty(layoutContent) ? layoutSections.get("__CONTENT__") : layoutContent);
+        return S.raw(S.isEmpty(layoutContent) ? __layoutSection("__CONTENT__") : layoutContent);
     }
 
     /**
@@ -432,11 +585,15 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
     }
 
     private void addAllLayoutSections(Map<String, String> sections) {
-        if (null != sections) layoutSections.putAll(sections);
+        if (null == sections || sections.isEmpty()) return;
+        if (null == layoutSections) layoutSections = new HashMap<String, String>();
+        layoutSections.putAll(sections);
     }
 
     private void addAllRenderProperties(Map<String, Object> properties) {
-        if (null != properties) renderProperties.putAll(properties);
+        if (null == properties || properties.isEmpty()) return;
+        if (null == renderProperties) renderProperties = new HashMap<String, Object>();
+        renderProperties.putAll(properties);
     }
 
     /**
@@ -452,6 +609,19 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
         }
     }
 
+    /**
+     * Create a new instance of this template class by calling its constructor. The
+     * implementation is generated by {@link org.rythmengine.internal.CodeBuilder}.
+     * Return <code>null</code> if the instance shall be cloned from this one instead
+     * <p/>
+     * <p>Not to be used in user application or template</p>
+     *
+     * @return a new template instance or <code>null</code>
+     */
+    protected TemplateBase __newInstance() {
+        return null;
+    }
+
     /**
      * Not to be used in user application or template
      *
@@ -461,46 +631,82 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
      */
     @Override
     public ITemplate __cloneMe(RythmEngine engine, ITemplate caller) {
+        return __cloneMe(engine, caller, null);
+    }
+
+    /**
+     * Not to be used in user application or template
+     *
+     * @param engine the rythm engine
+     * @param caller the caller template
+     * @param ctx    the render context of a root template. If <code>null</code> then
+     *               it is captured from the render settings of the current thread.
+     *               Ignored if caller is not <code>null</code>
+     * @return cloned template
+     */
+    public ITemplate __cloneMe(RythmEngine engine, ITemplate caller, RenderContext ctx) {
         if (null == engine) throw new NullPointerException();
-        TemplateBase tmpl = __internalClone();
-        if (tmpl.__parent != null) {
-            tmpl.__parent = (TemplateBase) tmpl.__parent.__cloneMe(engine, caller);
+        // a render instance is confined to one thread, thus no concurrent data
+        // structures are needed here. Layout maps are created on demand
+        TemplateBase tmpl = __newInstance();
+        if (null == tmpl || tmpl.getClass() != getClass()) {
+            tmpl = __internalClone();
+            tmpl.__renderArgs = new HashMap<String, Object>();
+            tmpl.layoutSections = null;
+            tmpl.layoutSections0 = null;
+            tmpl.renderProperties = null;
+            tmpl.itrVars = null;
+        } else {
+            tmpl.__templateClass = __templateClass;
+        }
+        if (null != __parent) {
+            tmpl.__parent = (TemplateBase) __parent.__cloneMe(engine, caller, ctx);
         }
         tmpl.__engine = engine;
-        //tmpl.__templateClass = __templateClass;
         tmpl.__ctx = new __Context();
-        //if (null != buffer) tmpl.__buffer = buffer;
-        if (null != __buffer) tmpl.__buffer = new StringBuilder();
-        tmpl.__renderArgs = new ConcurrentHashMap<String, Object>(__renderArgs.size());
-        //tmpl.layoutContent = "";
-        tmpl.layoutSections = new ConcurrentHashMap<String, String>();
-        tmpl.layoutSections0 = new ConcurrentHashMap<String, String>();
-        tmpl.renderProperties = new ConcurrentHashMap<String, Object>();
-        //tmpl.section = null;
-        //tmpl.tmpCaller = null;
-        //tmpl.tmpOut = null;
-        //tmpl.__logTime = __logTime;
-        //tmpl.w = null;
-        //tmpl.os = null;
+        tmpl.__buffer = null == __buffer ? null : __newBuffer(engine);
         if (null != caller) {
             tmpl.__caller = (TextBuilder) caller;
-            Map<String, Object> callerRenderArgs = new HashMap<String, Object>(((TemplateBase) caller).__renderArgs);
-            Map<String, Class> types = tmpl.__renderArgTypeMap();
-            for (Map.Entry<String, Object> entry : callerRenderArgs.entrySet()) {
-                if (tmpl.__renderArgs.containsKey(entry.getKey())) continue;
-                Object o = entry.getValue();
-                if (null == o || __isDefVal(o)) continue;
-                Class<?> c = types.get(entry.getKey());
-
-                if (null == c || c.isAssignableFrom(o.getClass())) {
-                    tmpl.__setRenderArg(entry.getKey(), o);
-                }
-            }
+            ((TemplateBase) caller).__passRenderArgs(tmpl);
         }
-        tmpl.__setUserContext(engine.renderSettings.userContext());
+        // tags and included templates share the render context of the caller
+        if (null != caller) {
+            ctx = ((TemplateBase) caller).__renderContext();
+        } else if (null == ctx) {
+            ctx = RenderContext.capture(engine);
+        }
+        tmpl.__renderCtx = ctx;
+        tmpl.__setUserContext(ctx.userContext());
         return tmpl;
     }
 
+    private StringBuilder __newBuffer(RythmEngine engine) {
+        TemplateClass tc = __templateClass;
+        int size = null == tc ? 0 : tc.estimatedOutputSize();
+        if (engine.conf().outputBufferPoolEnabled()) {
+            return OutputBufferPool.acquire(size);
+        }
+        return 0 == size ? new StringBuilder() : new StringBuilder(size);
+    }
+
+    /**
+     * Record the output size of this template instance and, if output buffer pool
+     * is enabled, return the buffer to the pool. Called once the render result
+     * has been turned into a String
+     */
+    private void __recycleBuffer(RythmEngine engine) {
+        StringBuilder sb = __buffer;
+        if (null == sb) return;
+        TemplateClass tc = __templateClass;
+        if (null != tc) {
+            tc.recordOutputSize(sb.length());
+        }
+        if (engine.conf().outputBufferPoolEnabled()) {
+            __buffer = new StringBuilder(0);
+            OutputBufferPool.release(sb);
+        }
+    }
+
     /**
      * Not to be used in user application or template
      */
@@ -574,6 +780,44 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
         render();
     }
 
+    /**
+     * Render to binary channel. This method is usually called from API defined in
+     * {@link RythmEngine}
+     *
+     * @param channel a blocking channel
+     * @throws IllegalArgumentException if the channel is in non-blocking mode
+     */
+    @Override
+    public final void render(WritableByteChannel channel) {
+        __setOutputChannel(channel);
+        render();
+    }
+
+    /**
+     * Render into byte buffers. This method is usually called from API defined in
+     * {@link RythmEngine}. If the render fails, e.g. with {@link BufferOverflowException},
+     * the positions of the buffers are restored
+     *
+     * @param buffers
+     */
+    @Override
+    public final void render(ByteBuffer[] buffers) {
+        __setOutputBuffers(buffers);
+        int[] positions = new int[buffers.length];
+        for (int i = 0; i < buffers.length; ++i) {
+            positions[i] = buffers[i].position();
+        }
+        try {
+            render();
+        } catch (RuntimeException e) {
+            // do not leave the caller's buffers partly filled
+            for (int i = 0; i < buffers.length; ++i) {
+                buffers[i].position(positions[i]);
+            }
+            throw e;
+        }
+    }
+
     /**
      * Trigger render events.
      * <p>Not an API for user application</p>
@@ -592,7 +836,8 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
     @Override
     public final String render() {
         RythmEngine engine = __engine();
-        boolean engineSet = RythmEngine.set(engine);
+        // the engine has been set to the current thread by the root template
+        boolean engineSet = null == __caller && RythmEngine.set(engine);
         try {
             long l = 0l;
             boolean logTime = __logTime();
@@ -608,6 +853,7 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
             }
             try {
                 String s = __internalRender();
+                __recycleBuffer(engine);
                 return s;
             } finally {
                 __triggerRenderEvent(RythmEvents.RENDERED, engine);
@@ -683,13 +929,6 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
         w_ = w;
     }
 
-    private static final ThreadLocal<Boolean> cce_ = new ThreadLocal<Boolean>() {
-        @Override
-        protected Boolean initialValue() {
-            return false;
-        }
-    };
-
     private void handleThrowable(Throwable e) {
         StackTraceElement[] stackTrace = e.getStackTrace();
         String msg = null;
@@ -764,12 +1003,16 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
             } finally {
                 __finally();
                 Sandbox.leaveCurZone(code);
+                __finishOutputStream();
             }
             if (__logTime()) {
                 __logger.debug("<<<<<<<<<<<< [%s] build: %sms", getClass().getName(), System.currentTimeMillis() - l);
             }
         } catch (RythmException e) {
             throw e;
+        } catch (BufferOverflowException e) {
+            // the output buffers are full, not a template error
+            throw e;
         } catch (Throwable e) {
             handleThrowable(e);
         }
@@ -796,7 +1039,7 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
             __parent.__setLayoutContent(toString());
             __parent.addAllLayoutSections(layoutSections);
             __parent.addAllRenderProperties(renderProperties);
-            __parent.__setRenderArgs(__renderArgs);
+            __parent.__setRenderArgs(__renderArgMap());
             //__parent.__renderArgs.putAll(__renderArgs);
             return __parent.render();
         } else {
@@ -860,9 +1103,64 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
         return Collections.emptyMap();
     }
 
+    /**
+     * Return the type of a declared render arg by name, or <code>null</code> if the arg
+     * is not declared. The implementation is generated by {@link org.rythmengine.internal.CodeBuilder}
+     * from the static slot names of the template class.
+     * <p/>
+     * <p>Not to be used in user application or template</p>
+     *
+     * @param name the render arg name
+     * @return the declared type
+     */
+    protected Class __renderArgType(String name) {
+        return null;
+    }
+
+    /**
+     * Pass the render args of this template instance to a tag or template it calls.
+     * The generated template class passes the bound args it declares by reading
+     * the fields directly and delegates to the super class for the rest, so no
+     * render arg map is built for a call.
+     * <p/>
+     * <p>Not to be used in user application or template</p>
+     *
+     * @param callee the tag or template instance being called
+     */
+    protected void __passRenderArgs(TemplateBase callee) {
+        if (__renderArgs.isEmpty()) return;
+        for (Map.Entry<String, Object> entry : __renderArgs.entrySet()) {
+            __passRenderArg(callee, entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Set a render arg of the caller to the callee if the arg has a value and
+     * the callee does not declare the arg with an incompatible type.
+     * <p/>
+     * <p>Not to be used in user application or template</p>
+     *
+     * @param callee the tag or template instance being called
+     * @param name the render arg name
+     * @param o the render arg value
+     */
+    protected static void __passRenderArg(TemplateBase callee, String name, Object o) {
+        if (null == o || __isDefVal(o)) return;
+        Class<?> c = callee.__renderArgType(name);
+        if (null == c || c.isAssignableFrom(o.getClass())) {
+            callee.__setRenderArg(name, o);
+        }
+    }
+
     @Override
     public ITemplate __setRenderArgs(Map<String, Object> args) {
-        __renderArgs = args;
+        if (null == args) throw new NullPointerException();
+        // declared args are bound to their fields, only the others are kept in the map
+        for (Map.Entry<String, Object> entry : args.entrySet()) {
+            String name = entry.getKey();
+            Object arg = entry.getValue();
+            if (!__bindRenderArg(name, arg)) __renderArgs.put(name, arg);
+        }
         return this;
     }
 
@@ -974,7 +1272,7 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
 
     @Override
     public ITemplate __setRenderArg(String name, Object arg) {
-        __renderArgs.put(name, arg);
+        if (!__bindRenderArg(name, arg)) __renderArgs.put(name, arg);
         return this;
     }
 
@@ -1002,7 +1300,7 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
 
     @Override
     public <T> T __getRenderArg(String name) {
-        Object val = __renderArgs.get(name);
+        Object val = __renderArg(name);
         //if (null == val) return null;
         if (null != __caller) {
             if (!__isDefVal(val)) return (T) val;
@@ -1101,7 +1399,7 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
      * @return a render property
      */
     protected final <T> T __getRenderProperty(String name, T def) {
-        Object o = __renderArgs.get(name);
+        Object o = __renderArg(name);
         return (T) (__isDefVal(o) ? def : o);
     }
 
@@ -1153,6 +1451,7 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
      * @param e
      */
     protected final void __handleTemplateExecutionException(Exception e) {
+        if (e instanceof BufferOverflowException) throw (BufferOverflowException) e;
         try {
             if (!RythmEvents.ON_RENDER_EXCEPTION.trigger(__engine(), F.T2(this, e))) {
                 throw e;
@@ -1186,16 +1485,42 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
         return __ctx.currentEscape();
     }
 
+    private ByteOutputEncoder __encoder() {
+        if (null == enc) {
+            Charset charset = __engine().conf().outputCharset();
+            if (null != os) {
+                enc = ByteOutputEncoder.acquire(os, charset);
+            } else if (null != ch) {
+                enc = ByteOutputEncoder.acquire(ch, charset);
+            } else {
+                enc = ByteOutputEncoder.acquire(bufs, charset);
+            }
+        }
+        return enc;
+    }
+
+    private void __finishOutputStream() {
+        if (null == enc) return;
+        try {
+            enc.finish();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            ByteOutputEncoder.release(enc);
+            enc = null;
+        }
+    }
+
     private boolean appendToBuffer() {
-        return null != __parent || (null == w && null == os);
+        return null != __parent || (null == w && !__binaryOutput());
     }
 
     private boolean appendToWriter() {
         return (null == __parent && null != w);
     }
 
-    private boolean appendToOutputStream() {
-        return (null == __parent && null != os);
+    private boolean appendToBinaryOutput() {
+        return (null == __parent && __binaryOutput());
     }
 
     @Override
@@ -1203,11 +1528,16 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
         if (appendToBuffer()) {
             super.__append(wrapper);
         }
-        if (null == os && null == w) return;
+        if (null == w && !__binaryOutput()) return;
 
-        if (appendToOutputStream()) {
+        if (appendToBinaryOutput()) {
             try {
-                os.write(wrapper.toBinary());
+                ByteOutputEncoder enc = __encoder();
+                if (wrapper.encodedIn(enc.charset())) {
+                    enc.write(wrapper.binary(), wrapper.binaryOffset(), wrapper.binaryLength());
+                } else {
+                    enc.write(wrapper.toString());
+                }
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
@@ -1224,18 +1554,37 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
     protected void __append(Object o) {
         String oStr = o.toString();
         if (appendToBuffer()) super.__append(oStr);
-        if (null == os && null == w) return;
+        if (null == w && !__binaryOutput()) return;
 
-        StrBuf wrapper = new StrBuf(oStr);
-        if (appendToOutputStream()) {
+        if (appendToBinaryOutput()) {
             try {
-                os.write(wrapper.toBinary());
+                __encoder().write(oStr);
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
         } else if (appendToWriter()) {
             try {
-                w.write(wrapper.toString());
+                w.write(oStr);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    @Override
+    protected void __appendEscaped(String s, Escape escape) {
+        if (appendToBuffer()) super.__appendEscaped(s, escape);
+        if (null == w && !__binaryOutput()) return;
+
+        if (appendToBinaryOutput()) {
+            try {
+                escape.escapeTo(s, __encoder());
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        } else if (appendToWriter()) {
+            try {
+                escape.escapeTo(s, w);
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
@@ -1245,11 +1594,11 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
     @Override
     protected void __append(char c) {
         if (appendToBuffer()) super.__append(c);
-        if (null == os && null == w) return;
+        if (null == w && !__binaryOutput()) return;
 
-        if (appendToOutputStream()) {
+        if (appendToBinaryOutput()) {
             try {
-                os.write(c);
+                __encoder().write(c);
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
@@ -1265,12 +1614,11 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
     @Override
     protected void __append(int i) {
         if (appendToBuffer()) super.__append(i);
-        if (null == os && null == w) return;
+        if (null == w && !__binaryOutput()) return;
 
-        if (appendToOutputStream()) {
-            StrBuf wrapper = new StrBuf(String.valueOf(i));
+        if (appendToBinaryOutput()) {
             try {
-                os.write(wrapper.toBinary());
+                __encoder().write(i);
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
@@ -1286,12 +1634,11 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
     @Override
     protected void __append(long l) {
         if (appendToBuffer()) super.__append(l);
-        if (null == os && null == w) return;
+        if (null == w && !__binaryOutput()) return;
 
-        if (appendToOutputStream()) {
-            StrBuf wrapper = new StrBuf(String.valueOf(l));
+        if (appendToBinaryOutput()) {
             try {
-                os.write(wrapper.toBinary());
+                __encoder().write(l);
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
@@ -1307,12 +1654,11 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
     @Override
     protected void __append(float f) {
         if (appendToBuffer()) super.__append(f);
-        if (null == os && null == w) return;
+        if (null == w && !__binaryOutput()) return;
 
-        if (appendToOutputStream()) {
-            StrBuf wrapper = new StrBuf(String.valueOf(f));
+        if (appendToBinaryOutput()) {
             try {
-                os.write(wrapper.toBinary());
+                __encoder().write(f);
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
@@ -1328,12 +1674,11 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
     @Override
     protected void __append(double d) {
         if (appendToBuffer()) super.__append(d);
-        if (null == os && null == w) return;
+        if (null == w && !__binaryOutput()) return;
 
-        if (appendToOutputStream()) {
-            StrBuf wrapper = new StrBuf(String.valueOf(d));
+        if (appendToBinaryOutput()) {
             try {
-                os.write(wrapper.toBinary());
+                __encoder().write(d);
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
@@ -1349,12 +1694,11 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
     @Override
     protected void __append(boolean b) {
         if (appendToBuffer()) super.__append(b);
-        if (null == os && null == w) return;
+        if (null == w && !__binaryOutput()) return;
 
-        if (appendToOutputStream()) {
-            StrBuf wrapper = new StrBuf(String.valueOf(b));
+        if (appendToBinaryOutput()) {
             try {
-                os.write(wrapper.toBinary());
+                __encoder().write(b);
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
@@ -1421,7 +1765,7 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
     }
 
     protected final Object __eval(String expr) {
-        Map<String, Object> ctx = new ConcurrentHashMap<String, Object>(__renderArgs);
+        Map<String, Object> ctx = __renderArgMap();
         ctx.putAll(itrVars());
         try {
             Object retval = __engine().eval(expr, this, ctx);
@@ -1472,21 +1816,22 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
         return i18n.getMessage(TemplateBase.this, key, args);
     }
 
-    private Deque<F.T2<String, Object>> itrVars = new ConcurrentLinkedDeque<>();
+    private Deque<F.T2<String, Object>> itrVars = null;
 
     protected void __pushItrVar(String name, Object val) {
+        if (null == itrVars) itrVars = new ArrayDeque<F.T2<String, Object>>();
         itrVars.push(F.T2(name, val));
     }
 
     protected void __popItrVar() {
-        itrVars.poll();
+        if (null != itrVars) itrVars.poll();
     }
 
     private Map<String, Object> itrVars() {
-        if (itrVars.isEmpty()) return Collections.EMPTY_MAP;
+        if (null == itrVars || itrVars.isEmpty()) return Collections.EMPTY_MAP;
         if (itrVars.size() == 1) return itrVars.peek().asMap();
-        Deque<F.T2<String, Object>> tmp = new ConcurrentLinkedDeque<>();
-        Map<String, Object> m = new ConcurrentHashMap<String, Object>();
+        Deque<F.T2<String, Object>> tmp = new ArrayDeque<F.T2<String, Object>>();
+        Map<String, Object> m = new HashMap<String, Object>();
         Deque<F.T2<String, Object>> vs = itrVars;
         while (!vs.isEmpty()) {
             F.T2<String, Object> var = vs.pop();
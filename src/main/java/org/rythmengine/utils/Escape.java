@@ -25,11 +25,10 @@ package org.rythmengine.utils;
  * #L%
  */
 
-import org.apache.commons.lang3.CharUtils;
-import org.apache.commons.lang3.StringUtils;
 import org.rythmengine.RythmEngine;
 import org.rythmengine.template.ITemplate;
 
+import java.io.IOException;
 import java.util.Arrays;
 
 /**
@@ -39,58 +38,43 @@ public enum Escape {
     /**
      * Indicate raw escape scheme, i.e. no other escape scheme should apply
      */
-    RAW,
-    /**
-     * CSV escape scheme
-     */
-    CSV {
+    RAW(null) {
         @Override
-        protected RawData apply_(String s) {
-            // fix https://github.com/greenlaw110/Rythm/issues/155
-            //return org.rythmengine.utils.S.escapeCsv(s);
-            return new RawData(CSVEscape.escape(s));
+        public String escape(String s) {
+            return s;
         }
-    },
-    /**
-     * HTML escape scheme
-     */
-    HTML
 
-    {
         @Override
-        protected RawData apply_(String s) {
-            return org.rythmengine.utils.S.escapeHtml(s);
+        public void escapeTo(String s, Appendable out) throws IOException {
+            out.append(s);
         }
     },
+    /**
+     * CSV escape scheme
+     */
+    CSV(EscapeEngine.CSV),
+    /**
+     * HTML escape scheme
+     */
+    HTML(EscapeEngine.HTML),
     /**
      * javascript escape scheme
      */
-    JS {
-        @Override
-        protected RawData apply_(String s) {
-            return org.rythmengine.utils.S.escapeJavaScript(s);
-        }
-    },
+    JS(EscapeEngine.JS),
     /**
      * JSON escape scheme
      */
-    JSON
-
-    {
-        @Override
-        protected RawData apply_(String s) {
-            return org.rythmengine.utils.S.escapeJson(s);
-        }
-    },
+    JSON(EscapeEngine.JSON),
     /**
      * XML escape scheme
      */
-    XML {
-        @Override
-        protected RawData apply_(String s) {
-            return org.rythmengine.utils.S.escapeXml(s);
-        }
-    };
+    XML(EscapeEngine.XML);
+
+    private final EscapeEngine engine;
+
+    Escape(EscapeEngine engine) {
+        this.engine = engine;
+    }
 
     /**
      * Apply this escape scheme to the object's string representation
@@ -105,7 +89,46 @@ public enum Escape {
     }
 
     protected RawData apply_(String s) {
-        return new RawData(s);
+        return new RawData(escape(s));
+    }
+
+    /**
+     * Return the string escaped with this escape scheme. The string itself is
+     * returned if there is nothing to escape
+     *
+     * @param s the string
+     * @return the escaped string
+     */
+    public String escape(String s) {
+        return engine.escape(s);
+    }
+
+    /**
+     * Append the string escaped with this escape scheme to the output directly,
+     * without creating the escaped string
+     *
+     * @param s   the string
+     * @param out the output, e.g. a <code>StringBuilder</code> or a <code>Writer</code>
+     * @throws IOException if the output raised it
+     */
+    public void escapeTo(String s, Appendable out) throws IOException {
+        engine.escapeTo(s, out);
+    }
+
+    /**
+     * Append the string escaped with this escape scheme to the string builder
+     *
+     * @param s  the string
+     * @param sb the string builder
+     * @see #escapeTo(String, Appendable)
+     */
+    public final void escapeTo(String s, StringBuilder sb) {
+        try {
+            escapeTo(s, (Appendable) sb);
+        } catch (IOException e) {
+            // StringBuilder does not raise IOException
+            throw new RuntimeException(e);
+        }
     }
 
     private static String[] sa_ = null;
@@ -151,22 +174,4 @@ public enum Escape {
         if (escape.equals("JAVASCRIPT")) escape = "JS";
         return valueOf(escape);
     }
-
-    private static class CSVEscape {
-        private static final char CSV_DELIMITER = ',';
-        private static final char CSV_QUOTE = '"';
-        private static final String CSV_QUOTE_STR = String.valueOf(CSV_QUOTE);
-        private static final char[] CSV_SEARCH_CHARS = 
-            new char[] {CSV_DELIMITER, CSV_QUOTE, CharUtils.CR, CharUtils.LF};
-
-        private static String escape(String s) {
-            if (StringUtils.containsNone(s, CSV_SEARCH_CHARS)) {
-                return s;
-            }
-            StringBuilder sb = new StringBuilder(CSV_QUOTE_STR);
-            sb.append(StringUtils.replace(s, CSV_QUOTE_STR, CSV_QUOTE_STR + CSV_QUOTE_STR));
-            return sb.append(CSV_QUOTE_STR).toString();
-            //return StringEscapeUtils.escapeCsv(s);
-        }
-    }
 }
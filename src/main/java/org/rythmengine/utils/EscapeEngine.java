@@ -0,0 +1,246 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.utils;
+
+/*-
+ * #%L
+ * Rythm Template Engine
+ * %%
+ * Copyright (C) 2017 - 2021 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.commons.lang3.text.translate.EntityArrays;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * The table driven escape implementation shared by the {@link Escape} schemes.
+ * <p/>
+ * <p>Characters that need escaping are detected with two 64 bit masks for the
+ * ASCII range, and a replacement table lookup beyond it. Runs of characters
+ * that do not need escaping are appended to the output in bulk rather than
+ * character by character, and a string with nothing to escape is returned
+ * or appended as it is.</p>
+ * <p/>
+ * <p>Not an API for user application</p>
+ */
+final class EscapeEngine {
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * Same as <code>StringEscapeUtils.escapeHtml4</code>
+     */
+    static final EscapeEngine HTML;
+
+    /**
+     * Escape the XML special characters
+     */
+    static final EscapeEngine XML;
+
+    /**
+     * Same as <code>StringEscapeUtils.escapeEcmaScript</code>
+     */
+    static final EscapeEngine JS;
+
+    /**
+     * Same as <code>StringEscapeUtils.escapeJson</code>, which does not escape single quotes
+     */
+    static final EscapeEngine JSON;
+
+    /**
+     * Quote the value if it contains a delimiter, a quote or a line break, and
+     * double the quotes inside
+     */
+    static final EscapeEngine CSV;
+
+    static {
+        String[] xml = new String[128];
+        xml['<'] = "&lt;";
+        xml['>'] = "&gt;";
+        xml['"'] = "&quot;";
+        xml['\''] = "&apos;";
+        xml['&'] = "&amp;";
+        XML = new EscapeEngine(xml, false, '\0');
+
+        String[][][] entities = {EntityArrays.BASIC_ESCAPE(), EntityArrays.ISO8859_1_ESCAPE(), EntityArrays.HTML40_EXTENDED_ESCAPE()};
+        int max = 127;
+        for (String[][] table : entities) {
+            for (String[] entry : table) {
+                max = Math.max(max, entry[0].charAt(0));
+            }
+        }
+        String[] html = new String[max + 1];
+        for (String[][] table : entities) {
+            for (String[] entry : table) {
+                html[entry[0].charAt(0)] = entry[1];
+            }
+        }
+        HTML = new EscapeEngine(html, false, '\0');
+
+        String[] json = new String[128];
+        for (char c = 0; c < 32; ++c) {
+            json[c] = unicode(c);
+        }
+        json['"'] = "\\\"";
+        json['\\'] = "\\\\";
+        json['/'] = "\\/";
+        json['\b'] = "\\b";
+        json['\n'] = "\\n";
+        json['\t'] = "\\t";
+        json['\f'] = "\\f";
+        json['\r'] = "\\r";
+        JSON = new EscapeEngine(json, true, '\0');
+
+        String[] js = json.clone();
+        js['\''] = "\\'";
+        JS = new EscapeEngine(js, true, '\0');
+
+        // fix https://github.com/greenlaw110/Rythm/issues/155
+        String[] csv = new String[128];
+        csv[','] = ",";
+        csv['\r'] = "\r";
+        csv['\n'] = "\n";
+        csv['"'] = "\"\"";
+        CSV = new EscapeEngine(csv, false, '"');
+    }
+
+    // the ASCII characters to escape: bit c of lo for c < 64, bit c - 64 of hi for c < 128
+    private final long lo;
+    private final long hi;
+    // the replacements indexed by character, null if the character is not escaped
+    private final String[] table;
+    // whether characters beyond the table are escaped as \\uXXXX
+    private final boolean unicode;
+    // the quote wrapping the escaped value, 0 for none
+    private final char quote;
+
+    private EscapeEngine(String[] table, boolean unicode, char quote) {
+        long lo = 0L, hi = 0L;
+        for (int c = 0; c < 128; ++c) {
+            if (null != table[c]) {
+                if (c < 64) {
+                    lo |= 1L << c;
+                } else {
+                    hi |= 1L << c;
+                }
+            }
+        }
+        this.lo = lo;
+        this.hi = hi;
+        this.table = table;
+        this.unicode = unicode;
+        this.quote = quote;
+    }
+
+    /**
+     * Return the index of the first character needs escaping in the range
+     *
+     * @param s    the string
+     * @param from the start index, inclusive
+     * @param end  the end index, exclusive
+     * @return the index or <code>-1</code> if there is nothing to escape
+     */
+    int indexOfEscape(String s, int from, int end) {
+        final long lo = this.lo, hi = this.hi;
+        for (int i = from; i < end; ++i) {
+            char c = s.charAt(i);
+            // a long shift only takes the lowest 6 bits of the distance
+            if (c < 64) {
+                if (0L != ((lo >>> c) & 1L)) return i;
+            } else if (c < 128) {
+                if (0L != ((hi >>> c) & 1L)) return i;
+            } else if (c < table.length ? null != table[c] : unicode) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Return the escaped string, or the string itself if there is nothing to escape
+     */
+    String escape(String s) {
+        int len = s.length();
+        int i = indexOfEscape(s, 0, len);
+        if (i < 0) return s;
+        StringBuilder sb = new StringBuilder(len + 16 + (len >> 3));
+        try {
+            escapeFrom(s, i, len, sb);
+        } catch (IOException e) {
+            // StringBuilder does not raise IOException
+            throw new RuntimeException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Append the escaped string to the output
+     */
+    void escapeTo(String s, Appendable out) throws IOException {
+        int len = s.length();
+        int i = indexOfEscape(s, 0, len);
+        if (i < 0) {
+            out.append(s);
+        } else {
+            escapeFrom(s, i, len, out);
+        }
+    }
+
+    private void escapeFrom(String s, int i, int len, Appendable out) throws IOException {
+        final String[] table = this.table;
+        if ('\0' != quote) out.append(quote);
+        int start = 0;
+        while (i >= 0) {
+            if (i > start) appendRun(s, start, i, out);
+            char c = s.charAt(i);
+            String r = c < table.length ? table[c] : null;
+            if (null != r) {
+                out.append(r);
+            } else {
+                appendUnicode(c, out);
+            }
+            start = i + 1;
+            i = indexOfEscape(s, start, len);
+        }
+        if (start < len) appendRun(s, start, len, out);
+        if ('\0' != quote) out.append(quote);
+    }
+
+    private static void appendRun(String s, int start, int end, Appendable out) throws IOException {
+        if (out instanceof StringBuilder) {
+            ((StringBuilder) out).append(s, start, end);
+        } else if (out instanceof Writer) {
+            // Writer.append(CharSequence, int, int) creates a sub sequence
+            ((Writer) out).write(s, start, end - start);
+        } else {
+            out.append(s, start, end);
+        }
+    }
+
+    private static void appendUnicode(char c, Appendable out) throws IOException {
+        out.append('\\').append('u').append(HEX[(c >> 12) & 0xF]).append(HEX[(c >> 8) & 0xF])
+                .append(HEX[(c >> 4) & 0xF]).append(HEX[c & 0xF]);
+    }
+
+    private static String unicode(char c) {
+        return new String(new char[]{'\\', 'u', HEX[(c >> 12) & 0xF], HEX[(c >> 8) & 0xF], HEX[(c >> 4) & 0xF], HEX[c & 0xF]});
+    }
+}
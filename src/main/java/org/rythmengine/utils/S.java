@@ -484,7 +484,7 @@ public class S {
         if (o instanceof RawData) {
             return (RawData) o;
         }
-        return new RawData(StringEscapeUtils.escapeHtml4(o.toString()));
+        return Escape.HTML.apply_(o.toString());
     }
 
     /**
@@ -544,9 +544,7 @@ public class S {
         if (null == o) return RawData.NULL;
         if (o instanceof RawData)
             return (RawData) o;
-        String s0 = o.toString();
-        s0 = StringEscapeUtils.escapeJson(s0);
-        return new RawData(s0);
+        return Escape.JSON.apply_(o.toString());
     }
 
     /**
@@ -576,7 +574,7 @@ public class S {
         if (null == o) return RawData.NULL;
         if (o instanceof RawData)
             return (RawData) o;
-        return new RawData(StringEscapeUtils.escapeEcmaScript(o.toString()));
+        return Escape.JS.apply_(o.toString());
     }
 
     /**
@@ -635,77 +633,7 @@ public class S {
         if (null == o) return RawData.NULL;
         if (o instanceof RawData)
             return (RawData) o;
-        return new RawData(_escapeXML(o.toString()));
-    }
-
-    // The code is copied from
-    // https://github.com/httl/httl/blob/master/httl/src/main/java/httl/util/StringUtils.java#L464
-    // we use this method to replace apache StringEscapeUtils, which is slower
-    private static String _escapeXML(String value) {
-        int len = value.length();
-        if (0 == len) {
-            return value;
-        }
-        StringBuilder buf = null;
-        for (int i = 0; i < len; i++) {
-            char ch = value.charAt(i);
-            switch (ch) {
-                case '<':
-                    if (buf == null) {
-                        buf = new StringBuilder(len * 2);
-                        if (i > 0) {
-                            buf.append(value.substring(0, i));
-                        }
-                    }
-                    buf.append("&lt;");
-                    break;
-                case '>':
-                    if (buf == null) {
-                        buf = new StringBuilder(len * 2);
-                        if (i > 0) {
-                            buf.append(value.substring(0, i));
-                        }
-                    }
-                    buf.append("&gt;");
-                    break;
-                case '\"':
-                    if (buf == null) {
-                        buf = new StringBuilder(len * 2);
-                        if (i > 0) {
-                            buf.append(value.substring(0, i));
-                        }
-                    }
-                    buf.append("&quot;");
-                    break;
-                case '\'':
-                    if (buf == null) {
-                        buf = new StringBuilder(len * 2);
-                        if (i > 0) {
-                            buf.append(value.substring(0, i));
-                        }
-                    }
-                    buf.append("&apos;");
-                    break;
-                case '&':
-                    if (buf == null) {
-                        buf = new StringBuilder(len * 2);
-                        if (i > 0) {
-                            buf.append(value.substring(0, i));
-                        }
-                    }
-                    buf.append("&amp;");
-                    break;
-                default:
-                    if (buf != null) {
-                        buf.append(ch);
-                    }
-                    break;
-            }
-        }
-        if (buf != null) {
-            return buf.toString();
-        }
-        return value;
+        return Escape.XML.apply_(o.toString());
     }
 
     /**
@@ -718,7 +646,7 @@ public class S {
         if (null == o) return RawData.NULL;
         if (o instanceof RawData)
             return (RawData) o;
-        return new RawData(_escapeXML(o.toString()));
+        return Escape.XML.apply_(o.toString());
     }
 
     /**
@@ -985,7 +913,7 @@ public class S {
      * @return raw data of transformed result
      */
     public static RawData nl2br(Object data) {
-        return new RawData(StringEscapeUtils.escapeHtml4(str(data)).replaceAll("(\\r\\n|\\n|\\r)", "<br/>"));
+        return new RawData(Escape.HTML.escape(str(data)).replaceAll("(\\r\\n|\\n|\\r)", "<br/>"));
     }
 
     /**
@@ -1004,7 +932,7 @@ public class S {
      * @return raw data of transformed result
      */
     public static RawData sp2nbsp(Object data) {
-        return new RawData(StringEscapeUtils.escapeHtml4(str(data)).replace(" ", "&nbsp;"));
+        return new RawData(Escape.HTML.escape(str(data)).replace(" ", "&nbsp;"));
     }
 
     /**
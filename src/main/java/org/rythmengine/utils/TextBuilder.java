@@ -28,6 +28,11 @@ package org.rythmengine.utils;
 import org.rythmengine.exception.FastRuntimeException;
 import org.rythmengine.template.ITemplate;
 
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * This class defines a chained text/string builder
  *
@@ -129,8 +134,16 @@ public class TextBuilder implements Cloneable {
     protected static final class StrBuf {
         private final String s_;
         private byte[] ba_;
+        // the charset of ba_, null means the platform default charset
+        private Charset cs_;
+        // when ba_ is a slab shared with other StrBuf, the slice of this StrBuf
+        private int off_;
+        private int len_ = -1;
+        // the slab this buffer is encoded into on the first binary output
+        private final Slab slab_;
 
         public StrBuf(String s, byte[] ba) {
+            slab_ = null;
             if (null == s || "".equals(s)) {
                 s_ = "";
                 ba_ = new byte[]{};
@@ -141,11 +154,25 @@ public class TextBuilder implements Cloneable {
         }
 
         public StrBuf(String s) {
+            this(s, (Slab) null);
+        }
+
+        /**
+         * Construct a buffer which binary form will be encoded with the other buffers
+         * of the slab when it is first written to a binary output
+         *
+         * @param s    the string
+         * @param slab the slab
+         */
+        public StrBuf(String s, Slab slab) {
             if (null == s || "".equals(s)) {
                 s_ = "";
                 ba_ = new byte[]{};
+                slab_ = null;
             } else {
                 s_ = s;
+                slab_ = slab;
+                if (null != slab) slab.bufs.add(this);
             }
         }
 
@@ -154,12 +181,108 @@ public class TextBuilder implements Cloneable {
         }
 
         public byte[] toBinary() {
+            if (null == ba_) {
+                ba_ = s_.getBytes();
+            }
+            if (len_ > -1) {
+                return Arrays.copyOfRange(ba_, off_, off_ + len_);
+            }
+            return ba_;
+        }
+
+        /**
+         * Check if the binary form of this buffer has been encoded in the charset specified
+         *
+         * @param charset the charset
+         * @return true if the binary form is available in the charset
+         */
+        public boolean encodedIn(Charset charset) {
+            if (null != slab_) slab_.encode();
+            if (null == ba_) return false;
+            return null == cs_ ? charset.equals(Charset.defaultCharset()) : cs_.equals(charset);
+        }
+
+        /**
+         * Return the byte array holding the binary form of this buffer. Note the array
+         * could be shared with other buffers, use {@link #binaryOffset()} and
+         * {@link #binaryLength()} to locate the bytes of this buffer
+         *
+         * @return the byte array
+         */
+        public byte[] binary() {
             if (null == ba_) {
                 ba_ = s_.getBytes();
             }
             return ba_;
         }
 
+        public int binaryOffset() {
+            return off_;
+        }
+
+        public int binaryLength() {
+            return len_ > -1 ? len_ : binary().length;
+        }
+
+        /**
+         * Encode the buffers in the charset specified. The bytes of all buffers are
+         * stored in a single byte array, and each buffer keeps track of its slice.
+         * <p/>
+         * <p>This method is called by {@link Slab} on the first binary output of a
+         * template class. Not an API for user application</p>
+         *
+         * @param charset the charset name
+         * @param bufs    the buffers
+         */
+        public static void encode(String charset, StrBuf[] bufs) {
+            Charset cs = Charset.forName(charset);
+            int len = bufs.length;
+            byte[][] parts = new byte[len][];
+            int total = 0;
+            for (int i = 0; i < len; ++i) {
+                parts[i] = bufs[i].s_.getBytes(cs);
+                total += parts[i].length;
+            }
+            byte[] slab = new byte[total];
+            int off = 0;
+            for (int i = 0; i < len; ++i) {
+                byte[] ba = parts[i];
+                System.arraycopy(ba, 0, slab, off, ba.length);
+                StrBuf buf = bufs[i];
+                buf.ba_ = slab;
+                buf.cs_ = cs;
+                buf.off_ = off;
+                buf.len_ = ba.length;
+                off += ba.length;
+            }
+        }
+
+        /**
+         * The static text buffers of a template class. They are encoded into a single
+         * byte array on the first binary output of the class, thus a class only rendered
+         * into String or Writer never keeps the binary form of its text
+         */
+        public static final class Slab {
+            private final String charset;
+            // filled by the static initializer of the template class
+            private final List<StrBuf> bufs = new ArrayList<StrBuf>();
+            private volatile boolean encoded;
+
+            public Slab(String charset) {
+                this.charset = charset;
+            }
+
+            void encode() {
+                if (encoded) return;
+                synchronized (this) {
+                    if (!encoded) {
+                        StrBuf.encode(charset, bufs.toArray(new StrBuf[bufs.size()]));
+                        encoded = true;
+                    }
+                }
+            }
+        }
+
         @Override
         public int hashCode() {
             return s_.hashCode();
@@ -215,6 +338,35 @@ public class TextBuilder implements Cloneable {
         else __caller.p(o);
     }
 
+    /**
+     * Append a string escaped with the escape scheme to internal buffer or output
+     * (os or writer), without creating the escaped string
+     *
+     * @param s
+     * @param escape
+     */
+    protected void __appendEscaped(String s, Escape escape) {
+        escape.escapeTo(s, __buffer);
+    }
+
+    private void pe_(String s, Escape escape) {
+        if (null != __buffer) __appendEscaped(s, escape);
+        else __caller.pe_(s, escape);
+    }
+
+    /**
+     * Print a string escaped with the escape scheme to internal buffer or output
+     * (os or writer)
+     *
+     * @param s
+     * @param escape
+     * @return this builder
+     */
+    protected final TextBuilder __pe(String s, Escape escape) {
+        pe_(s, escape);
+        return this;
+    }
+
     /**
      * Print a {@link java.lang.Object} to internal buffer or output (os or writer)
      * <code>null</code> object will not be printed
@@ -18,7 +18,14 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({ org.rythmengine.advanced.JSONParameterTest.class,
     org.rythmengine.advanced.NaturalTemplateTest.class,
+    org.rythmengine.advanced.OutputBufferTest.class,
+    org.rythmengine.advanced.RenderAsyncTest.class,
+    org.rythmengine.advanced.CompiledTemplateTest.class,
+    org.rythmengine.advanced.InlineTemplateCacheTest.class,
     org.rythmengine.advanced.SmartEscapeTest.class,
+    org.rythmengine.advanced.TemplateReloadTest.class,
+    org.rythmengine.advanced.TemplateClassLoaderTest.class,
+    org.rythmengine.advanced.PrecompileTest.class,
     org.rythmengine.advanced.TransformerTest.class,
     org.rythmengine.advanced.TypeInferenceTest.class,
     org.rythmengine.cache.EhCacheServiceTest.class,
@@ -39,11 +46,13 @@ import org.junit.runners.Suite;
     org.rythmengine.essential.IfParserTest.class,
     org.rythmengine.essential.ImportParserTest.class,
     org.rythmengine.essential.IncludeParserTest.class,
+    org.rythmengine.essential.LargeTemplateTest.class,
     org.rythmengine.essential.NoCompactParserTest.class, 
     org.rythmengine.essential.RawParserTest.class,
     org.rythmengine.essential.ReturnParserTest.class,
     org.rythmengine.essential.UtilsTest.class,
     org.rythmengine.essential.VerbatimParserTest.class,
+    org.rythmengine.internal.compiler.TemplateCompilerTest.class,
     org.rythmengine.issue.GhIssueTest70_140.class,
     org.rythmengine.issue.GhIssueTest141_176.class,
     org.rythmengine.issue.GhIssueTest185_202.class,
@@ -58,8 +67,10 @@ import org.junit.runners.Suite;
     org.rythmengine.tag.InlineTagTest.class,
     org.rythmengine.tag.InvokeParserTest.class,
     org.rythmengine.tag.InvokeTemplateTest.class,
+    org.rythmengine.tag.TagInliningTest.class,
     org.rythmengine.tag.MacroTest.class,
     org.rythmengine.tag.tagPriorityTest.class, 
+    org.rythmengine.utils.EscapeTest.class,
     org.rythmengine.essential.ForParserTest.class})
 public class TestSuite {
 
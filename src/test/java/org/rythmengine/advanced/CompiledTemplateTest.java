@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.advanced;
+
+import org.junit.Test;
+import org.rythmengine.CompiledTemplate;
+import org.rythmengine.Rythm;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.TestBase;
+import org.rythmengine.template.ITemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+
+import static org.rythmengine.conf.RythmConfigurationKey.FEATURE_TYPE_INFERENCE_ENABLED;
+
+/**
+ * Test {@link RythmEngine#prepare(String)}
+ */
+public class CompiledTemplateTest extends TestBase {
+
+    public static class Person {
+        private final String name;
+        private final int age;
+        private final boolean admin;
+
+        public Person(String name, int age, boolean admin) {
+            this.name = name;
+            this.age = age;
+            this.admin = admin;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public boolean isAdmin() {
+            return admin;
+        }
+    }
+
+    public static class Account {
+        public String getOwner() {
+            return "Tom";
+        }
+
+        public String summary() {
+            return "summary";
+        }
+
+        public String owner() {
+            return "owner";
+        }
+    }
+
+    @Test
+    public void testRenderRepeatedly() {
+        CompiledTemplate ct = Rythm.engine().prepare("@args String a, int b\n@a-@b");
+        assertEquals("x-1", ct.render("x", 1));
+        assertEquals("y-2", ct.render("y", 2));
+        assertSame(ct.engine(), Rythm.engine());
+    }
+
+    @Test
+    public void testRenderToWriterAndStream() throws Exception {
+        CompiledTemplate ct = Rythm.engine().prepare("@args String a\nhello @a");
+        StringWriter w = new StringWriter();
+        ct.render(w, "world");
+        assertEquals("hello world", w.toString());
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ct.render(os, "rythm");
+        assertEquals("hello rythm", os.toString("UTF-8"));
+    }
+
+    @Test
+    public void testBind() {
+        CompiledTemplate.Renderer<Person> r = Rythm.engine().prepare("@args String name, int age, boolean admin\n@name:@age:@admin").bind(Person.class);
+        assertEquals("Tom:30:true", r.render(new Person("Tom", 30, true)));
+        assertEquals("Ann:20:false", r.render(new Person("Ann", 20, false)));
+        StringWriter w = new StringWriter();
+        r.render(w, new Person("Bob", 40, false));
+        assertEquals("Bob:40:false", w.toString());
+    }
+
+    @Test
+    public void testBindGettersOnly() {
+        CompiledTemplate.Renderer<Account> r = Rythm.engine().prepare("@args String owner, String summary\n@owner:@summary").bind(Account.class);
+        assertEquals("Tom:", r.render(new Account()));
+    }
+
+    @Test
+    public void testPreparedClassIsSharedByOutputModes() throws Exception {
+        String t = "@args String a\nhello @a";
+        CompiledTemplate ct = Rythm.engine().prepare(t);
+        ITemplate tmpl = Rythm.engine().getTemplate(t, "x");
+        assertSame(ct.template().getClass(), tmpl.getClass());
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ct.render(os, "x");
+        assertEquals("hello x", os.toString("UTF-8"));
+        StringWriter w = new StringWriter();
+        Rythm.engine().render(w, t, "y");
+        assertEquals("hello y", w.toString());
+        assertEquals("hello z", ct.render("z"));
+    }
+
+    @Test
+    public void testManyTextFragmentsInAllOutputModes() throws Exception {
+        // each text fragment between two script blocks becomes a const of the class
+        StringBuilder sb = new StringBuilder("@args String a\n@a");
+        StringBuilder expected = new StringBuilder("x");
+        for (int i = 0; i < 5000; ++i) {
+            sb.append("<").append(i).append(">@{ }");
+            expected.append("<").append(i).append(">");
+        }
+        CompiledTemplate ct = Rythm.engine().prepare(sb.toString());
+        assertEquals(expected.toString(), ct.render("x"));
+        StringWriter w = new StringWriter();
+        ct.render(w, "x");
+        assertEquals(expected.toString(), w.toString());
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ct.render(os, "x");
+        assertEquals(expected.toString(), os.toString("UTF-8"));
+    }
+
+    @Test
+    public void testPrepareWithTypeInference() {
+        System.getProperties().put(FEATURE_TYPE_INFERENCE_ENABLED.getKey(), "true");
+        String t = "@args String a\n@a";
+        // leave the inferred types of another render on this thread
+        assertEquals("3", Rythm.engine().render("@1", 3));
+        CompiledTemplate ct = Rythm.engine().prepare(t);
+        assertSame(ct.template().getClass(), Rythm.engine().getTemplate(t).getClass());
+        assertEquals("x", ct.render("x"));
+    }
+
+    @Test
+    public void testEmptyTemplate() {
+        assertEquals("", Rythm.engine().prepare("").render());
+    }
+}
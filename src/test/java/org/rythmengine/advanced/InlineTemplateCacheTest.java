@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.advanced;
+
+import org.junit.Test;
+import org.rythmengine.CompiledTemplate;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.TestBase;
+import org.rythmengine.conf.RythmConfigurationKey;
+import org.rythmengine.internal.compiler.TemplateClass;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Test {@link RythmConfigurationKey#ENGINE_INLINE_TEMPLATE_CACHE_SIZE}
+ */
+public class InlineTemplateCacheTest extends TestBase {
+
+    private static RythmEngine engine(int cacheSize) {
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(RythmConfigurationKey.ENGINE_INLINE_TEMPLATE_CACHE_SIZE.getKey(), cacheSize);
+        return new RythmEngine(conf);
+    }
+
+    @Test
+    public void testInlineTemplateCacheIsBounded() {
+        RythmEngine engine = engine(16);
+        try {
+            for (int i = 0; i < 100; ++i) {
+                assertEquals(i + ":x", engine.render("@args String s\n" + i + ":@s", "x"));
+            }
+            assertTrue(engine.classes().all().size() <= 16);
+            // evicted template is compiled again on demand
+            assertEquals("0:y", engine.render("@args String s\n0:@s", "y"));
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testRecentlyUsedTemplateNotEvicted() {
+        RythmEngine engine = engine(16);
+        try {
+            String t = "@args String s\nhot:@s";
+            assertEquals("hot:x", engine.render(t, "x"));
+            TemplateClass tc = engine.classes().getByTemplate(t);
+            for (int i = 0; i < 40; ++i) {
+                engine.render("@args String s\n" + i + ":@s", "x");
+                assertEquals("hot:x", engine.render(t, "x"));
+            }
+            assertSame(tc, engine.classes().getByTemplate(t));
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testInlineTemplateClassLoader() {
+        RythmEngine engine = engine(16);
+        try {
+            String t1 = "@args String s\n@for(int i : new int[]{1, 2}){@i}@s";
+            String t2 = "@args String s\n[@s]";
+            engine.render(t1, "a");
+            engine.render(t2, "b");
+            ClassLoader l1 = engine.classes().getByTemplate(t1).javaClass.getClassLoader();
+            ClassLoader l2 = engine.classes().getByTemplate(t2).javaClass.getClassLoader();
+            assertNotSame(engine.classLoader(), l1);
+            assertNotSame(l1, l2);
+            assertSame(engine.classLoader(), l1.getParent());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testEvictedTemplateStillUsable() {
+        RythmEngine engine = engine(4);
+        try {
+            String t = "@args String s\n@for(String x : s.split(\",\")){<@x>}";
+            CompiledTemplate ct = engine.prepare(t);
+            assertEquals("<a><b>", ct.render("a,b"));
+            TemplateClass tc = engine.classes().getByTemplate(t);
+            for (int i = 0; i < 20; ++i) {
+                engine.render("@args String s\n" + i + "@s", "x");
+            }
+            assertNull(engine.classes().getByClassName(tc.name()));
+            assertEquals("<c><d>", ct.render("c,d"));
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testEvictedTemplateClassCollectable() throws Exception {
+        RythmEngine engine = engine(4);
+        try {
+            String t = "@args String s\n@for(String x : s.split(\",\")){<@x>}";
+            assertEquals("<a>", engine.render(t, "a"));
+            WeakReference<ClassLoader> ref = new WeakReference<ClassLoader>(engine.classes().getByTemplate(t).javaClass.getClassLoader());
+            for (int i = 0; i < 20; ++i) {
+                engine.render("@args String s\n" + i + "@s", "x");
+            }
+            for (int i = 0; i < 20 && null != ref.get(); ++i) {
+                System.gc();
+                Thread.sleep(50);
+            }
+            assertNull(ref.get());
+        } finally {
+            engine.shutdown();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/* 
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.advanced;
+
+import org.junit.After;
+import org.junit.Test;
+import org.rythmengine.Rythm;
+import org.rythmengine.TestBase;
+import org.rythmengine.internal.ByteOutputEncoder;
+import org.rythmengine.internal.compiler.TemplateClass;
+import org.rythmengine.template.TemplateBase;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+
+import static org.rythmengine.conf.RythmConfigurationKey.ENGINE_OUTPUT_BUFFER_POOL_ENABLED;
+import static org.rythmengine.conf.RythmConfigurationKey.ENGINE_OUTPUT_CHARSET;
+
+/**
+ * Test output buffer size learning and pooling
+ */
+public class OutputBufferTest extends TestBase {
+
+    @After
+    public void resetPool() {
+        System.getProperties().remove(ENGINE_OUTPUT_BUFFER_POOL_ENABLED.getKey());
+        System.getProperties().remove(ENGINE_OUTPUT_CHARSET.getKey());
+        Rythm.shutdown();
+    }
+
+    @Test
+    public void testOutputSizeLearning() {
+        t = "@args int n\n@for(int i = 0; i < n; ++i){0123456789}";
+        s = r(t, 100);
+        assertEquals(1000, s.length());
+        TemplateClass tc = ((TemplateBase) Rythm.engine().getTemplate(t)).__getTemplateClass(false);
+        assertTrue(tc.estimatedOutputSize() >= 1000);
+    }
+
+    @Test
+    public void testPooledBuffer() {
+        System.setProperty(ENGINE_OUTPUT_BUFFER_POOL_ENABLED.getKey(), "true");
+        t = "@args String who\n[@bar.echo(who)][@bar.included()]";
+        for (int i = 0; i < 20; ++i) {
+            s = r(t, "x" + i);
+            eq("[x" + i + "][included content]");
+        }
+        s = r("@for(String x: \"a,b,c\".split(\",\")){[@bar.echo(x)]}");
+        eq("[a][b][c]");
+    }
+
+    private String renderToStream(String charset, String template, Object... args) throws Exception {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        Rythm.engine().render(os, template, args);
+        return os.toString(charset);
+    }
+
+    @Test
+    public void testOutputStreamCharset() throws Exception {
+        System.setProperty(ENGINE_OUTPUT_CHARSET.getKey(), "ISO-8859-1");
+        t = "caf\u00e9 @x @c @i";
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        Rythm.engine().render(os, t, "\u00fc", '\u00e8', 5);
+        byte[] ba = os.toByteArray();
+        assertEquals(10, ba.length);
+        assertEquals("caf\u00e9 \u00fc \u00e8 5", os.toString("ISO-8859-1"));
+    }
+
+    @Test
+    public void testOutputStreamChunks() throws Exception {
+        System.setProperty(ENGINE_OUTPUT_CHARSET.getKey(), "UTF-8");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 3000; ++i) {
+            sb.append("\u4e2d\ud83d\ude00");
+        }
+        String x = sb.toString();
+        t = "@args String x, long l, double d, boolean b\n<@x|@l|@d|@b>";
+        s = renderToStream("UTF-8", t, x, 1234567890123L, 1.5d, true);
+        eq("<" + x + "|1234567890123|1.5|true>");
+    }
+
+    @Test
+    public void testStaticSegmentsPreEncoded() throws Exception {
+        System.setProperty(ENGINE_OUTPUT_CHARSET.getKey(), "UTF-16BE");
+        t = "@args String x\n\u00e0 @x \u00e8 @x \u00ec";
+        s = renderToStream("UTF-16BE", t, "\u4e2d");
+        eq("\u00e0 \u4e2d \u00e8 \u4e2d \u00ec");
+        getSource();
+        contains("new org.rythmengine.utils.TextBuilder.StrBuf.Slab(\"UTF-16BE\")");
+        assertNotContains(s, "new byte[]");
+    }
+
+    @Test
+    public void testRenderToChannel() throws Exception {
+        System.setProperty(ENGINE_OUTPUT_CHARSET.getKey(), "UTF-8");
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        Rythm.engine().render(Channels.newChannel(os), "hello @who \u00e9", "\u4e2d");
+        assertEquals("hello \u4e2d \u00e9", os.toString("UTF-8"));
+    }
+
+    @Test
+    public void testRenderToByteBuffers() throws Exception {
+        System.setProperty(ENGINE_OUTPUT_CHARSET.getKey(), "UTF-8");
+        ByteBuffer b0 = ByteBuffer.allocateDirect(4);
+        ByteBuffer b1 = ByteBuffer.allocate(64);
+        Rythm.engine().render(new ByteBuffer[]{b0, b1}, "hello @who", "world");
+        assertEquals(4, b0.position());
+        assertEquals(7, b1.position());
+        b0.flip();
+        b1.flip();
+        byte[] ba = new byte[11];
+        b0.get(ba, 0, 4);
+        b1.get(ba, 4, 7);
+        assertEquals("hello world", new String(ba, "UTF-8"));
+    }
+
+    @Test(expected = BufferOverflowException.class)
+    public void testRenderToByteBufferOverflow() {
+        Rythm.engine().render(ByteBuffer.allocate(4), "hello @who", "world");
+    }
+
+    private static final String LARGE = "@args String x\n@for(int i = 0; i < 2000; ++i){@x-@i\n}";
+
+    private static String large(String x) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2000; ++i) {
+            sb.append(x).append("-").append(i).append("\n");
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testRenderLargeOutputToChannel() throws Exception {
+        System.setProperty(ENGINE_OUTPUT_CHARSET.getKey(), "UTF-8");
+        String expected = large("<\u4e2d>");
+        assertTrue(expected.getBytes("UTF-8").length > ByteOutputEncoder.BYTE_BUFFER_SIZE * 2);
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        Rythm.engine().render(Channels.newChannel(os), LARGE, "<\u4e2d>");
+        assertEquals(expected, os.toString("UTF-8"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRenderToNonBlockingChannel() throws Exception {
+        Pipe pipe = Pipe.open();
+        try {
+            pipe.sink().configureBlocking(false);
+            Rythm.engine().render(pipe.sink(), LARGE, "x");
+        } finally {
+            pipe.sink().close();
+            pipe.source().close();
+        }
+    }
+
+    @Test
+    public void testRenderLargeOutputToByteBuffers() throws Exception {
+        System.setProperty(ENGINE_OUTPUT_CHARSET.getKey(), "UTF-8");
+        byte[] expected = large("<\u4e2d>").getBytes("UTF-8");
+        ByteBuffer b0 = ByteBuffer.allocate(5000);
+        ByteBuffer b1 = ByteBuffer.allocateDirect(expected.length);
+        Rythm.engine().render(new ByteBuffer[]{b0, b1}, LARGE, "<\u4e2d>");
+        assertEquals(5000, b0.position());
+        assertEquals(expected.length - 5000, b1.position());
+        byte[] ba = new byte[expected.length];
+        b0.flip();
+        b1.flip();
+        b0.get(ba, 0, 5000);
+        b1.get(ba, 5000, expected.length - 5000);
+        assertArrayEquals(expected, ba);
+    }
+
+    @Test
+    public void testRenderLargeOutputToByteBufferOverflow() {
+        ByteBuffer b0 = ByteBuffer.allocate(16);
+        b0.put((byte) 1);
+        ByteBuffer b1 = ByteBuffer.allocate(ByteOutputEncoder.BYTE_BUFFER_SIZE + 100);
+        try {
+            Rythm.engine().render(new ByteBuffer[]{b0, b1}, LARGE, "x");
+            fail("BufferOverflowException expected");
+        } catch (BufferOverflowException e) {
+            // expected, not wrapped
+        }
+        assertEquals(1, b0.position());
+        assertEquals(0, b1.position());
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.advanced;
+
+import org.junit.After;
+import org.junit.Test;
+import org.rythmengine.Rythm;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.TestBase;
+import org.rythmengine.internal.compiler.TemplateClass;
+import org.rythmengine.utils.IO;
+import org.rythmengine.utils.S;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.rythmengine.conf.RythmConfigurationKey.*;
+
+/**
+ * Test {@link RythmEngine#precompileAll()}
+ */
+public class PrecompileTest extends TestBase {
+
+    private File home;
+    private RythmEngine engine;
+
+    private File precompiled;
+
+    @After
+    public void cleanUp() {
+        if (null != engine) {
+            engine.shutdown();
+        }
+        delete(home);
+        delete(precompiled);
+    }
+
+    private static void delete(File dir) {
+        if (null != dir) {
+            File[] fa = dir.listFiles();
+            if (null != fa) {
+                for (File f : fa) {
+                    f.delete();
+                }
+            }
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void testPrecompileAll() {
+        home = new File(System.getProperty("java.io.tmpdir"), S.random(5));
+        home.mkdirs();
+        IO.writeContent("[@render()]", new File(home, "layout.html"));
+        int n = 20;
+        for (int i = 0; i < n; ++i) {
+            IO.writeContent("@extends(layout.html)\n@args String s\n" + i + ":@s", new File(home, "page" + i + ".html"));
+        }
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(HOME_TEMPLATE.getKey(), home);
+        engine = new RythmEngine(conf);
+        engine.precompileAll();
+        TemplateClass layout = engine.classes().getByTemplate("/layout.html");
+        for (int i = 0; i < n; ++i) {
+            TemplateClass tc = engine.classes().getByTemplate("/page" + i + ".html");
+            assertNotNull(tc);
+            assertNotNull(tc.javaClass);
+            // the layout is created once although the pages are parsed in parallel
+            assertSame(layout, tc.extendedTemplateClass);
+        }
+        assertNotNull(layout.javaClass);
+        assertSame(layout, engine.classes().getByClassName(layout.name()));
+        for (int i = 0; i < n; ++i) {
+            assertEquals("[" + i + ":x]", engine.render("page" + i + ".html", "x"));
+        }
+    }
+
+    @Test
+    public void testLoadFromArchive() {
+        home = new File(System.getProperty("java.io.tmpdir"), S.random(5));
+        home.mkdirs();
+        precompiled = new File(System.getProperty("java.io.tmpdir"), S.random(5));
+        precompiled.mkdirs();
+        IO.writeContent("[@render()]", new File(home, "layout.html"));
+        String page = "@extends(layout.html)\n@args String s\n@for(String x : s.split(\",\")){<@x>}";
+        IO.writeContent(page, new File(home, "page.html"));
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(ENGINE_MODE.getKey(), Rythm.Mode.prod);
+        conf.put(HOME_TEMPLATE.getKey(), home);
+        conf.put(HOME_PRECOMPILED.getKey(), precompiled);
+        conf.put(ENGINE_PRECOMPILE_MODE.getKey(), true);
+        engine = new RythmEngine(conf);
+        engine.precompileAll();
+        engine.shutdown();
+        File archive = new File(precompiled, "templates.rythm-archive");
+        assertTrue(archive.exists());
+        // remove the per class cache files
+        for (File f : precompiled.listFiles()) {
+            if (!f.equals(archive)) {
+                f.delete();
+            }
+        }
+
+        // templates are not parsed again
+        IO.writeContent("broken", new File(home, "page.html"));
+        conf.remove(ENGINE_PRECOMPILE_MODE.getKey());
+        conf.put(ENGINE_LOAD_PRECOMPILED_ENABLED.getKey(), true);
+        engine = new RythmEngine(conf);
+        assertEquals("[<a><b>]", engine.render("page.html", "a,b"));
+        TemplateClass tc = engine.classes().getByTemplate("page.html");
+        assertNull(tc.javaSource);
+        assertNotNull(tc.extendedTemplateClass);
+    }
+}
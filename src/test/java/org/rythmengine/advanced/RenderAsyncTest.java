@@ -0,0 +1,113 @@
+/* 
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.advanced;
+
+import org.junit.Test;
+import org.rythmengine.Rythm;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.TestBase;
+import org.rythmengine.extension.ICodeType;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test {@link RythmEngine#renderAsync(String, Object...)}
+ */
+public class RenderAsyncTest extends TestBase {
+
+    @Test
+    public void testRenderAsync() throws Exception {
+        RythmEngine engine = Rythm.engine();
+        List<CompletableFuture<String>> futures = new ArrayList<CompletableFuture<String>>();
+        for (int i = 0; i < 20; ++i) {
+            futures.add(engine.renderAsync("@args int i\n[@i]", i));
+        }
+        for (int i = 0; i < 20; ++i) {
+            assertEquals("[" + i + "]", futures.get(i).get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testRenderSettingsPropagated() throws Exception {
+        RythmEngine engine = Rythm.engine();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Map<String, Object> usrCtx = new HashMap<String, Object>();
+            usrCtx.put("foo", "bar");
+            engine.prepare(ICodeType.DefImpl.HTML, Locale.CHINA, usrCtx);
+            CompletableFuture<String> f;
+            try {
+                f = engine.renderAsync(executor, "@args String x\n@__curLocale()|@__getUserContext().get(\"foo\")|@x", "<a>");
+            } finally {
+                engine.renderSettings.clear();
+            }
+            assertEquals("zh_CN|bar|&lt;a&gt;", f.get(10, TimeUnit.SECONDS));
+            // settings must not leak into the next render on the same thread
+            assertEquals(Locale.getDefault().getLanguage() + "||<a>", engine.renderAsync(executor, "@args String x\n@__curLocale().getLanguage()|@__getUserContext().get(\"foo\")|@x", "<a>").get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testExecutorRenderSettingsUntouched() throws Exception {
+        final RythmEngine engine = Rythm.engine();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    engine.prepare(Locale.GERMANY);
+                }
+            }).get(10, TimeUnit.SECONDS);
+            CompletableFuture<String> f;
+            engine.prepare(Locale.CHINA);
+            try {
+                f = engine.renderAsync(executor, "@__curLocale()");
+            } finally {
+                engine.renderSettings.clear();
+            }
+            assertEquals("zh_CN", f.get(10, TimeUnit.SECONDS));
+            // the render does not use nor reset the settings of the executor thread
+            Locale locale = executor.submit(new Callable<Locale>() {
+                @Override
+                public Locale call() {
+                    try {
+                        return engine.renderSettings.locale();
+                    } finally {
+                        engine.renderSettings.clear();
+                    }
+                }
+            }).get(10, TimeUnit.SECONDS);
+            assertEquals(Locale.GERMANY, locale);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testRenderAsyncToWriter() throws Exception {
+        StringWriter w = new StringWriter();
+        Rythm.engine().renderAsync(w, "hello @who", "world").get(10, TimeUnit.SECONDS);
+        assertEquals("hello world", w.toString());
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void testRenderAsyncFailure() throws Exception {
+        Rythm.engine().renderAsync("@args String s\n@s.noSuchMethod()", "x").get(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.advanced;
+
+import org.junit.After;
+import org.junit.Test;
+import org.rythmengine.Rythm;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.TestBase;
+import org.rythmengine.utils.IO;
+import org.rythmengine.utils.S;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.rythmengine.conf.RythmConfigurationKey.*;
+
+/**
+ * Test template classes are loaded by several threads at the same time
+ */
+public class TemplateClassLoaderTest extends TestBase {
+
+    private static final int PAGES = 24;
+    private static final int THREADS = 16;
+
+    private File home;
+    private RythmEngine engine;
+
+    private RythmEngine engine(Rythm.Mode mode) {
+        home = new File(System.getProperty("java.io.tmpdir"), S.random(5));
+        home.mkdirs();
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(ENGINE_MODE.getKey(), mode);
+        conf.put(HOME_TEMPLATE.getKey(), home);
+        conf.put(RESOURCE_REFRESH_INTERVAL.getKey(), 0);
+        engine = new RythmEngine(conf);
+        return engine;
+    }
+
+    private void write(String name, String content) {
+        IO.writeContent(content, new File(home, name));
+    }
+
+    @After
+    public void cleanUp() {
+        if (null != engine) {
+            engine.shutdown();
+        }
+        if (null != home) {
+            File[] fa = home.listFiles();
+            if (null != fa) {
+                for (File f : fa) {
+                    f.delete();
+                }
+            }
+            home.delete();
+        }
+    }
+
+    @Test
+    public void testConcurrentClassLoading() throws Exception {
+        RythmEngine engine = Rythm.engine();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<CompletableFuture<String>> futures = new ArrayList<CompletableFuture<String>>();
+            for (int i = 0; i < 64; ++i) {
+                // each template is loaded by several threads at the same time
+                futures.add(engine.renderAsync(executor, "@args int i\n@for(int j : new int[]{" + (i % 16) + "}){<@j:@i>}", i));
+            }
+            for (int i = 0; i < 64; ++i) {
+                assertEquals("<" + (i % 16) + ":" + i + ">", futures.get(i).get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void coldStart(Rythm.Mode mode) throws Exception {
+        final RythmEngine engine = engine(mode);
+        write("lay.html", "@args String title\n<h1>@title</h1>@header(title)[@render()]");
+        write("header.html", "@args String s\n<header>@s</header>");
+        write("item.html", "@args int i\n<i>@i</i>");
+        for (int i = 0; i < PAGES; ++i) {
+            write("p" + i + ".html", "@extends(lay.html, title: \"p" + i + "\")\n@args int n\n@for(int j : new int[]{n}){@item(j)}");
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<String>> futures = new ArrayList<Future<String>>();
+            for (int t = 0; t < THREADS; ++t) {
+                for (int i = 0; i < PAGES; ++i) {
+                    // every thread renders every page, starting all at once on a cold engine
+                    final int page = (i + t) % PAGES;
+                    futures.add(executor.submit(new Callable<String>() {
+                        @Override
+                        public String call() throws Exception {
+                            start.await();
+                            return engine.render("p" + page + ".html", page);
+                        }
+                    }));
+                }
+            }
+            start.countDown();
+            int n = 0;
+            for (int t = 0; t < THREADS; ++t) {
+                for (int i = 0; i < PAGES; ++i) {
+                    int page = (i + t) % PAGES;
+                    String expected = "<h1>p" + page + "</h1><header>p" + page + "</header>[<i>" + page + "</i>]";
+                    assertEquals(expected, futures.get(n++).get(60, TimeUnit.SECONDS).trim());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testConcurrentColdStart() throws Exception {
+        coldStart(Rythm.Mode.prod);
+    }
+
+    @Test
+    public void testConcurrentColdStartInDevMode() throws Exception {
+        coldStart(Rythm.Mode.dev);
+    }
+}
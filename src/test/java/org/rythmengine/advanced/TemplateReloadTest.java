@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.advanced;
+
+import org.junit.After;
+import org.junit.Test;
+import org.rythmengine.Rythm;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.TestBase;
+import org.rythmengine.internal.compiler.TemplateClass;
+import org.rythmengine.internal.compiler.TemplateClassLoader;
+import org.rythmengine.utils.IO;
+import org.rythmengine.utils.S;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.rythmengine.conf.RythmConfigurationKey.*;
+
+/**
+ * Test templates are reloaded through their own class loader without restarting the engine
+ */
+public class TemplateReloadTest extends TestBase {
+
+    private File home;
+    private RythmEngine engine;
+
+    private RythmEngine engine() {
+        home = new File(System.getProperty("java.io.tmpdir"), S.random(5));
+        home.mkdirs();
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(ENGINE_MODE.getKey(), Rythm.Mode.dev);
+        conf.put(HOME_TEMPLATE.getKey(), home);
+        conf.put(RESOURCE_REFRESH_INTERVAL.getKey(), 0);
+        engine = new RythmEngine(conf);
+        return engine;
+    }
+
+    private void write(String name, String content, int version) {
+        File f = new File(home, name);
+        IO.writeContent(content, f);
+        f.setLastModified(System.currentTimeMillis() + version * 10000L);
+    }
+
+    @After
+    public void cleanUp() {
+        if (null != engine) {
+            engine.shutdown();
+        }
+        if (null != home) {
+            File[] fa = home.listFiles();
+            if (null != fa) {
+                for (File f : fa) {
+                    f.delete();
+                }
+            }
+            home.delete();
+        }
+    }
+
+    @Test
+    public void testReloadWithoutRestart() throws Exception {
+        RythmEngine engine = engine();
+        write("foo.html", "@args String who\nHello @who", 0);
+        assertEquals("Hello world", engine.render("foo.html", "world"));
+        TemplateClassLoader cl = engine.classLoader();
+        TemplateClass tc = engine.classes().getByTemplate("foo.html");
+        ClassLoader segment = tc.javaClass.getClassLoader();
+        assertSame(cl, segment.getParent());
+
+        write("foo.html", "@args String who\nBye @who", 1);
+        assertEquals("Bye world", engine.render("foo.html", "world"));
+        assertSame(cl, engine.classLoader());
+        assertNotSame(segment, engine.classes().getByTemplate("foo.html").javaClass.getClassLoader());
+
+        WeakReference<ClassLoader> ref = new WeakReference<ClassLoader>(segment);
+        segment = null;
+        for (int i = 0; i < 20 && null != ref.get(); ++i) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        assertNull(ref.get());
+    }
+
+    @Test
+    public void testReloadLayout() throws Exception {
+        RythmEngine engine = engine();
+        write("layout.html", "[@render()]", 0);
+        write("page.html", "@extends(layout.html)\npage", 0);
+        assertEquals("[page]", engine.render("page.html"));
+        TemplateClassLoader cl = engine.classLoader();
+
+        write("layout.html", "{@render()}", 1);
+        assertEquals("{page}", engine.render("page.html"));
+        assertSame(cl, engine.classLoader());
+    }
+
+    @Test
+    public void testReloadInlinedTag() throws Exception {
+        RythmEngine engine = engine();
+        write("small.html", "@args String s\nS[@s]", 0);
+        write("p1.html", "@args String s\nP1@small(s)", 0);
+        write("p2.html", "@args String s\nP2@small(s)", 0);
+        assertEquals("P1S[x]", engine.render("p1.html", "x"));
+        assertEquals("P2S[x]", engine.render("p2.html", "x"));
+        assertContains(engine.classes().getByTemplate("p2.html").javaSource, "__inlined0_small");
+
+        // every caller the tag is inlined into shall be recompiled
+        write("small.html", "@args String s\nT[@s]", 1);
+        assertEquals("P1T[x]", engine.render("p1.html", "x"));
+        assertEquals("P2T[x]", engine.render("p2.html", "x"));
+    }
+
+    @Test
+    public void testUnload() throws Exception {
+        RythmEngine engine = engine();
+        write("foo.html", "@args String who\nHello @who", 0);
+        assertEquals("Hello world", engine.render("foo.html", "world"));
+        TemplateClass tc = engine.classes().getByTemplate("foo.html");
+        engine.classes().unload(tc);
+        assertNull(engine.classes().getByClassName(tc.name()));
+        assertEquals("Hello rythm", engine.render("foo.html", "rythm"));
+        assertNotSame(tc.javaClass, engine.classes().getByTemplate("foo.html").javaClass);
+    }
+}
@@ -5,10 +5,14 @@
  */
 package org.rythmengine.essential;
 
+import org.rythmengine.Rythm;
 import org.rythmengine.TestBase;
+import org.rythmengine.template.ITemplate;
 import org.junit.Test;
 
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Test @args parser
@@ -76,6 +80,68 @@ public class ArgsParserTest extends TestBase {
         eq("\n</style>  \ns");
     }
 
+    @Test
+    public void testBindByName() {
+        t = "@args String a, int b\n@a-@b-@__get(\"c\")";
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("a", "x");
+        params.put("b", 2);
+        params.put("c", "y");
+        s = r(t, params);
+        eq("x-2-y");
+    }
+
+    @Test
+    public void testBindByNameManyArgs() {
+        // more than 64 args need more than one word of bound flags
+        StringBuilder sb = new StringBuilder("@args ");
+        Map<String, Object> params = new HashMap<String, Object>();
+        for (int i = 0; i < 70; ++i) {
+            if (i > 0) sb.append(", ");
+            sb.append("String a").append(i);
+            params.put("a" + i, "v" + i);
+        }
+        sb.append("\n@a0-@a63-@a64-@a69");
+        t = sb.toString();
+        s = r(t, params);
+        eq("v0-v63-v64-v69");
+    }
+
+    @Test
+    public void testBindByPositionArgNamedV() {
+        // the generated positional binders must not shadow an arg named v
+        t = "@args String v\n<p>@v</p>";
+        s = r(t, "X");
+        eq("<p>X</p>");
+        s = Rythm.engine().getTemplate(t).__setRenderArg(0, "Y").render();
+        eq("<p>Y</p>");
+    }
+
+    @Test
+    public void testBindByNameNotInterned() {
+        t = "@args String a, int b\n@a-@b";
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put(new String("a"), "x");
+        params.put(new StringBuilder("b").toString(), 2);
+        s = r(t, params);
+        eq("x-2");
+    }
+
+    @Test
+    public void testBindByNameCopiesUndeclaredArgs() {
+        t = "@args String a\n@a-@(__getRenderArg(\"n\"))";
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("a", "x");
+        params.put("n", 1);
+        ITemplate tmpl = Rythm.engine().getTemplate(t, params);
+        // the map of the caller is not adopted by the template
+        params.put("n", 2);
+        tmpl.__setRenderArg("m", 3);
+        assertFalse(params.containsKey("m"));
+        s = tmpl.render();
+        eq("x-1");
+    }
+
     public static void main(String[] args) {
         run(ArgsParserTest.class);
     }
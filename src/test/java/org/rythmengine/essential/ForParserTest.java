@@ -397,6 +397,94 @@ public class ForParserTest extends TestBase {
         eq("1|2|3|4");
     }
     
+    @Test
+    public void testLoopHelperVarsOnlyWhenReferenced() {
+        t = "@for(s in \"a:b:c\"){@(s)}";
+        eq("abc");
+        getSource();
+        assertNotContains(s, "s_sep");
+        assertNotContains(s, "s_utils");
+        assertNotContains(s, "s_parity");
+        assertNotContains(s, "__pushItrVar");
+
+        t = "@for(s in \"a:b:c\"){@(s):@(s_parity)@s_utils.sep(\"|\")}";
+        s = null;
+        eq("a:odd|b:even|c:odd");
+        getSource();
+        assertNotContains(s, "s_sep");
+        assertNotContains(s, "__pushItrVar");
+    }
+
+    @Test
+    public void testLoopVarInDynamicExpression() {
+        // the loop var must be exposed to __eval, also with blanks before the trailing @
+        t = "@args List<String> items\n@for(String s : items){@if(s.length() > 1 @){[@s]}}";
+        s = r(t, Arrays.asList("a", "bb", "ccc"));
+        eq("[bb][ccc]");
+
+        t = "@args List<String> items\n@for(String s : items){@for(x in \"1\"){[@s.length()@]}}";
+        s = r(t, Arrays.asList("a", "bb"));
+        eq("[1][2]");
+    }
+
+    @Test
+    public void testNestedLoopHelperVars() {
+        t = "@for(s in \"a:b\"){@for(x in \"1,2\"){@(s)@(x)@x_sep}@s_sep}";
+        eq("a1,a2,b1,b2");
+    }
+
+    @Test
+    public void testPrimitiveArray() {
+        t = "@args int[] nums\n@for(nums){@(_)@_sep}";
+        s = r(t, new int[]{1, 2, 3});
+        eq("1,2,3");
+        getSource();
+        assertNotContains(s, "__Itr");
+
+        t = "@args long[] nums\n@for(long l: nums){@(l.toString())|}";
+        s = r(t, new long[]{1L, 2L});
+        eq("1|2|");
+
+        t = "@args int[] nums\n@for(nums){@(_)}else{empty}";
+        s = r(t, new int[]{});
+        eq("empty");
+    }
+
+    @Test
+    public void testBoxedArrayWithNull() {
+        t = "@args Integer[] nums\n@for(nums){@_}";
+        s = r(t, (Object) new Integer[]{1, null, 3});
+        eq("13");
+    }
+
+    @Test
+    public void testObjectArrayAndList() {
+        t = "@args String[] items\n@for(items){@(_)@_sep}";
+        s = r(t, (Object) "a,b,c".split(","));
+        eq("a,b,c");
+
+        t = "@args List<String> items\n@for(items){@(_.length())@_sep}";
+        s = r(t, Arrays.asList("a,bb,ccc".split(",")));
+        eq("1,2,3");
+        getSource();
+        assertNotContains(s, "__Itr");
+
+        s = r(t, new java.util.LinkedList<String>(Arrays.asList("a,bb,ccc".split(","))));
+        eq("1,2,3");
+    }
+
+    @Test
+    public void testPrimitiveRange() {
+        t = "@for(int i: 1 to 1000){@if(i > 998){@i}}";
+        eq("999");
+        getSource();
+        assertNotContains(s, "Range.valueOf");
+
+        t = "@for(char c: 'a' till 'c'){@c}";
+        s = null;
+        eq("abc");
+    }
+
 //    @Test
 //    public void testNullCollection() {
 //        t = "@args List<String> l;@for(l).join(){@_}";
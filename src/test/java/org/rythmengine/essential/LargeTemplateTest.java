@@ -0,0 +1,56 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.essential;
+
+import org.junit.Test;
+import org.rythmengine.TestBase;
+import org.rythmengine.exception.ParseException;
+
+/**
+ * Test parsing templates of several hundred KB
+ */
+public class LargeTemplateTest extends TestBase {
+
+    private static final int LINES = 10000;
+
+    private static String largeTemplate(String errorLine, int errorLineNo) {
+        StringBuilder sb = new StringBuilder("@args String who\n");
+        for (int i = 2; i <= LINES; ++i) {
+            if (i == errorLineNo) {
+                sb.append(errorLine).append("\n");
+            } else {
+                sb.append("<p>line ").append(i).append(0 == i % 100 ? ", hello @who" : "").append("</p> @// note\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testRender() {
+        t = largeTemplate("@**\n * block comment\n *@", LINES / 2);
+        s = r(t, "world");
+        assertTrue(s.startsWith("<p>line 2</p> \n<p>line 3</p> \n"));
+        assertTrue(s.contains("<p>line " + (LINES / 2 - 1) + "</p> \n<p>line " + (LINES / 2 + 1) + "</p> \n"));
+        assertTrue(s.contains("<p>line " + (LINES / 2 + 100) + ", hello world</p> \n"));
+        assertTrue(s.endsWith("<p>line " + LINES + ", hello world</p> \n"));
+    }
+
+    @Test
+    public void testParseExceptionLineNumber() {
+        int lineNo = LINES - 2;
+        t = largeTemplate("<p>@for(String s: {", lineNo);
+        try {
+            r(t, "world");
+            fail("ParseException expected");
+        } catch (ParseException e) {
+            assertEquals(lineNo, e.templateLineNumber);
+        }
+    }
+
+    public static void main(String[] args) {
+        run(LargeTemplateTest.class);
+    }
+}
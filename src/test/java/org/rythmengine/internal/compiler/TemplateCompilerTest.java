@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.internal.compiler;
+
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.TestBase;
+
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+/**
+ * Test the class file cache shared by the template compilations of an engine
+ */
+public class TemplateCompilerTest extends TestBase {
+
+    private RythmEngine engine;
+    private TemplateCompiler compiler;
+
+    @Before
+    public void setUpEngine() {
+        engine = new RythmEngine();
+        compiler = engine.classes().compiler;
+    }
+
+    @After
+    public void shutdownEngine() {
+        engine.shutdown();
+    }
+
+    private void swapParentClassLoader() throws Exception {
+        ClassLoader parent = new URLClassLoader(new URL[0], engine.classLoader().getParent());
+        Field f = RythmEngine.class.getDeclaredField("_classLoader");
+        f.setAccessible(true);
+        f.set(engine, new TemplateClassLoader(parent, engine));
+    }
+
+    @Test
+    public void testReadersReusedByNextCompilation() {
+        assertEquals("3", engine.render("@args String s\n@s.length()", "abc"));
+        ClassFileReader reader = compiler.classFileCache.get("java.lang.String");
+        assertNotNull(reader);
+        compiler.packagesCache.put("foo.bar", true);
+        compiler.notFoundTypes.add("foo.bar.Foo");
+
+        assertEquals("ABC", engine.render("@args String s\n@s.toUpperCase()", "abc"));
+        assertSame(reader, compiler.classFileCache.get("java.lang.String"));
+        assertTrue(compiler.packagesCache.containsKey("foo.bar"));
+        assertTrue(compiler.notFoundTypes.contains("foo.bar.Foo"));
+    }
+
+    @Test
+    public void testParentClassLoaderSwapClearsCaches() throws Exception {
+        assertEquals("3", engine.render("@args String s\n@s.length()", "abc"));
+        ClassFileReader reader = compiler.classFileCache.get("java.lang.String");
+        assertNotNull(reader);
+        compiler.packagesCache.put("foo.bar", true);
+        compiler.notFoundTypes.add("foo.bar.Foo");
+
+        swapParentClassLoader();
+        assertEquals("ABC", engine.render("@args String s\n@s.toUpperCase()", "abc"));
+        ClassFileReader reader2 = compiler.classFileCache.get("java.lang.String");
+        assertNotNull(reader2);
+        assertNotSame(reader, reader2);
+        assertFalse(compiler.packagesCache.containsKey("foo.bar"));
+        assertFalse(compiler.notFoundTypes.contains("foo.bar.Foo"));
+    }
+
+    public static void main(String[] args) {
+        run(TemplateCompilerTest.class);
+    }
+}
@@ -5,9 +5,17 @@
  */
 package org.rythmengine.tag;
 
+import org.rythmengine.Rythm;
+import org.rythmengine.RythmEngine;
 import org.rythmengine.TestBase;
 import org.junit.Test;
 import org.rythmengine.conf.RythmConfigurationKey;
+import org.rythmengine.internal.compiler.TemplateClass;
+import org.rythmengine.template.ITemplate;
+import org.rythmengine.template.JavaTagBase;
+
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Test invoke other templates
@@ -113,6 +121,89 @@ public class InvokeTemplateTest extends TestBase {
         eq("voo");
     }
 
+    @Test
+    public void testTagInheritsCallerRenderContext() {
+        Map<String, Object> usrCtx = new HashMap<String, Object>();
+        usrCtx.put("foo", "bar");
+        RythmEngine engine = Rythm.engine();
+        engine.prepare(usrCtx);
+        ITemplate tmpl = engine.getTemplate("@bar.userContext()");
+        // the tag must see the root template's user context even after
+        // the thread local settings have been cleared
+        engine.renderSettings.clear();
+        s = tmpl.render();
+        eq("bar");
+    }
+
+    @Test
+    public void testTagCallSiteCache() {
+        // make sure the tag is invoked instead of inlined
+        System.setProperty(RythmConfigurationKey.CODEGEN_INLINE_TAG_SIZE.getKey(), "0");
+        try {
+            tagCallSiteCache();
+        } finally {
+            System.getProperties().remove(RythmConfigurationKey.CODEGEN_INLINE_TAG_SIZE.getKey());
+        }
+    }
+
+    private void tagCallSiteCache() {
+        RythmEngine engine = Rythm.engine();
+        ITemplate tmpl = engine.getTemplate("@bar.echo(\"a\")@bar.echo(\"b\")");
+        s = tmpl.render();
+        eq("ab");
+        TemplateClass tc = tmpl.__getTemplateClass(false);
+        // the tag name is resolved to the full name with suffix at parsing time
+        assertNotNull(tc.tagCallSites.get("bar.echo.html"));
+
+        // registering a tag invalidates resolved call sites
+        engine.registerFastTag(new JavaTagBase() {
+            @Override
+            public String __getName() {
+                return "bar.echo.html";
+            }
+
+            @Override
+            protected void call(__ParameterList params, __Body body) {
+                p(params.getDefault().toString().toUpperCase());
+            }
+        });
+        s = engine.getTemplate("@bar.echo(\"a\")@bar.echo(\"b\")").render();
+        eq("AB");
+    }
+
+    @Test
+    public void testTemplateInstancesDoNotShareState() {
+        RythmEngine engine = Rythm.engine();
+        String src = "@args String s\n@s";
+        ITemplate t1 = engine.getTemplate(src, "a");
+        ITemplate t2 = engine.getTemplate(src, "b");
+        assertNotSame(t1, t2);
+        s = t2.render();
+        eq("b");
+        s = t1.render();
+        eq("a");
+
+        t = "@bar.noInline(\"a\")@bar.noInline(\"b\")";
+        s = r(t);
+        eq("ab");
+    }
+
+    @Test
+    public void testCallerArgsPassedToTag() {
+        t = "@args String name, String title\n@bar.inherit()";
+        s = r(t, "X", "Y");
+        eq("X Y");
+
+        // caller arg with a type incompatible to the tag arg is not passed
+        t = "@args Integer name, String title\n@bar.inherit()";
+        s = r(t, 5, "Y");
+        eq("def Y");
+
+        t = "@args String name\n@bar.inherit()";
+        s = r(t);
+        eq("def none");
+    }
+
     public static void main(String[] args) {
         run(InvokeTemplateTest.class);
     }
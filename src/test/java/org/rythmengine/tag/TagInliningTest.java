@@ -0,0 +1,93 @@
+/* 
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.tag;
+
+import org.junit.After;
+import org.junit.Test;
+import org.rythmengine.Rythm;
+import org.rythmengine.TestBase;
+import org.rythmengine.internal.compiler.TemplateClass;
+import org.rythmengine.template.TemplateBase;
+
+import static org.rythmengine.conf.RythmConfigurationKey.CODEGEN_INLINE_TAG_SIZE;
+
+/**
+ * Test inlining small tags into the caller template
+ */
+public class TagInliningTest extends TestBase {
+
+    @After
+    public void reset() {
+        System.getProperties().remove(CODEGEN_INLINE_TAG_SIZE.getKey());
+    }
+
+    @Test
+    public void testInline() {
+        t = "hello @bar.echo(\"rythm\")";
+        s = r(t);
+        eq("hello rythm");
+
+        getSource();
+        contains("__inlined0_bar_echo_html(");
+        assertNotContains(s, "__invokeTag(");
+    }
+
+    @Test
+    public void testArgumentBinding() {
+        t = "@bar.pair(\"x\", 1)|@bar.pair(b: 2, a: \"y\")";
+        s = r(t);
+        eq("x-1|y-2");
+
+        getSource();
+        assertNotContains(s, "__invokeTag(");
+    }
+
+    @Test
+    public void testMissingArgumentNotInlined() {
+        t = "@bar.pair(\"x\")";
+        getSource();
+        contains("__invokeTag(");
+    }
+
+    @Test
+    public void testEscapeOfCallerNotApplied() {
+        // tag expressions are escaped as if in the tag, not in the escape block of the caller
+        t = "@args String p\n@escape(\"JS\"){@bar.echo(p)}";
+        s = r(t, "a'b");
+        eq("a'b");
+    }
+
+    @Test
+    public void testNoInline() {
+        t = "@bar.noInline(\"rythm\")";
+        s = r(t);
+        eq("rythm");
+
+        getSource();
+        contains("__invokeTag(");
+    }
+
+    @Test
+    public void testDisabled() {
+        System.setProperty(CODEGEN_INLINE_TAG_SIZE.getKey(), "0");
+        t = "@bar.echo(\"rythm\")";
+        getSource();
+        contains("__invokeTag(");
+    }
+
+    @Test
+    public void testDependency() {
+        t = "@bar.echo(\"rythm\")";
+        TemplateBase tb = (TemplateBase) Rythm.engine().getTemplate(t);
+        TemplateClass tc = tb.__getTemplateClass(false);
+        // the caller is recompiled when the inlined tag changed
+        assertContains(tc.refreshIncludeTemplateClassNames(), "bar.echo");
+    }
+
+    public static void main(String[] args) {
+        run(TagInliningTest.class);
+    }
+}
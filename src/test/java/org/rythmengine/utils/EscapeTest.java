@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.utils;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.junit.After;
+import org.junit.Test;
+import org.rythmengine.Rythm;
+import org.rythmengine.TestBase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+
+import static org.rythmengine.conf.RythmConfigurationKey.ENGINE_OUTPUT_CHARSET;
+
+/**
+ * Test the escape implementations write the same output as the commons-lang translators
+ * they replace, no matter the output is a string, a writer or a byte stream
+ */
+public class EscapeTest extends TestBase {
+
+    private static final String[] SAMPLES = {
+            "",
+            "plain text",
+            "<a href=\"/x?a=1&b='2'\">link</a>",
+            "tab\tnew line\ncarriage\rback\\slash/ form\fbell\u0007 \u0000 del\u007f",
+            "café  ÿ Œœ αβγ – € 中文",
+            "emoji 😀 and a lone surrogate \ud83d end",
+            "csv, \"quoted\"\r\nnext"
+    };
+
+    @After
+    public void resetCharset() {
+        System.getProperties().remove(ENGINE_OUTPUT_CHARSET.getKey());
+        Rythm.shutdown();
+    }
+
+    @Test
+    public void testHtml() {
+        for (String s : SAMPLES) {
+            verify(Escape.HTML, s, StringEscapeUtils.escapeHtml4(s));
+        }
+    }
+
+    @Test
+    public void testJson() {
+        for (String s : SAMPLES) {
+            verify(Escape.JSON, s, StringEscapeUtils.escapeJson(s));
+        }
+    }
+
+    @Test
+    public void testJavaScript() {
+        for (String s : SAMPLES) {
+            verify(Escape.JS, s, StringEscapeUtils.escapeEcmaScript(s));
+        }
+    }
+
+    @Test
+    public void testXml() {
+        verify(Escape.XML, "<a b=\"c\" d='e'>&amp;</a>", "&lt;a b=&quot;c&quot; d=&apos;e&apos;&gt;&amp;amp;&lt;/a&gt;");
+        verify(Escape.XML, "café", "café");
+    }
+
+    @Test
+    public void testCsv() {
+        verify(Escape.CSV, "abc", "abc");
+        verify(Escape.CSV, "a,b", "\"a,b\"");
+        verify(Escape.CSV, "say \"hi\"", "\"say \"\"hi\"\"\"");
+        verify(Escape.CSV, "a\nb", "\"a\nb\"");
+    }
+
+    @Test
+    public void testRaw() {
+        for (String s : SAMPLES) {
+            verify(Escape.RAW, s, s);
+        }
+    }
+
+    @Test
+    public void testNothingToEscape() {
+        String s = "plain text without special characters";
+        for (Escape escape : Escape.values()) {
+            assertSame(s, escape.escape(s));
+        }
+        String csv = "non ascii \u00e9 \u4e2d";
+        assertSame(csv, Escape.CSV.escape(csv));
+        assertSame(csv, Escape.XML.escape(csv));
+    }
+
+    @Test
+    public void testCleanRunsToWriter() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200; ++i) {
+            sb.append("clean run ").append(i).append(i % 7 == 0 ? "<&>\"\u00e9" : "");
+        }
+        String s0 = sb.toString();
+        StringWriter w = new StringWriter();
+        Escape.HTML.escapeTo(s0, w);
+        Escape.JSON.escapeTo(s0, w);
+        assertEquals(StringEscapeUtils.escapeHtml4(s0) + StringEscapeUtils.escapeJson(s0), w.toString());
+    }
+
+    @Test
+    public void testRenderTargets() throws Exception {
+        System.setProperty(ENGINE_OUTPUT_CHARSET.getKey(), "UTF-8");
+        t = "@args String s\n@escape(\"html\"){<p>@s</p>}@escape(\"js\"){[@s]}";
+        String s0 = "<a href=\"/x?a=1&b='2'\">café 中</a>";
+        String expected = "<p>" + StringEscapeUtils.escapeHtml4(s0) + "</p>[" + StringEscapeUtils.escapeEcmaScript(s0) + "]";
+        s = r(t, s0);
+        eq(expected);
+
+        StringWriter w = new StringWriter();
+        Rythm.engine().render(w, t, s0);
+        assertEquals(expected, w.toString());
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        Rythm.engine().render(os, t, s0);
+        assertEquals(expected, os.toString("UTF-8"));
+    }
+
+    private static void verify(Escape escape, String s, String expected) {
+        assertEquals(expected, escape.escape(s));
+        StringBuilder sb = new StringBuilder("prefix|");
+        escape.escapeTo(s, sb);
+        assertEquals("prefix|" + expected, sb.toString());
+    }
+
+}